@@ -0,0 +1,43 @@
+package com.portfolio.simulator.benchmark;
+
+import com.portfolio.simulator.domain.NumericMode;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.ResultStorage;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.service.impl.MonteCarloSimulator;
+
+import java.math.BigDecimal;
+
+final class BenchmarkParams {
+
+  static final long SEED = 20200215L;
+  static final BigDecimal INFLATION_RATE = BigDecimal.valueOf(0.035);
+
+  private BenchmarkParams() {
+  }
+
+  static SimulationParams simulationParams(int paths, int years) {
+    return simulationParams(paths, years, NumericMode.DOUBLE, ResultStorage.MATRIX);
+  }
+
+  static SimulationParams simulationParams(int paths, int years, NumericMode numericMode,
+                                           ResultStorage resultStorage) {
+    return SimulationParams.builder()
+      .numOfSimulations(paths)
+      .yearsToForecast(years)
+      .inflationRate(INFLATION_RATE)
+      .seed(SEED)
+      .numericMode(numericMode)
+      .resultStorage(resultStorage)
+      .build();
+  }
+
+  static SimulationResult simulate(PortfolioType portfolioType, int paths, int years)
+    throws InvalidSimulationParamsException {
+    Portfolio portfolio = new Portfolio(portfolioType, BigDecimal.valueOf(100000.00));
+    return new MonteCarloSimulator().run(portfolio, simulationParams(paths, years));
+  }
+}
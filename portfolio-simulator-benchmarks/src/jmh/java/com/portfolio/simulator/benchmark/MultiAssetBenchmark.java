@@ -0,0 +1,89 @@
+package com.portfolio.simulator.benchmark;
+
+import com.portfolio.simulator.domain.AssetAllocation;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.service.impl.MultiAssetSimulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multi-asset simulation cost against the number of asset classes; divide by {@code paths * (years - 1)} for the
+ * cost per path-year.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MultiAssetBenchmark {
+
+  @Param({"10000"})
+  private int paths;
+
+  @Param({"30"})
+  private int years;
+
+  @Param({"1", "5", "20", "50"})
+  private int assets;
+
+  @Param({"1", "0"})
+  private int rebalancingPeriod;
+
+  private MultiAssetSimulator simulator;
+  private Portfolio portfolio;
+  private SimulationParams params;
+
+  @Setup
+  public void setUp() {
+    simulator = new MultiAssetSimulator();
+    portfolio = new Portfolio(BigDecimal.valueOf(100000.00), randomAllocation(assets, rebalancingPeriod));
+    params = BenchmarkParams.simulationParams(paths, years);
+  }
+
+  @Benchmark
+  public SimulationResult run() throws InvalidSimulationParamsException {
+    return simulator.run(portfolio, params);
+  }
+
+  /**
+   * Covariance {@code A * A' / assets} of a random loading matrix, which is positive definite.
+   */
+  static AssetAllocation randomAllocation(int assets, int rebalancingPeriod) {
+    Random random = new Random(BenchmarkParams.SEED);
+    double[][] loadings = new double[assets][assets];
+    double[] weights = new double[assets];
+    double[] expectedReturns = new double[assets];
+    for (int i = 0; i < assets; i++) {
+      for (int j = 0; j < assets; j++) {
+        loadings[i][j] = 0.15 * random.nextGaussian();
+      }
+      weights[i] = 1.0 / assets;
+      expectedReturns[i] = 0.02 + 0.06 * random.nextDouble();
+    }
+    double[][] covariance = new double[assets][assets];
+    for (int i = 0; i < assets; i++) {
+      for (int j = 0; j < assets; j++) {
+        for (int k = 0; k < assets; k++) {
+          covariance[i][j] += loadings[i][k] * loadings[j][k] / assets;
+        }
+      }
+    }
+    return AssetAllocation.builder()
+      .weights(weights)
+      .expectedReturns(expectedReturns)
+      .covariance(covariance)
+      .rebalancingPeriod(rebalancingPeriod)
+      .build();
+  }
+}
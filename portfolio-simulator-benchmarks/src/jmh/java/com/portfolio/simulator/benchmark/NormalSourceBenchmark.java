@@ -0,0 +1,42 @@
+package com.portfolio.simulator.benchmark;
+
+import com.portfolio.simulator.random.NormalSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NormalSourceBenchmark {
+
+  @Param({"polar", "ziggurat"})
+  private String normalSource;
+
+  @Param({"20", "60"})
+  private int years;
+
+  private NormalSource source;
+  private double[] shocks;
+  private long path;
+
+  @Setup
+  public void setUp() {
+    source = "ziggurat".equals(normalSource) ? NormalSource.ziggurat().get() : NormalSource.polar().get();
+    shocks = new double[years];
+  }
+
+  @Benchmark
+  public double[] fillPath() {
+    source.reset(path++);
+    source.fill(shocks, 1, years - 1);
+    return shocks;
+  }
+}
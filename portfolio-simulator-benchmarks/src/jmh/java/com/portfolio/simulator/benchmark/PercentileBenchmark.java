@@ -0,0 +1,66 @@
+package com.portfolio.simulator.benchmark;
+
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.utils.ResultsUtil;
+import com.portfolio.simulator.utils.StatsPerformanceUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PercentileBenchmark {
+
+  @Param({"1000", "100000", "10000000"})
+  private int paths;
+
+  @Param({"1", "20", "60"})
+  private int years;
+
+  @Param({"AGGRESSIVE", "VERY_CONSERVATIVE"})
+  private PortfolioType portfolioType;
+
+  @Param({"0.5"})
+  private double percentile;
+
+  private static final double[] FAN_PERCENTILES = {0.1, 0.5, 0.9};
+
+  private double[] yearValues;
+  private BigDecimal[] boxedYearValues;
+
+  @Setup
+  public void setUp() throws InvalidSimulationParamsException {
+    SimulationResult simulationResult = BenchmarkParams.simulate(portfolioType, paths, years);
+    yearValues = ResultsUtil.retrieveResultsByYear(simulationResult.getProjectionMatrix(), years);
+    boxedYearValues = new BigDecimal[yearValues.length];
+    for (int i = 0; i < yearValues.length; i++) {
+      boxedYearValues[i] = BigDecimal.valueOf(yearValues[i]);
+    }
+  }
+
+  @Benchmark
+  public double derivePercentile() {
+    return StatsPerformanceUtil.derivePercentile(yearValues, percentile);
+  }
+
+  @Benchmark
+  public double[] deriveTenFiftyNinetyPercentiles() {
+    return StatsPerformanceUtil.derivePercentiles(yearValues, FAN_PERCENTILES);
+  }
+
+  @Benchmark
+  public BigDecimal deriveBoxedPercentile() {
+    return StatsPerformanceUtil.derivePercentile(boxedYearValues, percentile);
+  }
+}
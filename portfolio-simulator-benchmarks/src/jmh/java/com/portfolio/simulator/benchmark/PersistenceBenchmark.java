@@ -0,0 +1,65 @@
+package com.portfolio.simulator.benchmark;
+
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.io.ColumnCodec;
+import com.portfolio.simulator.io.SimulationResultReader;
+import com.portfolio.simulator.io.SimulationResultWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PersistenceBenchmark {
+
+  @Param({"100000", "1000000"})
+  private int paths;
+
+  @Param({"20"})
+  private int years;
+
+  @Param({"NONE", "DEFLATE"})
+  private ColumnCodec codec;
+
+  private Path file;
+
+  @Setup
+  public void setUp() throws InvalidSimulationParamsException, IOException {
+    SimulationResult result = BenchmarkParams.simulate(PortfolioType.AGGRESSIVE, paths, years);
+    file = Files.createTempFile("persistence-benchmark", ".psim");
+    SimulationResultWriter.write(file, result, BenchmarkParams.simulationParams(paths, years), codec);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Benchmark
+  public SimulationResult reloadResult() throws IOException {
+    try (SimulationResultReader reader = SimulationResultReader.open(file)) {
+      return reader.readResult();
+    }
+  }
+
+  @Benchmark
+  public double[] reloadLastYear() throws IOException {
+    try (SimulationResultReader reader = SimulationResultReader.open(file)) {
+      return reader.readYear(years);
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package com.portfolio.simulator.benchmark;
+
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.utils.ResultsUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResultsExtractionBenchmark {
+
+  @Param({"1000", "100000", "10000000"})
+  private int paths;
+
+  @Param({"1", "20", "60"})
+  private int years;
+
+  @Param({"AGGRESSIVE", "VERY_CONSERVATIVE"})
+  private PortfolioType portfolioType;
+
+  private SimulationResult simulationResult;
+
+  @Setup
+  public void setUp() throws InvalidSimulationParamsException {
+    simulationResult = BenchmarkParams.simulate(portfolioType, paths, years);
+  }
+
+  @Benchmark
+  public double[] retrieveFromProjectionMatrix() {
+    return ResultsUtil.retrieveResultsByYear(simulationResult.getProjectionMatrix(), years);
+  }
+
+  @Benchmark
+  public BigDecimal[] retrieveFromProjectionResults() {
+    return ResultsUtil.retrieveResultsByYear(simulationResult.getProjectionResults(), years);
+  }
+}
@@ -0,0 +1,115 @@
+package com.portfolio.simulator.benchmark;
+
+import com.portfolio.simulator.domain.NumericMode;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.SamplingStrategy;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.service.impl.MonteCarloSimulator;
+import com.portfolio.simulator.utils.ResultsUtil;
+import com.portfolio.simulator.utils.StatsPerformanceUtil;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how far the P5/P95 of a run land from a one-million-path reference, for each sampling strategy. Every
+ * invocation uses a new seed; the {@code errorP5Bps}/{@code errorP95Bps} counters sum the absolute relative errors in
+ * basis points and {@code runs} counts invocations, so their ratio is the mean error at that path count and, together
+ * with the time per run, the error reached per CPU second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SamplingConvergenceBenchmark {
+
+  private static final int REFERENCE_PATHS = 1_000_000;
+  private static final double[] TAIL_PERCENTILES = {0.05, 0.95};
+
+  @Param({"1000", "10000"})
+  private int paths;
+
+  @Param({"20"})
+  private int years;
+
+  @Param({"PSEUDO_RANDOM", "ANTITHETIC", "SOBOL", "STRATIFIED"})
+  private SamplingStrategy samplingStrategy;
+
+  private MonteCarloSimulator simulator;
+  private Portfolio portfolio;
+  private double[] referencePercentiles;
+
+  @Setup
+  public void setUp() throws InvalidSimulationParamsException {
+    simulator = new MonteCarloSimulator();
+    portfolio = new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00));
+    SimulationResult reference = simulator.run(portfolio, params(REFERENCE_PATHS, SamplingStrategy.PSEUDO_RANDOM, 1L)
+      .parallel(true)
+      .build());
+    referencePercentiles = tailPercentiles(reference);
+  }
+
+  @Benchmark
+  public void runAndMeasureError(ErrorCounters counters) throws InvalidSimulationParamsException {
+    SimulationResult result = simulator.run(portfolio, params(paths, samplingStrategy, counters.nextSeed()).build());
+    double[] percentiles = tailPercentiles(result);
+    counters.errorP5Bps += relativeErrorBps(percentiles[0], referencePercentiles[0]);
+    counters.errorP95Bps += relativeErrorBps(percentiles[1], referencePercentiles[1]);
+    counters.runs++;
+  }
+
+  private SimulationParams.SimulationParamsBuilder params(int numOfSimulations,
+                                                          SamplingStrategy strategy,
+                                                          long seed) {
+    return SimulationParams.builder()
+      .numOfSimulations(numOfSimulations)
+      .yearsToForecast(years)
+      .inflationRate(BenchmarkParams.INFLATION_RATE)
+      .numericMode(NumericMode.DOUBLE)
+      .samplingStrategy(strategy)
+      .seed(seed);
+  }
+
+  private double[] tailPercentiles(SimulationResult result) {
+    return StatsPerformanceUtil.derivePercentilesInPlace(
+      ResultsUtil.retrieveResultsByYear(result.getProjectionMatrix(), years), TAIL_PERCENTILES);
+  }
+
+  private static double relativeErrorBps(double estimate, double reference) {
+    return Math.abs(estimate - reference) / reference * 10_000;
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class ErrorCounters {
+
+    public double errorP5Bps;
+    public double errorP95Bps;
+    public long runs;
+
+    private long seed;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      errorP5Bps = 0;
+      errorP95Bps = 0;
+      runs = 0;
+    }
+
+    long nextSeed() {
+      return BenchmarkParams.SEED + ++seed;
+    }
+  }
+}
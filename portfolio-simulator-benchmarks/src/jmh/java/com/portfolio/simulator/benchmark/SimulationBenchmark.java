@@ -0,0 +1,58 @@
+package com.portfolio.simulator.benchmark;
+
+import com.portfolio.simulator.domain.NumericMode;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.ResultStorage;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.service.impl.MonteCarloSimulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SimulationBenchmark {
+
+  @Param({"1000", "100000", "10000000"})
+  private int paths;
+
+  @Param({"1", "20", "60"})
+  private int years;
+
+  @Param({"AGGRESSIVE", "VERY_CONSERVATIVE"})
+  private PortfolioType portfolioType;
+
+  @Param({"BIG_DECIMAL", "FIXED_POINT_CENTS", "DOUBLE"})
+  private NumericMode numericMode;
+
+  @Param({"MATRIX", "SKETCH"})
+  private ResultStorage resultStorage;
+
+  private MonteCarloSimulator simulator;
+  private Portfolio portfolio;
+  private SimulationParams params;
+
+  @Setup
+  public void setUp() {
+    simulator = new MonteCarloSimulator();
+    portfolio = new Portfolio(portfolioType, BigDecimal.valueOf(100000.00));
+    params = BenchmarkParams.simulationParams(paths, years, numericMode, resultStorage);
+  }
+
+  @Benchmark
+  public SimulationResult run() throws InvalidSimulationParamsException {
+    return simulator.run(portfolio, params);
+  }
+}
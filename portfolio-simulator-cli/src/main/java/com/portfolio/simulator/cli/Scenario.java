@@ -0,0 +1,143 @@
+package com.portfolio.simulator.cli;
+
+import com.portfolio.simulator.domain.NumericMode;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.ResultStorage;
+import com.portfolio.simulator.domain.SamplingStrategy;
+import com.portfolio.simulator.domain.SimulationParams;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Function;
+
+/**
+ * One simulation described by a properties file, e.g.
+ * <pre>
+ * portfolioType=AGGRESSIVE
+ * balance=100000.00
+ * numOfSimulations=10000
+ * yearsToForecast=20
+ * inflationRate=0.035
+ * seed=42
+ * numericMode=DOUBLE
+ * percentiles=0.1,0.5,0.9
+ * </pre>
+ * {@code seed}, {@code parallel}, {@code numericMode}, {@code samplingStrategy}, {@code resultStorage},
+ * {@code sketchRelativeAccuracy} and {@code percentiles} are optional and default as in {@link SimulationParams}, with
+ * percentiles defaulting to the 10th, 50th and 90th.
+ */
+final class Scenario {
+
+  private static final String DEFAULT_PERCENTILES = "0.1,0.5,0.9";
+
+  private final String name;
+  private final Portfolio portfolio;
+  private final SimulationParams params;
+  private final List<Double> percentiles;
+
+  private Scenario(String name, Portfolio portfolio, SimulationParams params, List<Double> percentiles) {
+    this.name = name;
+    this.portfolio = portfolio;
+    this.params = params;
+    this.percentiles = percentiles;
+  }
+
+  /**
+   * Reads the scenario in {@code file}, named after the file without its extension.
+   */
+  static Scenario load(Path file) throws IOException {
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    }
+    String fileName = file.getFileName().toString();
+    int extension = fileName.lastIndexOf('.');
+    return of(extension > 0 ? fileName.substring(0, extension) : fileName, properties);
+  }
+
+  static Scenario of(String name, Properties properties) {
+    PortfolioType portfolioType = enumValue(properties, "portfolioType", PortfolioType.class, null);
+    if (portfolioType == PortfolioType.MULTI_ASSET) {
+      throw new IllegalArgumentException("Multi-asset portfolios cannot be described by a scenario file");
+    }
+    Portfolio portfolio = new Portfolio(portfolioType, decimal(properties, "balance"));
+
+    SimulationParams.SimulationParamsBuilder params = SimulationParams.builder()
+      .numOfSimulations(integer(properties, "numOfSimulations"))
+      .yearsToForecast(integer(properties, "yearsToForecast"))
+      .inflationRate(decimal(properties, "inflationRate"))
+      .parallel(Boolean.parseBoolean(properties.getProperty("parallel", "false").trim()))
+      .numericMode(enumValue(properties, "numericMode", NumericMode.class, NumericMode.BIG_DECIMAL))
+      .samplingStrategy(enumValue(properties, "samplingStrategy", SamplingStrategy.class,
+        SamplingStrategy.PSEUDO_RANDOM))
+      .resultStorage(enumValue(properties, "resultStorage", ResultStorage.class, ResultStorage.MATRIX));
+    String seed = properties.getProperty("seed");
+    if (seed != null) {
+      params.seed(parse("seed", seed, Long::valueOf));
+    }
+    String sketchRelativeAccuracy = properties.getProperty("sketchRelativeAccuracy");
+    if (sketchRelativeAccuracy != null) {
+      params.sketchRelativeAccuracy(parse("sketchRelativeAccuracy", sketchRelativeAccuracy, Double::valueOf));
+    }
+
+    List<Double> percentiles = new ArrayList<>();
+    for (String percentile : properties.getProperty("percentiles", DEFAULT_PERCENTILES).split(",")) {
+      percentiles.add(parse("percentiles", percentile, Double::valueOf));
+    }
+    return new Scenario(name, portfolio, params.build(), Collections.unmodifiableList(percentiles));
+  }
+
+  String getName() {
+    return name;
+  }
+
+  Portfolio getPortfolio() {
+    return portfolio;
+  }
+
+  SimulationParams getParams() {
+    return params;
+  }
+
+  List<Double> getPercentiles() {
+    return percentiles;
+  }
+
+  private static int integer(Properties properties, String key) {
+    return parse(key, required(properties, key), Integer::valueOf);
+  }
+
+  private static BigDecimal decimal(Properties properties, String key) {
+    return parse(key, required(properties, key), BigDecimal::new);
+  }
+
+  private static <E extends Enum<E>> E enumValue(Properties properties, String key, Class<E> type, E defaultValue) {
+    String value = defaultValue == null ? required(properties, key) : properties.getProperty(key);
+    return value == null ? defaultValue : parse(key, value, v -> Enum.valueOf(type, v));
+  }
+
+  private static String required(Properties properties, String key) {
+    String value = properties.getProperty(key);
+    if (value == null || value.trim().isEmpty()) {
+      throw new IllegalArgumentException("Missing scenario property: " + key);
+    }
+    return value;
+  }
+
+  private static <T> T parse(String key, String value, Function<String, T> parser) {
+    try {
+      return parser.apply(value.trim());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid scenario property: " + key + "=" + value.trim());
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package com.portfolio.simulator.cli;
+
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.exception.InvalidStatsGenerationParamsException;
+import com.portfolio.simulator.service.impl.MonteCarloSimulator;
+import com.portfolio.simulator.service.impl.MonteCarloStatisticsGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs scenario files through the simulator without any container, for short-lived batch jobs:
+ * <pre>
+ * portfolio-simulator-cli [--output &lt;dir&gt;] &lt;scenario.properties&gt;...
+ * </pre>
+ * Each scenario's percentiles are written as {@code scenario,year,percentile,value} rows, to standard output or to
+ * {@code <dir>/<scenario>.csv}. Exits with 1 when a scenario is invalid and 2 on a usage error.
+ */
+public final class SimulationCli {
+
+  static final int EXIT_INVALID_SCENARIO = 1;
+  static final int EXIT_USAGE = 2;
+
+  private static final String USAGE = "Usage: portfolio-simulator-cli [--output <dir>] <scenario.properties>...";
+  private static final String HEADER = "scenario,year,percentile,value";
+
+  private final MonteCarloSimulator simulator = new MonteCarloSimulator();
+  private final MonteCarloStatisticsGenerator statsGenerator = new MonteCarloStatisticsGenerator();
+
+  public static void main(String[] args) {
+    System.exit(new SimulationCli().run(args, System.out, System.err));
+  }
+
+  int run(String[] args, PrintStream out, PrintStream err) {
+    Path outputDirectory = null;
+    List<Path> scenarioFiles = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if ("--output".equals(args[i]) && i + 1 < args.length) {
+        outputDirectory = Paths.get(args[++i]);
+      } else if (args[i].startsWith("--")) {
+        err.println(USAGE);
+        return EXIT_USAGE;
+      } else {
+        scenarioFiles.add(Paths.get(args[i]));
+      }
+    }
+    if (scenarioFiles.isEmpty()) {
+      err.println(USAGE);
+      return EXIT_USAGE;
+    }
+
+    try {
+      if (outputDirectory != null) {
+        Files.createDirectories(outputDirectory);
+      } else {
+        out.println(HEADER);
+      }
+      for (Path scenarioFile : scenarioFiles) {
+        Scenario scenario = Scenario.load(scenarioFile);
+        if (outputDirectory == null) {
+          writeScenario(scenario, out);
+          out.flush();
+        } else {
+          try (Writer writer = Files.newBufferedWriter(outputDirectory.resolve(scenario.getName() + ".csv"),
+            StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.write('\n');
+            writeScenario(scenario, writer);
+          }
+        }
+      }
+      return 0;
+    } catch (IllegalArgumentException | InvalidSimulationParamsException | InvalidStatsGenerationParamsException e) {
+      err.println(e.getMessage());
+      return EXIT_INVALID_SCENARIO;
+    } catch (IOException e) {
+      err.println("Cannot read or write scenario: " + e.getMessage());
+      return EXIT_INVALID_SCENARIO;
+    }
+  }
+
+  private void writeScenario(Scenario scenario, PrintStream out)
+    throws IOException, InvalidSimulationParamsException, InvalidStatsGenerationParamsException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    writeScenario(scenario, writer);
+    writer.flush();
+  }
+
+  private void writeScenario(Scenario scenario, Writer writer)
+    throws IOException, InvalidSimulationParamsException, InvalidStatsGenerationParamsException {
+    try (SimulationResult result = simulator.run(scenario.getPortfolio(), scenario.getParams())) {
+      double[][] fanChart = statsGenerator.calcFanChart(scenario.getPercentiles(), result);
+      StringBuilder row = new StringBuilder();
+      for (int year = 1; year <= fanChart.length; year++) {
+        for (int i = 0; i < fanChart[year - 1].length; i++) {
+          row.setLength(0);
+          row.append(scenario.getName()).append(',')
+            .append(year).append(',')
+            .append(scenario.getPercentiles().get(i)).append(',')
+            .append(BigDecimal.valueOf(fanChart[year - 1][i]).setScale(2, RoundingMode.HALF_EVEN).toPlainString())
+            .append('\n');
+          writer.write(row.toString());
+        }
+      }
+    }
+  }
+}
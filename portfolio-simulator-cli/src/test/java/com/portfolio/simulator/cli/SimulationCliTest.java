@@ -0,0 +1,89 @@
+package com.portfolio.simulator.cli;
+
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.service.impl.MonteCarloSimulator;
+import com.portfolio.simulator.service.impl.MonteCarloStatisticsGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class SimulationCliTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void shouldWriteFanChartOfEachScenario() throws Exception {
+    Path scenarioFile = writeScenario("retirement", "portfolioType=VERY_CONSERVATIVE", "balance=250000",
+      "numOfSimulations=2000", "yearsToForecast=5", "inflationRate=0.02", "seed=3", "numericMode=DOUBLE",
+      "percentiles=0.25,0.75");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    int exitCode = new SimulationCli().run(new String[]{scenarioFile.toString()}, print(out),
+      print(new ByteArrayOutputStream()));
+
+    Scenario scenario = Scenario.load(scenarioFile);
+    SimulationResult result = new MonteCarloSimulator().run(scenario.getPortfolio(), scenario.getParams());
+    double[][] fanChart = new MonteCarloStatisticsGenerator().calcFanChart(Arrays.asList(0.25, 0.75), result);
+    List<String> lines = Arrays.asList(new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n"));
+    assertThat(exitCode, is(0));
+    assertThat(lines.size(), is(1 + 5 * 2));
+    assertThat(lines.get(0), is("scenario,year,percentile,value"));
+    assertThat(lines.get(10), is("retirement,5,0.75,"
+      + BigDecimal.valueOf(fanChart[4][1]).setScale(2, RoundingMode.HALF_EVEN).toPlainString()));
+  }
+
+  @Test
+  public void shouldWriteOneFilePerScenarioToOutputDirectory() throws Exception {
+    Path first = writeScenario("first", "portfolioType=AGGRESSIVE", "balance=1000", "numOfSimulations=100",
+      "yearsToForecast=3", "inflationRate=0.035");
+    Path second = writeScenario("second", "portfolioType=AGGRESSIVE", "balance=1000", "numOfSimulations=100",
+      "yearsToForecast=4", "inflationRate=0.035", "resultStorage=SKETCH", "percentiles=0.5");
+    Path output = directory.resolve("out");
+
+    int exitCode = new SimulationCli().run(new String[]{"--output", output.toString(), first.toString(),
+      second.toString()}, print(new ByteArrayOutputStream()), print(new ByteArrayOutputStream()));
+
+    assertThat(exitCode, is(0));
+    assertThat(Files.readAllLines(output.resolve("first.csv")).size(), is(1 + 3 * 3));
+    assertThat(Files.readAllLines(output.resolve("second.csv")).size(), is(1 + 4));
+  }
+
+  @Test
+  public void shouldReportInvalidScenarioAndUsageErrors() throws Exception {
+    Path missingBalance = writeScenario("broken", "portfolioType=AGGRESSIVE", "numOfSimulations=100",
+      "yearsToForecast=3", "inflationRate=0.035");
+    Path unknownType = writeScenario("unknown", "portfolioType=BALANCED", "balance=1000", "numOfSimulations=100",
+      "yearsToForecast=3", "inflationRate=0.035");
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    assertThat(new SimulationCli().run(new String[]{missingBalance.toString()}, print(new ByteArrayOutputStream()),
+      print(err)), is(SimulationCli.EXIT_INVALID_SCENARIO));
+    assertThat(new SimulationCli().run(new String[]{unknownType.toString()}, print(new ByteArrayOutputStream()),
+      print(err)), is(SimulationCli.EXIT_INVALID_SCENARIO));
+    assertThat(new SimulationCli().run(new String[0], print(new ByteArrayOutputStream()), print(err)),
+      is(SimulationCli.EXIT_USAGE));
+    assertThat(new String(err.toByteArray(), StandardCharsets.UTF_8).split("\n")[0],
+      is("Missing scenario property: balance"));
+  }
+
+  private Path writeScenario(String name, String... lines) throws Exception {
+    return Files.write(directory.resolve(name + ".properties"), Arrays.asList(lines));
+  }
+
+  private static PrintStream print(ByteArrayOutputStream out) {
+    return new PrintStream(out, true);
+  }
+}
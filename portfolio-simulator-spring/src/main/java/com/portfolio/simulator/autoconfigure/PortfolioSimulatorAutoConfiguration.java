@@ -0,0 +1,38 @@
+package com.portfolio.simulator.autoconfigure;
+
+import com.portfolio.simulator.metrics.SimulationMetrics;
+import com.portfolio.simulator.service.Simulator;
+import com.portfolio.simulator.service.StatsGenerator;
+import com.portfolio.simulator.service.impl.MonteCarloSimulator;
+import com.portfolio.simulator.service.impl.MonteCarloStatisticsGenerator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers the simulator and statistics generator of the core module as beans, wired to the application's
+ * {@link SimulationMetrics} when there is one. Declaring any {@link Simulator} or {@link StatsGenerator} bean yourself
+ * replaces the corresponding default.
+ */
+@Configuration
+@AutoConfigureAfter(SimulationMetricsAutoConfiguration.class)
+public class PortfolioSimulatorAutoConfiguration {
+
+  @Bean
+  @ConditionalOnMissingBean(Simulator.class)
+  public MonteCarloSimulator monteCarloSimulator(ObjectProvider<SimulationMetrics> metrics) {
+    MonteCarloSimulator simulator = new MonteCarloSimulator();
+    simulator.setSimulationMetrics(metrics.getIfAvailable());
+    return simulator;
+  }
+
+  @Bean
+  @ConditionalOnMissingBean(StatsGenerator.class)
+  public MonteCarloStatisticsGenerator monteCarloStatisticsGenerator(ObjectProvider<SimulationMetrics> metrics) {
+    MonteCarloStatisticsGenerator statsGenerator = new MonteCarloStatisticsGenerator();
+    statsGenerator.setSimulationMetrics(metrics.getIfAvailable());
+    return statsGenerator;
+  }
+}
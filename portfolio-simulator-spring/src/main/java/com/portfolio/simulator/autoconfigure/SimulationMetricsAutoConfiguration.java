@@ -0,0 +1,33 @@
+package com.portfolio.simulator.autoconfigure;
+
+import com.portfolio.simulator.metrics.MicrometerSimulationMetrics;
+import com.portfolio.simulator.metrics.SimulationMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Publishes simulator metrics to the application's {@link MeterRegistry} when Micrometer is on the classpath and a
+ * registry is configured. Set {@code portfolio.simulator.metrics.enabled=false} to keep the simulator on
+ * {@link SimulationMetrics#NOOP}.
+ */
+@Configuration
+@ConditionalOnClass(MeterRegistry.class)
+@ConditionalOnProperty(prefix = "portfolio.simulator.metrics", name = "enabled", matchIfMissing = true)
+@AutoConfigureAfter(name = {
+  "org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration",
+  "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration"})
+public class SimulationMetricsAutoConfiguration {
+
+  @Bean
+  @ConditionalOnBean(MeterRegistry.class)
+  @ConditionalOnMissingBean(SimulationMetrics.class)
+  public SimulationMetrics simulationMetrics(MeterRegistry registry) {
+    return new MicrometerSimulationMetrics(registry);
+  }
+}
@@ -0,0 +1,77 @@
+package com.portfolio.simulator.autoconfigure;
+
+import com.portfolio.simulator.domain.NumericMode;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.service.Simulator;
+import com.portfolio.simulator.service.StatsGenerator;
+import com.portfolio.simulator.service.impl.CachingSimulator;
+import com.portfolio.simulator.service.impl.MonteCarloSimulator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+
+import java.math.BigDecimal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+
+@SpringBootTest
+public class PortfolioSimulatorAutoConfigurationTest {
+
+  @Autowired
+  private Simulator monteCarloSimulator;
+
+  @Autowired
+  private StatsGenerator<BigDecimal, SimulationResult> monteCarloStatisticsGenerator;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Test
+  public void shouldProvideSimulatorAndStatsGeneratorWiredToMetrics() throws Exception {
+    SimulationResult result = monteCarloSimulator.run(
+      new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00)),
+      SimulationParams.builder()
+        .numOfSimulations(1000)
+        .yearsToForecast(5)
+        .inflationRate(BigDecimal.valueOf(0.035))
+        .seed(1L)
+        .numericMode(NumericMode.DOUBLE)
+        .build());
+    monteCarloStatisticsGenerator.calcPercentile(0.5, 5, result);
+
+    assertThat(meterRegistry.get("portfolio.simulator.paths").counter().count(), is(1000.0));
+    assertThat(meterRegistry.get("portfolio.simulator.phase").tag("phase", "selection").timer().count(), is(1L));
+  }
+
+  @Test
+  public void shouldBackOffForAnySimulatorOrStatsGeneratorBean() {
+    Simulator cachingSimulator = new CachingSimulator(new MonteCarloSimulator(), 1 << 20);
+    new ApplicationContextRunner()
+      .withConfiguration(AutoConfigurations.of(PortfolioSimulatorAutoConfiguration.class))
+      .withBean(Simulator.class, () -> cachingSimulator)
+      .run(context -> {
+        assertThat(context.getBean(Simulator.class), is(sameInstance(cachingSimulator)));
+        assertThat(context.getBeansOfType(StatsGenerator.class).size(), is(1));
+      });
+  }
+
+  @SpringBootApplication
+  static class TestConfiguration {
+
+    @Bean
+    public MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package com.portfolio.simulator.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Target weights over several asset classes with their expected annual returns and the covariance of those returns.
+ * Arrays are indexed by asset class and treated as immutable once the allocation has been simulated, since derived data
+ * such as the covariance factor is cached per allocation instance.
+ */
+@Getter
+@AllArgsConstructor
+@Builder
+public class AssetAllocation {
+  private List<String> assetClasses;
+  private double[] weights;
+  private double[] expectedReturns;
+  private double[][] covariance;
+  /**
+   * Years between rebalancing back to the target weights; {@code 0} holds the initial weights without rebalancing.
+   */
+  @Builder.Default
+  private int rebalancingPeriod = 1;
+
+  public int getNumOfAssets() {
+    return weights == null ? 0 : weights.length;
+  }
+
+  /**
+   * Expected annual return of the portfolio at its target weights.
+   */
+  public double getExpectedReturn() {
+    double expectedReturn = 0;
+    for (int i = 0; i < weights.length; i++) {
+      expectedReturn += weights[i] * expectedReturns[i];
+    }
+    return expectedReturn;
+  }
+
+  /**
+   * Standard deviation of the annual portfolio return at its target weights, {@code sqrt(w' * covariance * w)}.
+   */
+  public double getRisk() {
+    double variance = 0;
+    for (int i = 0; i < weights.length; i++) {
+      for (int j = 0; j < weights.length; j++) {
+        variance += weights[i] * covariance[i][j] * weights[j];
+      }
+    }
+    return Math.sqrt(Math.max(variance, 0));
+  }
+}
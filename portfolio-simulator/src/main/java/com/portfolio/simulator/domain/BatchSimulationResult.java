@@ -0,0 +1,29 @@
+package com.portfolio.simulator.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Runs of several portfolios over the same shocks, in the order the portfolios were given, together with the
+ * requested percentiles of every portfolio and year.
+ */
+@Getter
+@AllArgsConstructor
+@Builder
+public class BatchSimulationResult {
+  private List<SimulationResult> results;
+  private List<Double> percentiles;
+  private double[][][] percentileValues;
+  private long seed;
+
+  /**
+   * Returns the value of {@code percentiles.get(percentileIndex)} for the given portfolio, with {@code year} following
+   * the same convention as {@code StatsGenerator.calcPercentile}.
+   */
+  public double getPercentile(int portfolioIndex, int percentileIndex, int year) {
+    return percentileValues[portfolioIndex][year - 1][percentileIndex];
+  }
+}
@@ -0,0 +1,32 @@
+package com.portfolio.simulator.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Stopping rule for adaptive runs: paths are simulated in batches until the confidence interval of every target
+ * percentile, estimated by batch means, is narrower than {@code tolerance} relative to the estimate. {@code year} uses
+ * the same convention as {@code StatsGenerator.calcPercentile} and defaults to the last simulated year.
+ *
+ * <p>Batch means assume independent batches, which consecutive stretches of one Sobol sequence are not, so runs with
+ * {@link SamplingStrategy#SOBOL} cannot have convergence criteria.
+ */
+@Getter
+@AllArgsConstructor
+@Builder
+public class ConvergenceCriteria {
+  private List<Double> targetPercentiles;
+  private double tolerance;
+  @Builder.Default
+  private double confidenceLevel = 0.95;
+  @Builder.Default
+  private int batchSize = 1000;
+  @Builder.Default
+  private int minBatches = 10;
+  @Builder.Default
+  private int maxSimulations = 1_000_000;
+  private Integer year;
+}
@@ -0,0 +1,18 @@
+package com.portfolio.simulator.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@Builder
+public class ConvergenceReport {
+  private boolean converged;
+  private int numOfBatches;
+  private List<Double> targetPercentiles;
+  private double[] estimates;
+  private double[] halfWidths;
+}
@@ -0,0 +1,105 @@
+package com.portfolio.simulator.domain;
+
+import java.nio.DoubleBuffer;
+import java.util.List;
+
+/**
+ * Year-major matrix of simulated balances backed by a single {@code double[]}. Every year of every path sits at
+ * {@code year * numOfPaths + path}, so a year column is one contiguous run and a path row is a strided walk.
+ */
+public class DenseProjectionMatrix implements ProjectionMatrix {
+
+  private final int numOfPaths;
+  private final int numOfYears;
+  private final double[] values;
+
+  public DenseProjectionMatrix(int numOfPaths, int numOfYears) {
+    if (numOfPaths < 0 || numOfYears < 0 || (long) numOfPaths * numOfYears > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Unsupported projection matrix size: " + numOfPaths + " x " + numOfYears);
+    }
+    this.numOfPaths = numOfPaths;
+    this.numOfYears = numOfYears;
+    this.values = new double[numOfPaths * numOfYears];
+  }
+
+  @Override
+  public int getNumOfPaths() {
+    return numOfPaths;
+  }
+
+  @Override
+  public int getNumOfYears() {
+    return numOfYears;
+  }
+
+  @Override
+  public double get(int path, int year) {
+    return values[year * numOfPaths + path];
+  }
+
+  public void set(int path, int year, double value) {
+    values[year * numOfPaths + path] = value;
+  }
+
+  public void setPath(int path, double[] src, int srcOffset) {
+    for (int year = 0; year < numOfYears; year++) {
+      values[year * numOfPaths + path] = src[srcOffset + year];
+    }
+  }
+
+  public void setYear(int year, double[] src, int srcOffset) {
+    System.arraycopy(src, srcOffset, values, year * numOfPaths, numOfPaths);
+  }
+
+  @Override
+  public void copyYear(int year, double[] dest, int destOffset) {
+    System.arraycopy(values, year * numOfPaths, dest, destOffset, numOfPaths);
+  }
+
+  @Override
+  public DoubleBuffer viewYear(int year) {
+    return DoubleBuffer.wrap(values, year * numOfPaths, numOfPaths).slice().asReadOnlyBuffer();
+  }
+
+  @Override
+  public void copyPath(int path, double[] dest, int destOffset) {
+    for (int year = 0; year < numOfYears; year++) {
+      dest[destOffset + year] = values[year * numOfPaths + path];
+    }
+  }
+
+  public static DenseProjectionMatrix concat(List<DenseProjectionMatrix> parts) {
+    int numOfPaths = 0;
+    int numOfYears = parts.isEmpty() ? 0 : parts.get(0).numOfYears;
+    for (DenseProjectionMatrix part : parts) {
+      if (part.numOfYears != numOfYears) {
+        throw new IllegalArgumentException("Cannot concatenate matrices with different horizons");
+      }
+      numOfPaths += part.numOfPaths;
+    }
+
+    DenseProjectionMatrix combined = new DenseProjectionMatrix(numOfPaths, numOfYears);
+    for (int year = 0; year < numOfYears; year++) {
+      int offset = year * numOfPaths;
+      for (DenseProjectionMatrix part : parts) {
+        part.copyYear(year, combined.values, offset);
+        offset += part.numOfPaths;
+      }
+    }
+    return combined;
+  }
+
+  /**
+   * Copies {@code matrix} with every balance multiplied by {@code factor}.
+   */
+  public static DenseProjectionMatrix scale(ProjectionMatrix matrix, double factor) {
+    DenseProjectionMatrix scaled = new DenseProjectionMatrix(matrix.getNumOfPaths(), matrix.getNumOfYears());
+    for (int year = 0; year < scaled.numOfYears; year++) {
+      matrix.copyYear(year, scaled.values, year * scaled.numOfPaths);
+    }
+    for (int i = 0; i < scaled.values.length; i++) {
+      scaled.values[i] *= factor;
+    }
+    return scaled;
+  }
+}
@@ -0,0 +1,22 @@
+package com.portfolio.simulator.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A fan chart answered in closed form, available as soon as it is returned, and the Monte Carlo run that refines it.
+ * Both charts are indexed {@code [year - 1][percentile]} in the order of {@code percentiles}. Cancelling
+ * {@code refinement} cancels the run, for callers that only keep the latest of several previews.
+ */
+@Getter
+@AllArgsConstructor
+@Builder
+public class FanChartPreview {
+  private List<Double> percentiles;
+  private double[][] approximation;
+  private CompletableFuture<FanChartRefinement> refinement;
+}
@@ -0,0 +1,20 @@
+package com.portfolio.simulator.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * The Monte Carlo fan chart behind a {@link FanChartPreview}, with how far the preview was from it.
+ * {@code relativeErrors[year - 1][percentile]} is the preview's distance from the simulated value relative to that
+ * value, and {@code maxRelativeError} the largest of them.
+ */
+@Getter
+@AllArgsConstructor
+@Builder
+public class FanChartRefinement {
+  private SimulationResult result;
+  private double[][] values;
+  private double[][] relativeErrors;
+  private double maxRelativeError;
+}
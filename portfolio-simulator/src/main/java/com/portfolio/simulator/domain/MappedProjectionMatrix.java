@@ -0,0 +1,266 @@
+package com.portfolio.simulator.domain;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Pattern;
+
+/**
+ * Year-major matrix of simulated balances kept off-heap in a memory-mapped temporary file, for runs too large for the
+ * heap. The layout matches {@link DenseProjectionMatrix} with a stride of {@code pathCapacity}, split into mappings of
+ * at most {@link #DEFAULT_SEGMENT_SIZE} bytes so files beyond 2 GB can be addressed.
+ *
+ * <p>The file is unlinked as soon as it is mapped where the platform allows it, so the operating system reclaims it
+ * when the mappings go away even if the JVM dies; {@link #close()} releases the mappings eagerly. The matrix must not
+ * be read after it is closed, nor closed while another thread is still reading it.
+ */
+public class MappedProjectionMatrix implements ProjectionMatrix, AutoCloseable {
+
+  static final long DEFAULT_SEGMENT_SIZE = 1L << 30;
+
+  private static final ByteOrder BYTE_ORDER = ByteOrder.nativeOrder();
+  private static final Pattern MAPPING_HEADER = Pattern.compile("[0-9a-f]+-[0-9a-f]+ ");
+
+  private final Path file;
+  private final int pathCapacity;
+  private final int numOfYears;
+  private final int segmentShift;
+  private final long segmentMask;
+  private final long mappedSize;
+  private volatile int numOfPaths;
+  private volatile MappedByteBuffer[] segments;
+
+  public MappedProjectionMatrix(int numOfPaths, int numOfYears) {
+    this(numOfPaths, numOfYears, Paths.get(System.getProperty("java.io.tmpdir")), DEFAULT_SEGMENT_SIZE);
+  }
+
+  MappedProjectionMatrix(int pathCapacity, int numOfYears, Path directory, long segmentSize) {
+    if (pathCapacity < 0 || numOfYears < 0) {
+      throw new IllegalArgumentException("Unsupported projection matrix size: " + pathCapacity + " x " + numOfYears);
+    }
+    if (Long.bitCount(segmentSize) != 1 || segmentSize < Double.BYTES || segmentSize > DEFAULT_SEGMENT_SIZE) {
+      throw new IllegalArgumentException("Segment size must be a power of two up to 1 GB: " + segmentSize);
+    }
+    this.pathCapacity = pathCapacity;
+    this.numOfPaths = pathCapacity;
+    this.numOfYears = numOfYears;
+    this.segmentShift = Long.numberOfTrailingZeros(segmentSize);
+    this.segmentMask = segmentSize - 1;
+    this.mappedSize = (long) pathCapacity * numOfYears * Double.BYTES;
+
+    try {
+      this.file = Files.createTempFile(directory, "portfolio-simulation-", ".bin");
+      this.segments = map(file, mappedSize, segmentSize);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot map projection matrix of " + mappedSize + " bytes", e);
+    }
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      file.toFile().deleteOnExit();
+    }
+  }
+
+  @Override
+  public int getNumOfPaths() {
+    return numOfPaths;
+  }
+
+  @Override
+  public int getNumOfYears() {
+    return numOfYears;
+  }
+
+  /**
+   * Limits the visible paths to the first {@code numOfPaths}, for runs that stop before filling their capacity. Pages
+   * that were never written stay unallocated in the file.
+   */
+  public void limitNumOfPaths(int numOfPaths) {
+    if (numOfPaths < 0 || numOfPaths > pathCapacity) {
+      throw new IllegalArgumentException("Number of paths exceeds capacity: " + numOfPaths);
+    }
+    this.numOfPaths = numOfPaths;
+  }
+
+  @Override
+  public double get(int path, int year) {
+    long offset = offset(path, year);
+    return segments()[(int) (offset >>> segmentShift)].getDouble((int) (offset & segmentMask));
+  }
+
+  /**
+   * Writes {@code length} consecutive paths of one year from {@code src}, the year-major block layout the simulator
+   * produces per chunk. Concurrent writers must target disjoint paths.
+   */
+  public void setYearBlock(int year, int fromPath, double[] src, int srcOffset, int length) {
+    long offset = offset(fromPath, year);
+    while (length > 0) {
+      int run = runLength(offset, length);
+      doubleBuffer(offset, run).put(src, srcOffset, run);
+      offset += (long) run * Double.BYTES;
+      srcOffset += run;
+      length -= run;
+    }
+  }
+
+  @Override
+  public void copyYear(int year, double[] dest, int destOffset) {
+    if (numOfPaths == 0) {
+      return;
+    }
+    long offset = offset(0, year);
+    int length = numOfPaths;
+    while (length > 0) {
+      int run = runLength(offset, length);
+      doubleBuffer(offset, run).get(dest, destOffset, run);
+      offset += (long) run * Double.BYTES;
+      destOffset += run;
+      length -= run;
+    }
+  }
+
+  @Override
+  public void copyPath(int path, double[] dest, int destOffset) {
+    for (int year = 0; year < numOfYears; year++) {
+      dest[destOffset + year] = get(path, year);
+    }
+  }
+
+  /**
+   * Returns the year column directly over the mapping when it sits in a single segment, and a heap copy otherwise.
+   */
+  @Override
+  public DoubleBuffer viewYear(int year) {
+    if (numOfPaths == 0) {
+      return DoubleBuffer.allocate(0).asReadOnlyBuffer();
+    }
+    long offset = offset(0, year);
+    if (runLength(offset, numOfPaths) == numOfPaths) {
+      return doubleBuffer(offset, numOfPaths).asReadOnlyBuffer();
+    }
+    return ProjectionMatrix.super.viewYear(year);
+  }
+
+  public long getMappedSizeInBytes() {
+    return mappedSize;
+  }
+
+  /**
+   * Bytes of the mapping currently resident in physical memory, read from {@code /proc/self/smaps}; {@code -1} where
+   * that is not available.
+   */
+  public long getResidentSizeInBytes() {
+    Path smaps = Paths.get("/proc/self/smaps");
+    if (!Files.isReadable(smaps)) {
+      return -1;
+    }
+    String fileName = file.toString();
+    long residentKb = 0;
+    boolean inMapping = false;
+    try (BufferedReader reader = Files.newBufferedReader(smaps, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (MAPPING_HEADER.matcher(line).lookingAt()) {
+          inMapping = line.contains(fileName);
+        } else if (inMapping && line.startsWith("Rss:")) {
+          residentKb += Long.parseLong(line.substring(4).replace("kB", "").trim());
+        }
+      }
+    } catch (IOException | NumberFormatException e) {
+      return -1;
+    }
+    return residentKb * 1024;
+  }
+
+  @Override
+  public void close() {
+    MappedByteBuffer[] released = segments;
+    segments = null;
+    if (released != null) {
+      for (MappedByteBuffer segment : released) {
+        unmap(segment);
+      }
+    }
+  }
+
+  private long offset(int path, int year) {
+    if (path < 0 || path >= numOfPaths || year < 0 || year >= numOfYears) {
+      throw new IndexOutOfBoundsException("Path: " + path + ", Year: " + year);
+    }
+    return ((long) year * pathCapacity + path) * Double.BYTES;
+  }
+
+  private int runLength(long offset, int length) {
+    long remainingInSegment = ((segmentMask + 1) - (offset & segmentMask)) / Double.BYTES;
+    return (int) Math.min(length, remainingInSegment);
+  }
+
+  private DoubleBuffer doubleBuffer(long offset, int length) {
+    ByteBuffer segment = segments()[(int) (offset >>> segmentShift)].duplicate();
+    int position = (int) (offset & segmentMask);
+    ((Buffer) segment).limit(position + length * Double.BYTES);
+    ((Buffer) segment).position(position);
+    return segment.slice().order(BYTE_ORDER).asDoubleBuffer();
+  }
+
+  private MappedByteBuffer[] segments() {
+    MappedByteBuffer[] current = segments;
+    if (current == null) {
+      throw new IllegalStateException("Projection matrix has been closed");
+    }
+    return current;
+  }
+
+  private static MappedByteBuffer[] map(Path file, long size, long segmentSize) throws IOException {
+    int numOfSegments = (int) ((size + segmentSize - 1) / segmentSize);
+    MappedByteBuffer[] segments = new MappedByteBuffer[numOfSegments];
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      for (int i = 0; i < numOfSegments; i++) {
+        long position = i * segmentSize;
+        segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.min(segmentSize, size - position));
+        segments[i].order(BYTE_ORDER);
+      }
+    }
+    return segments;
+  }
+
+  /**
+   * Releases a mapping without waiting for garbage collection, through {@code Unsafe.invokeCleaner} on Java 9+ or the
+   * buffer's cleaner on Java 8. Falls back to leaving it to the collector when neither is accessible.
+   */
+  private static void unmap(MappedByteBuffer segment) {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      invokeCleaner.invoke(theUnsafe.get(null), segment);
+      return;
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // not Java 9+, fall through to the Java 8 cleaner
+    }
+    try {
+      Method cleanerMethod = segment.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      Object cleaner = cleanerMethod.invoke(segment);
+      if (cleaner != null) {
+        cleaner.getClass().getMethod("clean").invoke(cleaner);
+      }
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // left to the garbage collector
+    }
+  }
+}
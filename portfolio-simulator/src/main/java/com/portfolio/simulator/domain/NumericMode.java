@@ -0,0 +1,32 @@
+package com.portfolio.simulator.domain;
+
+/**
+ * Arithmetic used to compound a path from one year to the next. Every mode keeps a constant cost per simulated year;
+ * balances are stored as {@code double}s whichever mode produced them, which adds at most one rounding of 2^-53
+ * relative error per stored value.
+ */
+public enum NumericMode {
+
+  /**
+   * {@link java.math.BigDecimal} rounded to {@link java.math.MathContext#DECIMAL128} (34 significant digits, half-even)
+   * after every operation. Relative error is at most 10^-33 per year, so well below the storage rounding for any
+   * realistic horizon.
+   */
+  BIG_DECIMAL,
+
+  /**
+   * Balance held as a {@code long} number of cents and rounded to the nearest cent every year; the yearly growth
+   * factor itself is computed in {@code double}. Each year adds at most half a cent of error and earlier errors are
+   * carried forward by later growth, so the error in year n is at most half a cent times the sum over k of the growth
+   * from year k to year n. Cents are exact in a {@code double} only below 2^53 (about 90 trillion): a principal or
+   * cash flow at or above that is rejected as an invalid parameter, and keeping grown balances below it is up to the
+   * caller.
+   */
+  FIXED_POINT_CENTS,
+
+  /**
+   * IEEE-754 {@code double} throughout. Each year adds a few roundings of 2^-53 relative error, which stays within
+   * 10^-13 of {@link #BIG_DECIMAL} over a 30-year horizon, and this is by far the cheapest mode.
+   */
+  DOUBLE
+}
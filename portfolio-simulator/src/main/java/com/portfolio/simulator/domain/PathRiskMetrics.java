@@ -0,0 +1,173 @@
+package com.portfolio.simulator.domain;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Path-dependent risk statistics of a run, accumulated one path at a time so that no path has to be kept: when each
+ * path was first depleted, its maximum drawdown and its terminal balance. Drawdowns and terminal balances are counted
+ * in {@link QuantileSketch}es, so their percentiles, the value at risk and the expected shortfall carry the sketches'
+ * relative accuracy; depletion probabilities and the mean drawdown are exact. Like the sketches, accumulators built
+ * from disjoint sets of paths merge into the statistics of all of them.
+ *
+ * <p>A path is depleted in the first year its balance is zero or below. A drawdown is the fall from the highest
+ * balance seen so far, relative to that balance, and is capped at 1 once the balance is gone.
+ */
+public class PathRiskMetrics {
+
+  private final int numOfYears;
+  private final double shortfallLevel;
+  private final long[] depletions;
+  private final QuantileSketch maxDrawdowns;
+  private final QuantileSketch terminalBalances;
+  private long numOfPaths;
+  private double maxDrawdownSum;
+
+  public PathRiskMetrics(int numOfYears, double shortfallLevel, double relativeAccuracy) {
+    if (numOfYears <= 0 || !(shortfallLevel > 0 && shortfallLevel < 1)) {
+      throw new IllegalArgumentException(
+        "Unsupported risk metrics: " + numOfYears + " years, shortfall level " + shortfallLevel);
+    }
+    this.numOfYears = numOfYears;
+    this.shortfallLevel = shortfallLevel;
+    this.depletions = new long[numOfYears];
+    this.maxDrawdowns = new QuantileSketch(relativeAccuracy);
+    this.terminalBalances = new QuantileSketch(relativeAccuracy);
+  }
+
+  /**
+   * Accounts for one path's balances, {@code numOfYears} of them starting with the principal.
+   */
+  public void add(double[] balances) {
+    double peak = balances[0];
+    double maxDrawdown = 0;
+    int depletedYear = -1;
+    for (int year = 0; year < numOfYears; year++) {
+      double balance = balances[year];
+      if (balance > peak) {
+        peak = balance;
+      } else if (peak > 0 && peak - balance > maxDrawdown * peak) {
+        maxDrawdown = (peak - balance) / peak;
+      }
+      if (balance <= 0 && depletedYear < 0) {
+        depletedYear = year;
+      }
+    }
+
+    if (depletedYear >= 0) {
+      depletions[depletedYear]++;
+    }
+    maxDrawdown = Math.min(maxDrawdown, 1);
+    maxDrawdownSum += maxDrawdown;
+    maxDrawdowns.add(maxDrawdown);
+    terminalBalances.add(balances[numOfYears - 1]);
+    numOfPaths++;
+  }
+
+  public void merge(PathRiskMetrics other) {
+    if (other.numOfYears != numOfYears || other.shortfallLevel != shortfallLevel) {
+      throw new IllegalArgumentException("Cannot merge risk metrics of different runs");
+    }
+    for (int year = 0; year < numOfYears; year++) {
+      depletions[year] += other.depletions[year];
+    }
+    maxDrawdowns.merge(other.maxDrawdowns);
+    terminalBalances.merge(other.terminalBalances);
+    numOfPaths += other.numOfPaths;
+    maxDrawdownSum += other.maxDrawdownSum;
+  }
+
+  public int getNumOfYears() {
+    return numOfYears;
+  }
+
+  public long getNumOfPaths() {
+    return numOfPaths;
+  }
+
+  public double getShortfallLevel() {
+    return shortfallLevel;
+  }
+
+  /**
+   * Fraction of paths depleted by the end of the run.
+   */
+  public double getDepletionProbability() {
+    return getDepletionProbability(numOfYears);
+  }
+
+  /**
+   * Fraction of paths depleted by the given year, with {@code year} following the same convention as
+   * {@code StatsGenerator.calcPercentile}.
+   */
+  public double getDepletionProbability(int year) {
+    if (year < 1 || year > numOfYears) {
+      throw new IndexOutOfBoundsException("Year: " + year);
+    }
+    long depleted = 0;
+    for (int i = 0; i < year; i++) {
+      depleted += depletions[i];
+    }
+    return numOfPaths > 0 ? (double) depleted / numOfPaths : 0;
+  }
+
+  public double getMeanMaxDrawdown() {
+    return numOfPaths > 0 ? maxDrawdownSum / numOfPaths : 0;
+  }
+
+  public double getMaxDrawdownPercentile(double percentile) {
+    return maxDrawdowns.getPercentile(percentile);
+  }
+
+  /**
+   * Terminal balance at the {@code shortfallLevel} percentile.
+   */
+  public double getValueAtRisk() {
+    return terminalBalances.getPercentile(shortfallLevel);
+  }
+
+  /**
+   * Mean terminal balance of the worst {@code shortfallLevel} of paths.
+   */
+  public double getExpectedShortfall() {
+    return terminalBalances.getLowerMean((long) Math.ceil(numOfPaths * shortfallLevel));
+  }
+
+  public long getSizeInBytes() {
+    return 64 + 8L * numOfYears + maxDrawdowns.getSizeInBytes() + terminalBalances.getSizeInBytes();
+  }
+
+  public void writeTo(DataOutput out) throws IOException {
+    out.writeInt(numOfYears);
+    out.writeDouble(shortfallLevel);
+    out.writeLong(numOfPaths);
+    out.writeDouble(maxDrawdownSum);
+    for (long depleted : depletions) {
+      out.writeLong(depleted);
+    }
+    maxDrawdowns.writeTo(out);
+    terminalBalances.writeTo(out);
+  }
+
+  public static PathRiskMetrics readFrom(DataInput in) throws IOException {
+    int numOfYears = in.readInt();
+    double shortfallLevel = in.readDouble();
+    long numOfPaths = in.readLong();
+    double maxDrawdownSum = in.readDouble();
+    long[] depletions = new long[numOfYears];
+    for (int year = 0; year < numOfYears; year++) {
+      depletions[year] = in.readLong();
+    }
+    QuantileSketch maxDrawdowns = QuantileSketch.readFrom(in);
+    QuantileSketch terminalBalances = QuantileSketch.readFrom(in);
+
+    PathRiskMetrics metrics = new PathRiskMetrics(numOfYears, shortfallLevel, maxDrawdowns.getRelativeAccuracy());
+    System.arraycopy(depletions, 0, metrics.depletions, 0, numOfYears);
+    metrics.maxDrawdowns.merge(maxDrawdowns);
+    metrics.terminalBalances.merge(terminalBalances);
+    metrics.numOfPaths = numOfPaths;
+    metrics.maxDrawdownSum = maxDrawdownSum;
+    return metrics;
+  }
+}
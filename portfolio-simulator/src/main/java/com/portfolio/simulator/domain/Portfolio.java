@@ -12,8 +12,16 @@ public class Portfolio {
   private PortfolioType type;
   private BigDecimal balance;
   private TargetAllocation targetAllocation;
+  private AssetAllocation assetAllocation;
 
+  /**
+   * A portfolio of one of the predefined types; {@link PortfolioType#MULTI_ASSET} portfolios need their asset
+   * allocation and are rejected.
+   */
   public Portfolio(PortfolioType type, BigDecimal balance) {
+    if (type == PortfolioType.MULTI_ASSET) {
+      throw new IllegalArgumentException("A multi-asset portfolio needs an asset allocation");
+    }
     BigDecimal historicalReturn = BigDecimal.ZERO;
     BigDecimal historicalRisk = BigDecimal.ONE;
 
@@ -32,4 +40,29 @@ public class Portfolio {
       .historicalReturn(historicalReturn)
       .build();
   }
+
+  /**
+   * A portfolio with an explicit target allocation, such as one reloaded from a saved run. A
+   * {@link PortfolioType#MULTI_ASSET} portfolio built this way carries only the allocation summary and no asset
+   * allocation.
+   */
+  public Portfolio(PortfolioType type, BigDecimal balance, TargetAllocation targetAllocation) {
+    this.type = type;
+    this.balance = balance;
+    this.targetAllocation = targetAllocation;
+  }
+
+  /**
+   * A {@link PortfolioType#MULTI_ASSET} portfolio. Its target allocation summarises the asset allocation as the
+   * expected return and risk of the portfolio at its target weights.
+   */
+  public Portfolio(BigDecimal balance, AssetAllocation assetAllocation) {
+    this.type = PortfolioType.MULTI_ASSET;
+    this.balance = balance;
+    this.assetAllocation = assetAllocation;
+    this.targetAllocation = TargetAllocation.builder()
+      .historicalReturn(BigDecimal.valueOf(assetAllocation.getExpectedReturn()))
+      .historicalRisk(BigDecimal.valueOf(assetAllocation.getRisk()))
+      .build();
+  }
 }
@@ -2,5 +2,6 @@ package com.portfolio.simulator.domain;
 
 public enum PortfolioType {
   AGGRESSIVE,
-  VERY_CONSERVATIVE;
+  VERY_CONSERVATIVE,
+  MULTI_ASSET;
 }
@@ -0,0 +1,26 @@
+package com.portfolio.simulator.domain;
+
+import java.nio.DoubleBuffer;
+
+public interface ProjectionMatrix {
+
+  int getNumOfPaths();
+
+  int getNumOfYears();
+
+  double get(int path, int year);
+
+  void copyYear(int year, double[] dest, int destOffset);
+
+  void copyPath(int path, double[] dest, int destOffset);
+
+  /**
+   * Read-only view of one year's balances, indexed by path. Implementations that store a year contiguously return it
+   * without copying.
+   */
+  default DoubleBuffer viewYear(int year) {
+    double[] values = new double[getNumOfPaths()];
+    copyYear(year, values, 0);
+    return DoubleBuffer.wrap(values).asReadOnlyBuffer();
+  }
+}
@@ -0,0 +1,43 @@
+package com.portfolio.simulator.domain;
+
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Read-only {@code List<BigDecimal>} view over one path of a {@link ProjectionMatrix}, used to keep the legacy
+ * {@code projectionResults} map available without copying the matrix into boxed values up front.
+ */
+class ProjectionPathList extends AbstractList<BigDecimal> implements RandomAccess {
+
+  private final ProjectionMatrix matrix;
+  private final int path;
+
+  ProjectionPathList(ProjectionMatrix matrix, int path) {
+    this.matrix = matrix;
+    this.path = path;
+  }
+
+  @Override
+  public BigDecimal get(int year) {
+    if (year < 0 || year >= matrix.getNumOfYears()) {
+      throw new IndexOutOfBoundsException("Index: " + year + ", Size: " + matrix.getNumOfYears());
+    }
+    return BigDecimal.valueOf(matrix.get(path, year));
+  }
+
+  @Override
+  public int size() {
+    return matrix.getNumOfYears();
+  }
+
+  static HashMap<Integer, List<BigDecimal>> asProjectionResults(ProjectionMatrix matrix) {
+    HashMap<Integer, List<BigDecimal>> projectionResults = new HashMap<>();
+    for (int path = 0; path < matrix.getNumOfPaths(); path++) {
+      projectionResults.put(path, new ProjectionPathList(matrix, path));
+    }
+    return projectionResults;
+  }
+}
@@ -0,0 +1,244 @@
+package com.portfolio.simulator.domain;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Mergeable quantile sketch with a guaranteed relative error, in the style of DDSketch. Values are counted in
+ * logarithmically sized buckets {@code (gamma^(k-1), gamma^k]} where {@code gamma = (1 + a) / (1 - a)}, so any
+ * quantile is reported within a factor {@code a} (the relative accuracy) of the exact order statistic. Merging adds
+ * bucket counts, which makes the result independent of how values were split between sketches.
+ */
+public class QuantileSketch {
+
+  private static final int INITIAL_CAPACITY = 128;
+
+  private final double relativeAccuracy;
+  private final double gamma;
+  private final double logGamma;
+  private final double minIndexableValue;
+
+  private final BucketCounts positiveCounts = new BucketCounts();
+  private final BucketCounts negativeCounts = new BucketCounts();
+  private long zeroCount;
+  private long count;
+
+  public QuantileSketch(double relativeAccuracy) {
+    if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+      throw new IllegalArgumentException("Relative accuracy must be between 0 and 1: " + relativeAccuracy);
+    }
+    this.relativeAccuracy = relativeAccuracy;
+    this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+    this.logGamma = Math.log(gamma);
+    this.minIndexableValue = Double.MIN_NORMAL * gamma;
+  }
+
+  public double getRelativeAccuracy() {
+    return relativeAccuracy;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Approximate heap footprint, dominated by the bucket arrays.
+   */
+  public long getSizeInBytes() {
+    return 64 + 8L * (positiveCounts.counts.length + negativeCounts.counts.length);
+  }
+
+  public void add(double value) {
+    if (value > minIndexableValue) {
+      positiveCounts.increment(key(value), 1);
+    } else if (value < -minIndexableValue) {
+      negativeCounts.increment(key(-value), 1);
+    } else {
+      zeroCount++;
+    }
+    count++;
+  }
+
+  public void merge(QuantileSketch other) {
+    if (other.relativeAccuracy != relativeAccuracy) {
+      throw new IllegalArgumentException("Cannot merge sketches with different relative accuracies");
+    }
+    positiveCounts.mergeFrom(other.positiveCounts);
+    negativeCounts.mergeFrom(other.negativeCounts);
+    zeroCount += other.zeroCount;
+    count += other.count;
+  }
+
+  /**
+   * Returns the value of the given zero-based rank, using the same rank for a percentile as the exact statistics
+   * ({@code ceil(count * percentile) - 1}).
+   */
+  public double getValueAtRank(long rank) {
+    if (count == 0) {
+      throw new IllegalStateException("Sketch is empty");
+    }
+    long remaining = Math.min(Math.max(rank, 0), count - 1);
+
+    for (int key = negativeCounts.maxKey(); key >= negativeCounts.minKey(); key--) {
+      remaining -= negativeCounts.get(key);
+      if (remaining < 0) {
+        return -value(key);
+      }
+    }
+    remaining -= zeroCount;
+    if (remaining < 0) {
+      return 0;
+    }
+    for (int key = positiveCounts.minKey(); key <= positiveCounts.maxKey(); key++) {
+      remaining -= positiveCounts.get(key);
+      if (remaining < 0) {
+        return value(key);
+      }
+    }
+    return value(positiveCounts.maxKey());
+  }
+
+  public double getPercentile(double percentile) {
+    return getValueAtRank((long) Math.ceil(count * percentile) - 1);
+  }
+
+  /**
+   * Mean of the {@code numOfValues} lowest values, each taken at its bucket's value, so the mean of values of one sign
+   * is within the relative accuracy as well.
+   */
+  public double getLowerMean(long numOfValues) {
+    if (count == 0) {
+      throw new IllegalStateException("Sketch is empty");
+    }
+    long total = Math.min(Math.max(numOfValues, 1), count);
+    long remaining = total;
+    double sum = 0;
+
+    for (int key = negativeCounts.maxKey(); key >= negativeCounts.minKey() && remaining > 0; key--) {
+      long taken = Math.min(negativeCounts.get(key), remaining);
+      sum -= taken * value(key);
+      remaining -= taken;
+    }
+    remaining -= Math.min(zeroCount, remaining);
+    for (int key = positiveCounts.minKey(); key <= positiveCounts.maxKey() && remaining > 0; key++) {
+      long taken = Math.min(positiveCounts.get(key), remaining);
+      sum += taken * value(key);
+      remaining -= taken;
+    }
+    return sum / total;
+  }
+
+  /**
+   * Writes the sketch's accuracy and non-empty bucket range so that {@link #readFrom(DataInput)} restores an equal
+   * sketch, e.g. to merge sketches built in other processes.
+   */
+  public void writeTo(DataOutput out) throws IOException {
+    out.writeDouble(relativeAccuracy);
+    out.writeLong(zeroCount);
+    positiveCounts.writeTo(out);
+    negativeCounts.writeTo(out);
+  }
+
+  public static QuantileSketch readFrom(DataInput in) throws IOException {
+    QuantileSketch sketch = new QuantileSketch(in.readDouble());
+    sketch.zeroCount = in.readLong();
+    sketch.count = sketch.zeroCount + sketch.positiveCounts.readFrom(in) + sketch.negativeCounts.readFrom(in);
+    return sketch;
+  }
+
+  private int key(double value) {
+    return (int) Math.ceil(Math.log(value) / logGamma);
+  }
+
+  private double value(int key) {
+    return 2 * Math.exp(key * logGamma) / (gamma + 1);
+  }
+
+  private static final class BucketCounts {
+
+    private long[] counts = new long[0];
+    private int offset;
+    private int minKey = Integer.MAX_VALUE;
+    private int maxKey = Integer.MIN_VALUE;
+
+    int minKey() {
+      return minKey;
+    }
+
+    int maxKey() {
+      return maxKey;
+    }
+
+    long get(int key) {
+      return counts[key - offset];
+    }
+
+    void increment(int key, long delta) {
+      ensureCapacity(key);
+      counts[key - offset] += delta;
+    }
+
+    void mergeFrom(BucketCounts other) {
+      if (other.minKey > other.maxKey) {
+        return;
+      }
+      ensureCapacity(other.minKey);
+      ensureCapacity(other.maxKey);
+      for (int key = other.minKey; key <= other.maxKey; key++) {
+        counts[key - offset] += other.counts[key - other.offset];
+      }
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+      out.writeInt(minKey);
+      out.writeInt(maxKey);
+      for (int key = minKey; key <= maxKey; key++) {
+        out.writeLong(counts[key - offset]);
+      }
+    }
+
+    /**
+     * Adds the buckets written by {@link #writeTo(DataOutput)} and returns their total count.
+     */
+    long readFrom(DataInput in) throws IOException {
+      int fromKey = in.readInt();
+      int toKey = in.readInt();
+      long total = 0;
+      for (int key = fromKey; key <= toKey; key++) {
+        long delta = in.readLong();
+        if (delta < 0) {
+          throw new IOException("Corrupt quantile sketch");
+        }
+        if (delta > 0) {
+          increment(key, delta);
+          total += delta;
+        }
+      }
+      return total;
+    }
+
+    private void ensureCapacity(int key) {
+      if (minKey > maxKey) {
+        counts = new long[INITIAL_CAPACITY];
+        offset = key - INITIAL_CAPACITY / 2;
+        minKey = key;
+        maxKey = key;
+        return;
+      }
+      int newMinKey = Math.min(minKey, key);
+      int newMaxKey = Math.max(maxKey, key);
+      if (newMinKey < offset || newMaxKey >= offset + counts.length) {
+        int span = newMaxKey - newMinKey + 1;
+        int capacity = Math.max(counts.length * 2, span + INITIAL_CAPACITY);
+        int newOffset = newMinKey - (capacity - span) / 2;
+        long[] resized = new long[capacity];
+        System.arraycopy(counts, minKey - offset, resized, minKey - newOffset, maxKey - minKey + 1);
+        counts = resized;
+        offset = newOffset;
+      }
+      minKey = newMinKey;
+      maxKey = newMaxKey;
+    }
+  }
+}
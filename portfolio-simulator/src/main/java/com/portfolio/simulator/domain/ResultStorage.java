@@ -0,0 +1,21 @@
+package com.portfolio.simulator.domain;
+
+public enum ResultStorage {
+
+  /**
+   * Every balance of every path is kept in a {@link ProjectionMatrix}; percentiles are exact.
+   */
+  MATRIX,
+
+  /**
+   * Each year's balances are folded into a {@link QuantileSketch} as paths are generated and then discarded, so memory
+   * is independent of the number of paths. Percentiles are within the sketch's relative accuracy.
+   */
+  SKETCH,
+
+  /**
+   * Like {@link #MATRIX}, but the matrix is a {@link MappedProjectionMatrix} in a memory-mapped temporary file rather
+   * than on the heap, for runs whose balances do not fit in memory. Close the result to release the mapping.
+   */
+  MAPPED
+}
@@ -0,0 +1,40 @@
+package com.portfolio.simulator.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Where each path of a resumable run stopped: its last balance in the run's arithmetic and the position of its random
+ * stream, indexed by path. Kept by results of runs with {@link SimulationParams#isResumable()} so that they can be
+ * extended or grown without simulating the existing paths again.
+ *
+ * <p>{@code terminalValues} holds the balance for {@link NumericMode#DOUBLE} and the whole cents for
+ * {@link NumericMode#FIXED_POINT_CENTS}; {@link NumericMode#BIG_DECIMAL} keeps its exact balances in
+ * {@code terminalBalances} instead. Stream positions are {@code null} when the sampling strategy or normal source
+ * cannot continue a path, in which case the run can only be grown, not extended.
+ */
+@Getter
+@AllArgsConstructor
+@Builder
+public class ResumeState {
+  private SimulationParams params;
+  private double[] terminalValues;
+  private BigDecimal[] terminalBalances;
+  private long[] streamStates;
+  private double[] pendingDeviates;
+
+  public boolean isExtendable() {
+    return streamStates != null;
+  }
+
+  public long getSizeInBytes() {
+    long size = 0;
+    size += terminalValues != null ? 8L * terminalValues.length : 0;
+    size += terminalBalances != null ? 64L * terminalBalances.length : 0;
+    size += streamStates != null ? 16L * streamStates.length : 0;
+    return size;
+  }
+}
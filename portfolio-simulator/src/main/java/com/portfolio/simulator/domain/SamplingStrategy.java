@@ -0,0 +1,29 @@
+package com.portfolio.simulator.domain;
+
+public enum SamplingStrategy {
+
+  /**
+   * Independent pseudo-random normal draws for every path.
+   */
+  PSEUDO_RANDOM,
+
+  /**
+   * Paths come in pairs: the second path of each pair replays the first path's draws with their signs flipped.
+   */
+  ANTITHETIC,
+
+  /**
+   * A digitally shifted Sobol point per path, one dimension per simulated year, mapped to normals through the inverse
+   * normal CDF and assembled with a Brownian bridge so the leading dimensions drive each path's overall growth. Not
+   * available with {@link ConvergenceCriteria}.
+   */
+  SOBOL,
+
+  /**
+   * Latin hypercube: in every dimension the paths are spread over equal-probability strata, one path per stratum, with
+   * an independent random permutation of strata per dimension and a random position inside each stratum. Dimensions
+   * are assembled with the same Brownian bridge as {@link #SOBOL}, so the stratified leading dimension is each path's
+   * cumulative shock over the whole horizon.
+   */
+  STRATIFIED
+}
@@ -5,12 +5,38 @@ import lombok.Builder;
 import lombok.Getter;
 
 import java.math.BigDecimal;
+import java.util.List;
 
+/**
+ * {@code cashFlows} is a yearly schedule of contributions (positive) and withdrawals (negative) in today's money: entry
+ * {@code i} is added after the growth and inflation of simulated year {@code i + 1}, and years past the end of the list
+ * have none. A path whose balance reaches zero is depleted and stays at zero.
+ *
+ * <p>With {@code riskMetrics} every path also feeds the run's {@link PathRiskMetrics} as it is generated, so depletion,
+ * drawdown and shortfall statistics need no stored paths; {@code shortfallLevel} is the fraction of worst terminal
+ * balances its expected shortfall averages.
+ */
 @Getter
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class SimulationParams {
   private int numOfSimulations;
   private int yearsToForecast;
   private BigDecimal inflationRate;
+  private Long seed;
+  private boolean parallel;
+  @Builder.Default
+  private NumericMode numericMode = NumericMode.BIG_DECIMAL;
+  @Builder.Default
+  private SamplingStrategy samplingStrategy = SamplingStrategy.PSEUDO_RANDOM;
+  @Builder.Default
+  private ResultStorage resultStorage = ResultStorage.MATRIX;
+  @Builder.Default
+  private double sketchRelativeAccuracy = 0.005;
+  private ConvergenceCriteria convergenceCriteria;
+  private boolean resumable;
+  private List<BigDecimal> cashFlows;
+  private boolean riskMetrics;
+  @Builder.Default
+  private double shortfallLevel = 0.05;
 }
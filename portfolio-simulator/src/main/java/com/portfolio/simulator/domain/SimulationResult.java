@@ -1,5 +1,6 @@
 package com.portfolio.simulator.domain;
 
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -7,11 +8,86 @@ import lombok.Getter;
 import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
+import java.util.stream.IntStream;
 
 @Getter
 @AllArgsConstructor
 @Builder
-public class SimulationResult {
+public class SimulationResult implements AutoCloseable {
   private HashMap<Integer, List<BigDecimal>> projectionResults;
   private Portfolio portfolio;
+  private ProjectionMatrix projectionMatrix;
+  private QuantileSketch[] yearSketches;
+  private long seed;
+  private int numOfSimulations;
+  private ConvergenceReport convergenceReport;
+  private ResumeState resumeState;
+  private PathRiskMetrics riskMetrics;
+  @Getter(AccessLevel.NONE)
+  private final SortedYearCache sortedYears = new SortedYearCache();
+
+  public synchronized HashMap<Integer, List<BigDecimal>> getProjectionResults() {
+    if (projectionResults == null && projectionMatrix != null) {
+      projectionResults = ProjectionPathList.asProjectionResults(projectionMatrix);
+    }
+    return projectionResults;
+  }
+
+  /**
+   * Balances of the given year in ascending order, with {@code year} following the same convention as
+   * {@code StatsGenerator.calcPercentile}. Each year is sorted on first use and cached, so any percentile of it is then
+   * a lookup; threads racing on the same year may both sort it, and one copy wins. The returned array is shared and
+   * must not be modified.
+   */
+  public double[] getSortedYear(int year) {
+    if (projectionMatrix == null) {
+      throw new IllegalStateException("Result holds no projection matrix to sort");
+    }
+    if (year < 1 || year > projectionMatrix.getNumOfYears()) {
+      throw new IllegalArgumentException("Year out of range: " + year);
+    }
+    return sortedYears.get(projectionMatrix, year - 1);
+  }
+
+  /**
+   * Bytes held by the years {@link #getSortedYear} has sorted so far, on top of the result's own storage.
+   */
+  public long getSortedYearsSizeInBytes() {
+    return sortedYears.getSizeInBytes();
+  }
+
+  /**
+   * Sorts every year not sorted yet, on the common fork-join pool when {@code parallel}.
+   */
+  public void sortYears(boolean parallel) {
+    IntStream years = IntStream.rangeClosed(1, projectionMatrix.getNumOfYears());
+    (parallel ? years.parallel() : years).forEach(this::getSortedYear);
+  }
+
+  public boolean hasProjectionMatrix() {
+    return projectionMatrix != null && projectionMatrix.getNumOfPaths() > 0;
+  }
+
+  public boolean hasYearSketches() {
+    return yearSketches != null && yearSketches.length > 0 && yearSketches[0].getCount() > 0;
+  }
+
+  /**
+   * Relative error bound of the percentiles this result can answer: zero when every path is stored, the sketch
+   * accuracy otherwise.
+   */
+  public double getPercentileRelativeError() {
+    return hasProjectionMatrix() || !hasYearSketches() ? 0 : yearSketches[0].getRelativeAccuracy();
+  }
+
+  /**
+   * Releases off-heap storage held by the result, such as a {@link MappedProjectionMatrix}. Heap-backed results need no
+   * closing.
+   */
+  @Override
+  public void close() {
+    if (projectionMatrix instanceof MappedProjectionMatrix) {
+      ((MappedProjectionMatrix) projectionMatrix).close();
+    }
+  }
 }
@@ -0,0 +1,51 @@
+package com.portfolio.simulator.domain;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Years of a {@link ProjectionMatrix} sorted on first use, behind {@link SimulationResult#getSortedYear}.
+ */
+final class SortedYearCache {
+
+  private final AtomicLong sizeInBytes = new AtomicLong();
+  private volatile AtomicReferenceArray<double[]> columns;
+
+  /**
+   * {@code year} is zero-based here and must be in range.
+   */
+  double[] get(ProjectionMatrix projectionMatrix, int year) {
+    AtomicReferenceArray<double[]> columns = columns(projectionMatrix.getNumOfYears());
+    double[] column = columns.get(year);
+    if (column == null) {
+      column = new double[projectionMatrix.getNumOfPaths()];
+      projectionMatrix.copyYear(year, column, 0);
+      Arrays.sort(column);
+      if (columns.compareAndSet(year, null, column)) {
+        sizeInBytes.addAndGet((long) column.length * Double.BYTES);
+      } else {
+        column = columns.get(year);
+      }
+    }
+    return column;
+  }
+
+  long getSizeInBytes() {
+    return sizeInBytes.get();
+  }
+
+  private AtomicReferenceArray<double[]> columns(int numOfYears) {
+    AtomicReferenceArray<double[]> current = columns;
+    if (current == null) {
+      synchronized (this) {
+        current = columns;
+        if (current == null) {
+          current = new AtomicReferenceArray<>(numOfYears);
+          columns = current;
+        }
+      }
+    }
+    return current;
+  }
+}
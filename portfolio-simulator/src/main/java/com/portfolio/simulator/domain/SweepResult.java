@@ -0,0 +1,30 @@
+package com.portfolio.simulator.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Percentiles of every combination of portfolio, inflation rate and horizon in a sweep, in the order each was given.
+ * {@code values} is indexed {@code [portfolio][inflationRate][horizon][percentile]}; a horizon of {@code n} years
+ * reports the balances {@code StatsGenerator.calcPercentile} returns for year {@code n} of a run over {@code n} years.
+ */
+@Getter
+@AllArgsConstructor
+@Builder
+public class SweepResult {
+  private List<Portfolio> portfolios;
+  private List<BigDecimal> inflationRates;
+  private List<Integer> horizons;
+  private List<Double> percentiles;
+  private double[][][][] values;
+  private long seed;
+  private int numOfSimulations;
+
+  public double getPercentile(int portfolioIndex, int inflationRateIndex, int horizonIndex, int percentileIndex) {
+    return values[portfolioIndex][inflationRateIndex][horizonIndex][percentileIndex];
+  }
+}
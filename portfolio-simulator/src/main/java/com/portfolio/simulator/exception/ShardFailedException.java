@@ -0,0 +1,11 @@
+package com.portfolio.simulator.exception;
+
+/**
+ * A shard worker could not simulate its shard for a reason other than invalid parameters. Such a failure repeats on
+ * any worker, so the shard is not retried.
+ */
+public class ShardFailedException extends RuntimeException {
+  public ShardFailedException(String errorMsg) {
+    super(errorMsg);
+  }
+}
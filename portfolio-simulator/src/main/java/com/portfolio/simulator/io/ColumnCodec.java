@@ -0,0 +1,19 @@
+package com.portfolio.simulator.io;
+
+/**
+ * Encoding of each year column in the persisted format.
+ */
+public enum ColumnCodec {
+
+  /**
+   * Raw little-endian {@code double}s, eight bytes per path.
+   */
+  NONE,
+
+  /**
+   * The column is split into eight byte planes, plane k holding byte k of every value. Planes that compress, typically
+   * the sign, exponent and leading mantissa bytes that balances of one year share, are deflated at the fastest level;
+   * the rest are stored as they are, so random low-order bytes cost no deflate time on write or read.
+   */
+  DEFLATE
+}
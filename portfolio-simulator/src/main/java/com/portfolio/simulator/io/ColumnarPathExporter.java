@@ -0,0 +1,161 @@
+package com.portfolio.simulator.io;
+
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.SimulationParams;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exports paths in the persisted format with {@link ColumnCodec#NONE}, so {@link SimulationResultReader} opens an
+ * export like any saved run. Every column has a fixed size and a fixed place in the file, so writers gather a block of
+ * consecutive paths and write each year of it with one positioned write, in whatever order chunks complete. Memory
+ * stays at one block per thread however many paths are exported.
+ *
+ * <p>The run must have a fixed number of paths, and {@link #close()} fails unless every one of them was written.
+ */
+public class ColumnarPathExporter implements PathExporter {
+
+  static final int DEFAULT_BLOCK_SIZE = 4096;
+
+  private final FileChannel channel;
+  private final int blockSize;
+  private final List<ColumnarWriter> writers = new ArrayList<>();
+  private long columnsOffset = -1;
+  private int numOfPaths;
+  private int numOfYears;
+  private boolean closed;
+
+  public ColumnarPathExporter(Path file) throws IOException {
+    this(file, DEFAULT_BLOCK_SIZE);
+  }
+
+  ColumnarPathExporter(Path file, int blockSize) throws IOException {
+    this.channel = FileChannel.open(file,
+      StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+      StandardOpenOption.WRITE);
+    this.blockSize = blockSize;
+  }
+
+  @Override
+  public synchronized void begin(Portfolio portfolio, SimulationParams params, long seed) throws IOException {
+    if (columnsOffset >= 0) {
+      throw new IllegalStateException("Export has already begun");
+    }
+    if (params.getConvergenceCriteria() != null) {
+      throw new IllegalArgumentException("Only runs with a fixed number of paths can be exported to columns");
+    }
+    if ((long) params.getNumOfSimulations() * Double.BYTES > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many paths for one column: " + params.getNumOfSimulations());
+    }
+    numOfPaths = params.getNumOfSimulations();
+    numOfYears = params.getYearsToForecast();
+    byte[] header = ResultFormat.encodeHeader(portfolio, params, seed, numOfPaths, numOfYears, ColumnCodec.NONE);
+    writeFully(ByteBuffer.wrap(header), 0);
+    columnsOffset = header.length;
+  }
+
+  @Override
+  public synchronized Writer newWriter() {
+    if (columnsOffset < 0) {
+      throw new IllegalStateException("Export has not begun");
+    }
+    ByteBuffer block = ByteBuffer.allocateDirect(blockSize * numOfYears * Double.BYTES)
+      .order(ResultFormat.COLUMN_BYTE_ORDER);
+    ColumnarWriter writer = new ColumnarWriter(block);
+    writers.add(writer);
+    return writer;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (columnsOffset < 0) {
+        throw new IOException("Export never began");
+      }
+      long pathsWritten = 0;
+      for (ColumnarWriter writer : writers) {
+        writer.flush();
+        pathsWritten += writer.pathsWritten;
+      }
+      if (pathsWritten != numOfPaths) {
+        throw new IOException("Only " + pathsWritten + " of " + numOfPaths + " paths were written");
+      }
+
+      int columnLength = numOfPaths * Double.BYTES;
+      long footerOffset = columnsOffset + (long) numOfYears * columnLength;
+      ByteBuffer footer = ByteBuffer.allocate(numOfYears * (Long.BYTES + Integer.BYTES) + ResultFormat.TRAILER_SIZE);
+      for (int year = 0; year < numOfYears; year++) {
+        footer.putLong(columnsOffset + (long) year * columnLength);
+        footer.putInt(columnLength);
+      }
+      footer.putLong(footerOffset);
+      footer.putInt(ResultFormat.MAGIC);
+      ((Buffer) footer).flip();
+      writeFully(footer, footerOffset);
+    } finally {
+      channel.close();
+    }
+  }
+
+  private void writeFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+  /**
+   * Buffers consecutive paths in a year-major block, like the mapped result storage does, and writes the block's slice
+   * of each year column when the block is full or the next path does not follow on.
+   */
+  private final class ColumnarWriter implements Writer {
+
+    private final ByteBuffer block;
+    private int fromSim;
+    private int length;
+    private long pathsWritten;
+
+    ColumnarWriter(ByteBuffer block) {
+      this.block = block;
+    }
+
+    @Override
+    public void write(int sim, double[] balances) throws IOException {
+      if (sim < 0 || sim >= numOfPaths) {
+        throw new IndexOutOfBoundsException("Path: " + sim);
+      }
+      if (length == blockSize || (length > 0 && sim != fromSim + length)) {
+        flush();
+      }
+      if (length == 0) {
+        fromSim = sim;
+      }
+      for (int year = 0; year < numOfYears; year++) {
+        block.putDouble((year * blockSize + length) * Double.BYTES, balances[year]);
+      }
+      length++;
+    }
+
+    void flush() throws IOException {
+      ByteBuffer slice = block.duplicate();
+      for (int year = 0; year < numOfYears && length > 0; year++) {
+        int sliceStart = year * blockSize * Double.BYTES;
+        ((Buffer) slice).limit(sliceStart + length * Double.BYTES);
+        ((Buffer) slice).position(sliceStart);
+        writeFully(slice, columnsOffset + ((long) year * numOfPaths + fromSim) * Double.BYTES);
+      }
+      pathsWritten += length;
+      length = 0;
+    }
+  }
+}
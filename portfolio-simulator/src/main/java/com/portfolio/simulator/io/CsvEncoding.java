@@ -0,0 +1,64 @@
+package com.portfolio.simulator.io;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * ASCII formatting straight into a byte buffer, so exports never build a {@code String} or {@code BigDecimal} per
+ * value.
+ */
+final class CsvEncoding {
+
+  /**
+   * Longest value {@link #putCents} writes, reached by the {@link Double#toString} fallback.
+   */
+  static final int MAX_VALUE_LENGTH = 32;
+
+  private static final double MAX_CENTS_VALUE = 1e15;
+
+  private CsvEncoding() {
+  }
+
+  /**
+   * Writes {@code value} rounded to two decimals. Values too large for exact cents, infinities and NaN are written as
+   * {@link Double#toString} does.
+   */
+  static void putCents(ByteBuffer out, double value) {
+    if (!(Math.abs(value) < MAX_CENTS_VALUE)) {
+      putAscii(out, Double.toString(value));
+      return;
+    }
+    long cents = Math.round(value * 100);
+    if (cents < 0) {
+      out.put((byte) '-');
+      cents = -cents;
+    }
+    putLong(out, cents / 100);
+    out.put((byte) '.');
+    out.put((byte) ('0' + cents / 10 % 10));
+    out.put((byte) ('0' + cents % 10));
+  }
+
+  static void putLong(ByteBuffer out, long value) {
+    if (value < 0) {
+      putAscii(out, Long.toString(value));
+      return;
+    }
+    int length = 1;
+    for (long rest = value / 10; rest > 0; rest /= 10) {
+      length++;
+    }
+    int end = out.position() + length;
+    for (int i = end - 1; i >= end - length; i--) {
+      out.put(i, (byte) ('0' + value % 10));
+      value /= 10;
+    }
+    ((Buffer) out).position(end);
+  }
+
+  static void putAscii(ByteBuffer out, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      out.put((byte) value.charAt(i));
+    }
+  }
+}
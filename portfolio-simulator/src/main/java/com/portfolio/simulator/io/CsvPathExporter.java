@@ -0,0 +1,123 @@
+package com.portfolio.simulator.io;
+
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.SimulationParams;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exports paths as {@code path,year_1,...,year_n} rows with balances rounded to cents. Each writer formats rows into
+ * its own direct buffer and appends the buffer to the file whenever it fills, so memory stays at one buffer per thread
+ * however many paths are exported.
+ *
+ * <p>Rows of one chunk of paths stay in path order, but chunks of a parallel run are appended as they complete; sort on
+ * the {@code path} column where order matters.
+ */
+public class CsvPathExporter implements PathExporter {
+
+  static final int DEFAULT_BUFFER_SIZE = 1 << 18;
+
+  private final FileChannel channel;
+  private final int bufferSize;
+  private final List<CsvWriter> writers = new ArrayList<>();
+  private int numOfYears = -1;
+  private boolean closed;
+
+  public CsvPathExporter(Path file) throws IOException {
+    this(file, DEFAULT_BUFFER_SIZE);
+  }
+
+  CsvPathExporter(Path file, int bufferSize) throws IOException {
+    this.channel = FileChannel.open(file,
+      StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    this.bufferSize = bufferSize;
+  }
+
+  @Override
+  public synchronized void begin(Portfolio portfolio, SimulationParams params, long seed) throws IOException {
+    if (numOfYears >= 0) {
+      throw new IllegalStateException("Export has already begun");
+    }
+    numOfYears = params.getYearsToForecast();
+    StringBuilder header = new StringBuilder("path");
+    for (int year = 1; year <= numOfYears; year++) {
+      header.append(",year_").append(year);
+    }
+    header.append('\n');
+    ByteBuffer buffer = ByteBuffer.allocate(header.length());
+    CsvEncoding.putAscii(buffer, header.toString());
+    ((Buffer) buffer).flip();
+    append(buffer);
+  }
+
+  @Override
+  public synchronized Writer newWriter() {
+    if (numOfYears < 0) {
+      throw new IllegalStateException("Export has not begun");
+    }
+    int maxRowLength = CsvEncoding.MAX_VALUE_LENGTH * (numOfYears + 1);
+    CsvWriter writer = new CsvWriter(ByteBuffer.allocateDirect(Math.max(bufferSize, maxRowLength)), maxRowLength);
+    writers.add(writer);
+    return writer;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      for (CsvWriter writer : writers) {
+        writer.flush();
+      }
+    } finally {
+      channel.close();
+    }
+  }
+
+  private void append(ByteBuffer buffer) throws IOException {
+    synchronized (channel) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+
+  private final class CsvWriter implements Writer {
+
+    private final ByteBuffer buffer;
+    private final int maxRowLength;
+
+    CsvWriter(ByteBuffer buffer, int maxRowLength) {
+      this.buffer = buffer;
+      this.maxRowLength = maxRowLength;
+    }
+
+    @Override
+    public void write(int sim, double[] balances) throws IOException {
+      if (buffer.remaining() < maxRowLength) {
+        flush();
+      }
+      CsvEncoding.putLong(buffer, sim);
+      for (int year = 0; year < numOfYears; year++) {
+        buffer.put((byte) ',');
+        CsvEncoding.putCents(buffer, balances[year]);
+      }
+      buffer.put((byte) '\n');
+    }
+
+    void flush() throws IOException {
+      ((Buffer) buffer).flip();
+      append(buffer);
+      ((Buffer) buffer).clear();
+    }
+  }
+}
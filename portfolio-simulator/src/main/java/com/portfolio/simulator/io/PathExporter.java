@@ -0,0 +1,28 @@
+package com.portfolio.simulator.io;
+
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.SimulationParams;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Receives the paths of a run as they are simulated, so a run can be exported without ever being held in memory. The
+ * simulator calls {@link #begin} once and then writes through one {@link Writer} per thread; writers buffer a bounded
+ * amount each and {@link #close()} flushes what they still hold and completes the file.
+ */
+public interface PathExporter extends Closeable {
+
+  void begin(Portfolio portfolio, SimulationParams params, long seed) throws IOException;
+
+  Writer newWriter();
+
+  /**
+   * Used by one thread at a time; {@code balances} holds one balance per year and is reused once {@link #write}
+   * returns.
+   */
+  interface Writer {
+
+    void write(int sim, double[] balances) throws IOException;
+  }
+}
@@ -0,0 +1,69 @@
+package com.portfolio.simulator.io;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes a fan chart, indexed {@code [year - 1][percentile]} as the statistics generator returns it, as
+ * {@code year,percentile,value} rows with values rounded to cents.
+ */
+public final class PercentileTableWriter {
+
+  private static final String HEADER = "year,percentile,value\n";
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private PercentileTableWriter() {
+  }
+
+  public static void write(Path file, List<Double> percentiles, double[][] fanChart) throws IOException {
+    try (FileChannel channel = FileChannel.open(file,
+      StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      write(channel, percentiles, fanChart);
+    }
+  }
+
+  /**
+   * Streams the rows to {@code channel} through a fixed buffer; the channel is left open.
+   */
+  public static void write(WritableByteChannel channel, List<Double> percentiles, double[][] fanChart)
+    throws IOException {
+    String[] percentileLabels = new String[percentiles.size()];
+    for (int i = 0; i < percentileLabels.length; i++) {
+      percentileLabels[i] = percentiles.get(i).toString();
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    CsvEncoding.putAscii(buffer, HEADER);
+    for (int year = 1; year <= fanChart.length; year++) {
+      if (fanChart[year - 1].length != percentileLabels.length) {
+        throw new IllegalArgumentException("Year " + year + " does not hold one value per percentile");
+      }
+      for (int i = 0; i < percentileLabels.length; i++) {
+        if (buffer.remaining() < 2 * CsvEncoding.MAX_VALUE_LENGTH + percentileLabels[i].length()) {
+          flush(channel, buffer);
+        }
+        CsvEncoding.putLong(buffer, year);
+        buffer.put((byte) ',');
+        CsvEncoding.putAscii(buffer, percentileLabels[i]);
+        buffer.put((byte) ',');
+        CsvEncoding.putCents(buffer, fanChart[year - 1][i]);
+        buffer.put((byte) '\n');
+      }
+    }
+    flush(channel, buffer);
+  }
+
+  private static void flush(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+    ((Buffer) buffer).flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    ((Buffer) buffer).clear();
+  }
+}
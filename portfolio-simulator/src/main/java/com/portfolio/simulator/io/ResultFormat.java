@@ -0,0 +1,275 @@
+package com.portfolio.simulator.io;
+
+import com.portfolio.simulator.domain.ConvergenceCriteria;
+import com.portfolio.simulator.domain.NumericMode;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.ResultStorage;
+import com.portfolio.simulator.domain.SamplingStrategy;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.TargetAllocation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Layout shared by {@link SimulationResultWriter} and {@link SimulationResultReader}:
+ *
+ * <pre>
+ *   header   magic, version, portfolio, params, seed, numOfPaths, numOfYears, codec
+ *   columns  one encoded block per year, year 1 first
+ *   metrics  optional {@link com.portfolio.simulator.domain.PathRiskMetrics}, between the last column and the footer
+ *   footer   per year: offset and encoded length of its block
+ *   trailer  footer offset, magic
+ * </pre>
+ *
+ * Header, metrics and footer use {@link DataOutput} encoding; column values are little-endian {@code double}s before
+ * encoding. Readers locate columns through the footer alone, so those that predate the metrics block skip it.
+ */
+final class ResultFormat {
+
+  static final int MAGIC = 0x5053494d;
+  static final short VERSION = 2;
+  static final short MIN_VERSION = 1;
+  static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+  static final ByteOrder COLUMN_BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+  private static final byte PLANE_STORED = 0;
+  private static final byte PLANE_DEFLATED = 1;
+  private static final int PLANE_HEADER_SIZE = 1 + Integer.BYTES;
+  private static final int PROBE_SIZE = 4096;
+  private static final double MIN_PROBE_RATIO = 0.97;
+
+  private ResultFormat() {
+  }
+
+  static byte[] encodeHeader(Portfolio portfolio,
+                             SimulationParams params,
+                             long seed,
+                             int numOfPaths,
+                             int numOfYears,
+                             ColumnCodec codec) throws IOException {
+    ByteArrayOutputStream header = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(header);
+    out.writeInt(MAGIC);
+    out.writeShort(VERSION);
+    writePortfolio(out, portfolio);
+    writeParams(out, params);
+    out.writeLong(seed);
+    out.writeInt(numOfPaths);
+    out.writeInt(numOfYears);
+    out.writeUTF(codec.name());
+    out.flush();
+    return header.toByteArray();
+  }
+
+  static void writePortfolio(DataOutput out, Portfolio portfolio) throws IOException {
+    out.writeUTF(portfolio.getType().name());
+    out.writeUTF(portfolio.getBalance().toString());
+    out.writeUTF(portfolio.getTargetAllocation().getHistoricalReturn().toString());
+    out.writeUTF(portfolio.getTargetAllocation().getHistoricalRisk().toString());
+  }
+
+  static Portfolio readPortfolio(DataInput in) throws IOException {
+    PortfolioType type = PortfolioType.valueOf(in.readUTF());
+    BigDecimal balance = new BigDecimal(in.readUTF());
+    TargetAllocation targetAllocation = TargetAllocation.builder()
+      .historicalReturn(new BigDecimal(in.readUTF()))
+      .historicalRisk(new BigDecimal(in.readUTF()))
+      .build();
+    return new Portfolio(type, balance, targetAllocation);
+  }
+
+  /**
+   * {@code resumable} is not stored, since a saved run keeps no resume state: a reloaded run cannot be extended and
+   * always reads back as not resumable.
+   */
+  static void writeParams(DataOutput out, SimulationParams params) throws IOException {
+    out.writeInt(params.getNumOfSimulations());
+    out.writeInt(params.getYearsToForecast());
+    out.writeUTF(params.getInflationRate().toString());
+    out.writeBoolean(params.getSeed() != null);
+    out.writeLong(params.getSeed() != null ? params.getSeed() : 0);
+    out.writeBoolean(params.isParallel());
+    out.writeUTF(params.getNumericMode().name());
+    out.writeUTF(params.getSamplingStrategy().name());
+    out.writeUTF(params.getResultStorage().name());
+    out.writeDouble(params.getSketchRelativeAccuracy());
+
+    ConvergenceCriteria criteria = params.getConvergenceCriteria();
+    out.writeBoolean(criteria != null);
+    if (criteria != null) {
+      out.writeInt(criteria.getTargetPercentiles().size());
+      for (Double percentile : criteria.getTargetPercentiles()) {
+        out.writeDouble(percentile);
+      }
+      out.writeDouble(criteria.getTolerance());
+      out.writeDouble(criteria.getConfidenceLevel());
+      out.writeInt(criteria.getBatchSize());
+      out.writeInt(criteria.getMinBatches());
+      out.writeInt(criteria.getMaxSimulations());
+      out.writeInt(criteria.getYear() != null ? criteria.getYear() : 0);
+    }
+
+    List<BigDecimal> cashFlows = params.getCashFlows();
+    out.writeBoolean(cashFlows != null);
+    if (cashFlows != null) {
+      out.writeInt(cashFlows.size());
+      for (BigDecimal cashFlow : cashFlows) {
+        out.writeUTF(cashFlow.toString());
+      }
+    }
+    out.writeBoolean(params.isRiskMetrics());
+    out.writeDouble(params.getShortfallLevel());
+  }
+
+  /**
+   * Reads params written in format {@code version}; those of version 1 had no cash flows or risk metrics.
+   */
+  static SimulationParams readParams(DataInput in, short version) throws IOException {
+    SimulationParams.SimulationParamsBuilder params = SimulationParams.builder()
+      .numOfSimulations(in.readInt())
+      .yearsToForecast(in.readInt())
+      .inflationRate(new BigDecimal(in.readUTF()));
+    boolean seeded = in.readBoolean();
+    long seed = in.readLong();
+    params
+      .seed(seeded ? seed : null)
+      .parallel(in.readBoolean())
+      .numericMode(NumericMode.valueOf(in.readUTF()))
+      .samplingStrategy(SamplingStrategy.valueOf(in.readUTF()))
+      .resultStorage(ResultStorage.valueOf(in.readUTF()))
+      .sketchRelativeAccuracy(in.readDouble());
+
+    if (in.readBoolean()) {
+      int numOfPercentiles = in.readInt();
+      List<Double> targetPercentiles = new ArrayList<>(numOfPercentiles);
+      for (int i = 0; i < numOfPercentiles; i++) {
+        targetPercentiles.add(in.readDouble());
+      }
+      ConvergenceCriteria.ConvergenceCriteriaBuilder criteria = ConvergenceCriteria.builder()
+        .targetPercentiles(targetPercentiles)
+        .tolerance(in.readDouble())
+        .confidenceLevel(in.readDouble())
+        .batchSize(in.readInt())
+        .minBatches(in.readInt())
+        .maxSimulations(in.readInt());
+      int year = in.readInt();
+      params.convergenceCriteria(criteria.year(year != 0 ? year : null).build());
+    }
+
+    if (version >= 2) {
+      if (in.readBoolean()) {
+        int numOfCashFlows = in.readInt();
+        List<BigDecimal> cashFlows = new ArrayList<>(numOfCashFlows);
+        for (int i = 0; i < numOfCashFlows; i++) {
+          cashFlows.add(new BigDecimal(in.readUTF()));
+        }
+        params.cashFlows(cashFlows);
+      }
+      params
+        .riskMetrics(in.readBoolean())
+        .shortfallLevel(in.readDouble());
+    }
+    return params.build();
+  }
+
+  static byte[] encode(ColumnCodec codec, ByteBuffer column, Deflater deflater) {
+    byte[] raw = new byte[column.remaining()];
+    column.get(raw);
+    if (codec == ColumnCodec.NONE) {
+      return raw;
+    }
+
+    int numOfValues = raw.length / Double.BYTES;
+    byte[] plane = new byte[numOfValues];
+    ByteBuffer encoded = ByteBuffer.allocate(Double.BYTES * (PLANE_HEADER_SIZE + numOfValues));
+    for (int b = 0; b < Double.BYTES; b++) {
+      for (int value = 0; value < numOfValues; value++) {
+        plane[value] = raw[value * Double.BYTES + b];
+      }
+      int probeLength = Math.min(numOfValues, PROBE_SIZE);
+      int deflatedLength = deflate(deflater, plane, probeLength, encoded) < probeLength * MIN_PROBE_RATIO
+        ? deflate(deflater, plane, numOfValues, encoded)
+        : numOfValues;
+      if (deflatedLength < numOfValues) {
+        encoded.put(PLANE_DEFLATED).putInt(deflatedLength);
+        encoded.position(encoded.position() + deflatedLength);
+      } else {
+        encoded.put(PLANE_STORED).putInt(numOfValues).put(plane);
+      }
+    }
+    return Arrays.copyOf(encoded.array(), encoded.position());
+  }
+
+  /**
+   * Deflates {@code plane[0..length)} just past the plane header at {@code out}'s position, without moving it, and
+   * returns the deflated length or {@code length} when deflating does not make it smaller.
+   */
+  private static int deflate(Deflater deflater, byte[] plane, int length, ByteBuffer out) {
+    deflater.reset();
+    deflater.setInput(plane, 0, length);
+    deflater.finish();
+    int offset = out.position() + PLANE_HEADER_SIZE;
+    int deflated = 0;
+    while (!deflater.finished() && deflated < length) {
+      deflated += deflater.deflate(out.array(), offset + deflated, length - deflated);
+    }
+    return deflater.finished() ? deflated : length;
+  }
+
+  /**
+   * Reassembles a {@link ColumnCodec#DEFLATE} block into {@code raw}.
+   */
+  static void decode(ByteBuffer encoded, byte[] raw, Inflater inflater) throws IOException {
+    int numOfValues = raw.length / Double.BYTES;
+    byte[] plane = new byte[numOfValues];
+    try {
+      for (int b = 0; b < Double.BYTES; b++) {
+        byte kind = encoded.get();
+        int length = encoded.getInt();
+        if (length < 0 || length > encoded.remaining()) {
+          throw new IOException("Corrupt column block");
+        }
+        if (kind == PLANE_STORED && length == numOfValues) {
+          encoded.get(plane);
+        } else if (kind == PLANE_DEFLATED) {
+          inflater.reset();
+          inflater.setInput(encoded.array(), encoded.arrayOffset() + encoded.position(), length);
+          int inflated = 0;
+          while (inflated < numOfValues && !inflater.finished()) {
+            int n = inflater.inflate(plane, inflated, numOfValues - inflated);
+            if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+              break;
+            }
+            inflated += n;
+          }
+          if (inflated != numOfValues) {
+            throw new IOException("Truncated column block");
+          }
+          encoded.position(encoded.position() + length);
+        } else {
+          throw new IOException("Corrupt column block");
+        }
+        for (int value = 0; value < numOfValues; value++) {
+          raw[value * Double.BYTES + b] = plane[value];
+        }
+      }
+    } catch (DataFormatException | BufferUnderflowException e) {
+      throw new IOException("Corrupt column block", e);
+    }
+  }
+}
@@ -0,0 +1,203 @@
+package com.portfolio.simulator.io;
+
+import com.portfolio.simulator.domain.DenseProjectionMatrix;
+import com.portfolio.simulator.domain.PathRiskMetrics;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.ProjectionMatrix;
+import com.portfolio.simulator.domain.QuantileSketch;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.exception.ShardFailedException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Messages exchanged with a shard worker over a byte stream, such as a worker process's standard input and output. A
+ * request carries the portfolio and params in the encoding of the persisted format's header, plus the seed, the range
+ * of paths and the column codec to answer with. The response carries the shard's year columns as the persisted
+ * format's column blocks or its per-year sketches, followed by its risk metrics if it has them, or the message of a
+ * rejected or failed request.
+ */
+public final class ShardMessages {
+
+  private static final byte REQUEST = 1;
+  private static final byte COLUMNS = 2;
+  private static final byte SKETCHES = 3;
+  private static final byte INVALID = 4;
+  private static final byte FAILED = 5;
+
+  private ShardMessages() {
+  }
+
+  @Getter
+  @AllArgsConstructor
+  public static final class Request {
+    private final Portfolio portfolio;
+    private final SimulationParams params;
+    private final long seed;
+    private final int fromSim;
+    private final int toSim;
+    private final ColumnCodec codec;
+  }
+
+  public static void writeRequest(DataOutputStream out, Request request) throws IOException {
+    out.writeByte(REQUEST);
+    ResultFormat.writePortfolio(out, request.getPortfolio());
+    ResultFormat.writeParams(out, request.getParams());
+    out.writeLong(request.getSeed());
+    out.writeInt(request.getFromSim());
+    out.writeInt(request.getToSim());
+    out.writeUTF(request.getCodec().name());
+    out.flush();
+  }
+
+  /**
+   * Returns {@code null} when the stream ends cleanly between requests.
+   */
+  public static Request readRequest(DataInputStream in) throws IOException {
+    int kind = in.read();
+    if (kind < 0) {
+      return null;
+    }
+    if (kind != REQUEST) {
+      throw new IOException("Not a shard request");
+    }
+    return new Request(
+      ResultFormat.readPortfolio(in),
+      ResultFormat.readParams(in, ResultFormat.VERSION),
+      in.readLong(),
+      in.readInt(),
+      in.readInt(),
+      ColumnCodec.valueOf(in.readUTF()));
+  }
+
+  /**
+   * Answers with a shard's sketches when it has them, and with its year columns otherwise.
+   */
+  public static void writeShard(DataOutputStream out, SimulationResult shard, ColumnCodec codec) throws IOException {
+    if (shard.hasYearSketches()) {
+      QuantileSketch[] yearSketches = shard.getYearSketches();
+      out.writeByte(SKETCHES);
+      out.writeInt(yearSketches.length);
+      for (QuantileSketch sketch : yearSketches) {
+        sketch.writeTo(out);
+      }
+    } else {
+      ProjectionMatrix matrix = shard.getProjectionMatrix();
+      out.writeByte(COLUMNS);
+      out.writeInt(matrix.getNumOfPaths());
+      out.writeInt(matrix.getNumOfYears());
+      out.writeUTF(codec.name());
+      ByteBuffer columnBuffer = ByteBuffer.allocate(matrix.getNumOfPaths() * Double.BYTES)
+        .order(ResultFormat.COLUMN_BYTE_ORDER);
+      double[] column = new double[matrix.getNumOfPaths()];
+      Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      try {
+        for (int year = 0; year < matrix.getNumOfYears(); year++) {
+          matrix.copyYear(year, column, 0);
+          columnBuffer.clear();
+          columnBuffer.asDoubleBuffer().put(column);
+          byte[] encoded = ResultFormat.encode(codec, columnBuffer, deflater);
+          out.writeInt(encoded.length);
+          out.write(encoded);
+        }
+      } finally {
+        deflater.end();
+      }
+    }
+    PathRiskMetrics riskMetrics = shard.getRiskMetrics();
+    out.writeBoolean(riskMetrics != null);
+    if (riskMetrics != null) {
+      riskMetrics.writeTo(out);
+    }
+    out.flush();
+  }
+
+  public static void writeInvalid(DataOutputStream out, String message) throws IOException {
+    out.writeByte(INVALID);
+    out.writeUTF(message);
+    out.flush();
+  }
+
+  public static void writeFailed(DataOutputStream out, String message) throws IOException {
+    out.writeByte(FAILED);
+    out.writeUTF(message);
+    out.flush();
+  }
+
+  /**
+   * Reads a response into a result holding either a heap matrix or per-year sketches. A rejected request is rethrown
+   * as the {@link InvalidSimulationParamsException} the worker raised, and a failed one as a
+   * {@link ShardFailedException} carrying the worker's error.
+   */
+  public static SimulationResult readShard(DataInputStream in) throws IOException, InvalidSimulationParamsException {
+    byte kind = in.readByte();
+    if (kind == INVALID) {
+      throw new InvalidSimulationParamsException(in.readUTF());
+    }
+    if (kind == FAILED) {
+      throw new ShardFailedException(in.readUTF());
+    }
+    if (kind == SKETCHES) {
+      QuantileSketch[] yearSketches = new QuantileSketch[in.readInt()];
+      for (int year = 0; year < yearSketches.length; year++) {
+        yearSketches[year] = QuantileSketch.readFrom(in);
+      }
+      return SimulationResult.builder()
+        .yearSketches(yearSketches)
+        .numOfSimulations(yearSketches.length > 0 ? (int) yearSketches[0].getCount() : 0)
+        .riskMetrics(readRiskMetrics(in))
+        .build();
+    }
+    if (kind != COLUMNS) {
+      throw new IOException("Not a shard response");
+    }
+
+    int numOfPaths = in.readInt();
+    int numOfYears = in.readInt();
+    ColumnCodec codec = ColumnCodec.valueOf(in.readUTF());
+    if (numOfPaths < 0 || numOfYears < 0) {
+      throw new IOException("Corrupt shard response");
+    }
+    DenseProjectionMatrix matrix = new DenseProjectionMatrix(numOfPaths, numOfYears);
+    byte[] raw = new byte[numOfPaths * Double.BYTES];
+    double[] column = new double[numOfPaths];
+    Inflater inflater = new Inflater();
+    try {
+      for (int year = 0; year < numOfYears; year++) {
+        int length = in.readInt();
+        if (length < 0 || (codec == ColumnCodec.NONE && length != raw.length)) {
+          throw new IOException("Corrupt column block");
+        }
+        byte[] encoded = new byte[length];
+        in.readFully(encoded);
+        if (codec == ColumnCodec.NONE) {
+          System.arraycopy(encoded, 0, raw, 0, length);
+        } else {
+          ResultFormat.decode(ByteBuffer.wrap(encoded), raw, inflater);
+        }
+        ByteBuffer.wrap(raw).order(ResultFormat.COLUMN_BYTE_ORDER).asDoubleBuffer().get(column);
+        matrix.setYear(year, column, 0);
+      }
+    } finally {
+      inflater.end();
+    }
+    return SimulationResult.builder()
+      .projectionMatrix(matrix)
+      .numOfSimulations(numOfPaths)
+      .riskMetrics(readRiskMetrics(in))
+      .build();
+  }
+
+  private static PathRiskMetrics readRiskMetrics(DataInputStream in) throws IOException {
+    return in.readBoolean() ? PathRiskMetrics.readFrom(in) : null;
+  }
+}
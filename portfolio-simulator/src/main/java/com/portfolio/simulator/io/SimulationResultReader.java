@@ -0,0 +1,196 @@
+package com.portfolio.simulator.io;
+
+import com.portfolio.simulator.domain.DenseProjectionMatrix;
+import com.portfolio.simulator.domain.PathRiskMetrics;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Inflater;
+
+/**
+ * Reads files written by {@link SimulationResultWriter}. Opening reads only the header and the column index, and each
+ * year's column is then read with a single positioned read, so one year can be loaded without touching the rest of the
+ * file. Reads do not share state and may run concurrently.
+ */
+public class SimulationResultReader implements Closeable {
+
+  private final FileChannel channel;
+  private final Portfolio portfolio;
+  private final SimulationParams params;
+  private final long seed;
+  private final int numOfPaths;
+  private final int numOfYears;
+  private final ColumnCodec codec;
+  private final long[] columnOffsets;
+  private final int[] columnLengths;
+  private final PathRiskMetrics riskMetrics;
+
+  private SimulationResultReader(FileChannel channel) throws IOException {
+    this.channel = channel;
+
+    ByteBuffer trailer = read(channel.size() - ResultFormat.TRAILER_SIZE, ResultFormat.TRAILER_SIZE);
+    long footerOffset = trailer.getLong();
+    if (trailer.getInt() != ResultFormat.MAGIC) {
+      throw new IOException("Not a simulation result file");
+    }
+
+    long footerLength = channel.size() - ResultFormat.TRAILER_SIZE - footerOffset;
+    if (footerLength < 0 || footerLength % (Long.BYTES + Integer.BYTES) != 0) {
+      throw new IOException("Corrupt simulation result file");
+    }
+    int indexedYears = (int) (footerLength / (Long.BYTES + Integer.BYTES));
+    ByteBuffer footer = read(footerOffset, (int) footerLength);
+    this.columnOffsets = new long[indexedYears];
+    this.columnLengths = new int[indexedYears];
+    for (int year = 0; year < indexedYears; year++) {
+      columnOffsets[year] = footer.getLong();
+      columnLengths[year] = footer.getInt();
+    }
+
+    long headerLength = indexedYears > 0 ? columnOffsets[0] : footerOffset;
+    DataInputStream header = new DataInputStream(new ByteArrayInputStream(read(0, (int) headerLength).array()));
+    if (header.readInt() != ResultFormat.MAGIC) {
+      throw new IOException("Not a simulation result file");
+    }
+    short version = header.readShort();
+    if (version < ResultFormat.MIN_VERSION || version > ResultFormat.VERSION) {
+      throw new IOException("Unsupported simulation result format version: " + version);
+    }
+    this.portfolio = ResultFormat.readPortfolio(header);
+    this.params = ResultFormat.readParams(header, version);
+    this.seed = header.readLong();
+    this.numOfPaths = header.readInt();
+    this.numOfYears = header.readInt();
+    this.codec = ColumnCodec.valueOf(header.readUTF());
+    if (numOfYears != indexedYears) {
+      throw new IOException("Corrupt simulation result file");
+    }
+
+    long metricsOffset = numOfYears > 0 ? columnOffsets[numOfYears - 1] + columnLengths[numOfYears - 1] : footerOffset;
+    if (metricsOffset < footerOffset) {
+      ByteBuffer metrics = read(metricsOffset, (int) (footerOffset - metricsOffset));
+      this.riskMetrics = PathRiskMetrics.readFrom(new DataInputStream(new ByteArrayInputStream(metrics.array())));
+    } else {
+      this.riskMetrics = null;
+    }
+  }
+
+  public static SimulationResultReader open(Path file) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      return new SimulationResultReader(channel);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  public Portfolio getPortfolio() {
+    return portfolio;
+  }
+
+  public SimulationParams getParams() {
+    return params;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public int getNumOfPaths() {
+    return numOfPaths;
+  }
+
+  public int getNumOfYears() {
+    return numOfYears;
+  }
+
+  public ColumnCodec getCodec() {
+    return codec;
+  }
+
+  /**
+   * The saved run's risk metrics, or {@code null} if it was saved without them.
+   */
+  public PathRiskMetrics getRiskMetrics() {
+    return riskMetrics;
+  }
+
+  /**
+   * Loads one year's balances, with {@code year} following the same convention as
+   * {@code ResultsUtil.retrieveResultsByYear}.
+   */
+  public double[] readYear(int year) throws IOException {
+    double[] values = new double[numOfPaths];
+    readYear(year, values, 0);
+    return values;
+  }
+
+  public void readYear(int year, double[] dest, int destOffset) throws IOException {
+    if (year < 1 || year > numOfYears) {
+      throw new IllegalArgumentException("Year out of range: " + year);
+    }
+    ByteBuffer column = read(columnOffsets[year - 1], columnLengths[year - 1]);
+    if (codec != ColumnCodec.NONE) {
+      byte[] raw = new byte[numOfPaths * Double.BYTES];
+      Inflater inflater = new Inflater();
+      try {
+        ResultFormat.decode(column, raw, inflater);
+      } finally {
+        inflater.end();
+      }
+      column = ByteBuffer.wrap(raw);
+    } else if (column.remaining() != numOfPaths * Double.BYTES) {
+      throw new IOException("Corrupt column block");
+    }
+    column.order(ResultFormat.COLUMN_BYTE_ORDER).asDoubleBuffer().get(dest, destOffset, numOfPaths);
+  }
+
+  /**
+   * Loads every year into a heap-backed result equivalent to the one that was saved.
+   */
+  public SimulationResult readResult() throws IOException {
+    DenseProjectionMatrix matrix = new DenseProjectionMatrix(numOfPaths, numOfYears);
+    double[] column = new double[numOfPaths];
+    for (int year = 1; year <= numOfYears; year++) {
+      readYear(year, column, 0);
+      matrix.setYear(year - 1, column, 0);
+    }
+    return SimulationResult.builder()
+      .portfolio(portfolio)
+      .projectionMatrix(matrix)
+      .seed(seed)
+      .numOfSimulations(numOfPaths)
+      .riskMetrics(riskMetrics)
+      .build();
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private ByteBuffer read(long position, int length) throws IOException {
+    if (position < 0 || length < 0 || position + length > channel.size()) {
+      throw new IOException("Corrupt simulation result file");
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("Unexpected end of simulation result file");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+}
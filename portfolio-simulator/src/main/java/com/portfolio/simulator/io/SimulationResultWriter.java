@@ -0,0 +1,144 @@
+package com.portfolio.simulator.io;
+
+import com.portfolio.simulator.domain.PathRiskMetrics;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.ProjectionMatrix;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+
+/**
+ * Streams a run to the persisted format one year column at a time, so a run never has to be held in memory as a
+ * whole to be saved. Columns must be written in year order, followed by the run's risk metrics if it has any;
+ * {@link #close()} writes the index that lets {@link SimulationResultReader} load any single year.
+ */
+public class SimulationResultWriter implements Closeable {
+
+  private final DataOutputStream out;
+  private final int numOfPaths;
+  private final int numOfYears;
+  private final ColumnCodec codec;
+  private final long[] columnOffsets;
+  private final int[] columnLengths;
+  private final ByteBuffer columnBuffer;
+  private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+  private long position;
+  private int yearsWritten;
+  private boolean riskMetricsWritten;
+  private boolean closed;
+
+  public SimulationResultWriter(OutputStream out,
+                                Portfolio portfolio,
+                                SimulationParams params,
+                                long seed,
+                                int numOfPaths,
+                                int numOfYears,
+                                ColumnCodec codec) throws IOException {
+    this.out = new DataOutputStream(out);
+    this.numOfPaths = numOfPaths;
+    this.numOfYears = numOfYears;
+    this.codec = codec;
+    this.columnOffsets = new long[numOfYears];
+    this.columnLengths = new int[numOfYears];
+    this.columnBuffer = ByteBuffer.allocate(numOfPaths * Double.BYTES).order(ResultFormat.COLUMN_BYTE_ORDER);
+
+    byte[] header = ResultFormat.encodeHeader(portfolio, params, seed, numOfPaths, numOfYears, codec);
+    this.out.write(header);
+    position = header.length;
+  }
+
+  /**
+   * Saves a whole result that holds a {@link ProjectionMatrix}, together with the parameters that produced it and
+   * its risk metrics, if any.
+   */
+  public static void write(Path file, SimulationResult result, SimulationParams params, ColumnCodec codec)
+    throws IOException {
+    if (!result.hasProjectionMatrix()) {
+      throw new IllegalArgumentException("Only results with a projection matrix can be persisted");
+    }
+    ProjectionMatrix matrix = result.getProjectionMatrix();
+    double[] column = new double[matrix.getNumOfPaths()];
+    try (SimulationResultWriter writer = new SimulationResultWriter(
+      new BufferedOutputStream(Files.newOutputStream(file), 1 << 16),
+      result.getPortfolio(), params, result.getSeed(), matrix.getNumOfPaths(), matrix.getNumOfYears(), codec)) {
+      for (int year = 0; year < matrix.getNumOfYears(); year++) {
+        matrix.copyYear(year, column, 0);
+        writer.writeYear(column, 0);
+      }
+      if (result.getRiskMetrics() != null) {
+        writer.writeRiskMetrics(result.getRiskMetrics());
+      }
+    }
+  }
+
+  /**
+   * Appends the next year's column of {@code numOfPaths} balances starting at {@code values[offset]}.
+   */
+  public void writeYear(double[] values, int offset) throws IOException {
+    if (yearsWritten == numOfYears) {
+      throw new IllegalStateException("All " + numOfYears + " years have already been written");
+    }
+    columnBuffer.clear();
+    columnBuffer.asDoubleBuffer().put(values, offset, numOfPaths);
+    byte[] encoded = ResultFormat.encode(codec, columnBuffer, deflater);
+
+    out.write(encoded);
+    columnOffsets[yearsWritten] = position;
+    columnLengths[yearsWritten] = encoded.length;
+    position += encoded.length;
+    yearsWritten++;
+  }
+
+  /**
+   * Appends the run's risk metrics; allowed once, after the last year's column.
+   */
+  public void writeRiskMetrics(PathRiskMetrics riskMetrics) throws IOException {
+    if (yearsWritten != numOfYears) {
+      throw new IllegalStateException("Risk metrics follow the last of the " + numOfYears + " years");
+    }
+    if (riskMetricsWritten) {
+      throw new IllegalStateException("Risk metrics have already been written");
+    }
+    ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    DataOutputStream metricsOut = new DataOutputStream(encoded);
+    riskMetrics.writeTo(metricsOut);
+    metricsOut.flush();
+
+    encoded.writeTo(out);
+    position += encoded.size();
+    riskMetricsWritten = true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (yearsWritten != numOfYears) {
+        throw new IOException("Only " + yearsWritten + " of " + numOfYears + " years were written");
+      }
+      long footerOffset = position;
+      for (int year = 0; year < numOfYears; year++) {
+        out.writeLong(columnOffsets[year]);
+        out.writeInt(columnLengths[year]);
+      }
+      out.writeLong(footerOffset);
+      out.writeInt(ResultFormat.MAGIC);
+    } finally {
+      deflater.end();
+      out.close();
+    }
+  }
+}
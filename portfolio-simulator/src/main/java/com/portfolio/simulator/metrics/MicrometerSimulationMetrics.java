@@ -0,0 +1,96 @@
+package com.portfolio.simulator.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes {@link SimulationMetrics} to a Micrometer {@link MeterRegistry}. Every meter is registered up front, so
+ * recording is a lock-free update of an existing meter.
+ */
+public class MicrometerSimulationMetrics implements SimulationMetrics {
+
+  static final String PREFIX = "portfolio.simulator.";
+
+  private final EnumMap<SimulationPhase, Timer> phaseTimers = new EnumMap<>(SimulationPhase.class);
+  private final Timer runTimer;
+  private final Counter paths;
+  private final DistributionSummary throughput;
+  private final DistributionSummary allocatedBytes;
+  private final DistributionSummary resultSize;
+  private final Counter invalidSimulationParams;
+  private final Counter invalidStatsGenerationParams;
+
+  public MicrometerSimulationMetrics(MeterRegistry registry) {
+    for (SimulationPhase phase : SimulationPhase.values()) {
+      phaseTimers.put(phase, Timer.builder(PREFIX + "phase")
+        .description("Time spent in each phase of simulation and percentile generation")
+        .tag("phase", phase.name().toLowerCase())
+        .register(registry));
+    }
+    this.runTimer = Timer.builder(PREFIX + "run")
+      .description("Wall-clock time of a simulation run")
+      .register(registry);
+    this.paths = Counter.builder(PREFIX + "paths")
+      .description("Simulated paths")
+      .baseUnit("paths")
+      .register(registry);
+    this.throughput = DistributionSummary.builder(PREFIX + "throughput")
+      .description("Paths simulated per second of run time")
+      .baseUnit("paths/s")
+      .register(registry);
+    this.allocatedBytes = DistributionSummary.builder(PREFIX + "allocated")
+      .description("Heap allocated by a simulation run")
+      .baseUnit("bytes")
+      .register(registry);
+    this.resultSize = DistributionSummary.builder(PREFIX + "result.size")
+      .description("Size of the balances held by a simulation result")
+      .baseUnit("bytes")
+      .register(registry);
+    this.invalidSimulationParams = Counter.builder(PREFIX + "invalid")
+      .description("Calls rejected for invalid parameters")
+      .tag("exception", "InvalidSimulationParamsException")
+      .register(registry);
+    this.invalidStatsGenerationParams = Counter.builder(PREFIX + "invalid")
+      .description("Calls rejected for invalid parameters")
+      .tag("exception", "InvalidStatsGenerationParamsException")
+      .register(registry);
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return true;
+  }
+
+  @Override
+  public void recordPhase(SimulationPhase phase, long nanos) {
+    phaseTimers.get(phase).record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void recordRun(long numOfPaths, long nanos, long allocatedBytes, long resultSizeInBytes) {
+    runTimer.record(nanos, TimeUnit.NANOSECONDS);
+    paths.increment(numOfPaths);
+    if (nanos > 0) {
+      throughput.record(numOfPaths * 1e9 / nanos);
+    }
+    if (allocatedBytes >= 0) {
+      this.allocatedBytes.record(allocatedBytes);
+    }
+    resultSize.record(resultSizeInBytes);
+  }
+
+  @Override
+  public void recordInvalidSimulationParams() {
+    invalidSimulationParams.increment();
+  }
+
+  @Override
+  public void recordInvalidStatsGenerationParams() {
+    invalidStatsGenerationParams.increment();
+  }
+}
@@ -0,0 +1,45 @@
+package com.portfolio.simulator.metrics;
+
+/**
+ * Instrumentation hooks called by the simulator and statistics generator. Callers check {@link #isEnabled()} once
+ * per run or chunk before taking any timestamps, so {@link #NOOP} costs a single branch on the hot path.
+ */
+public interface SimulationMetrics {
+
+  SimulationMetrics NOOP = new SimulationMetrics() {
+    @Override
+    public boolean isEnabled() {
+      return false;
+    }
+
+    @Override
+    public void recordPhase(SimulationPhase phase, long nanos) {
+    }
+
+    @Override
+    public void recordRun(long numOfPaths, long nanos, long allocatedBytes, long resultSizeInBytes) {
+    }
+
+    @Override
+    public void recordInvalidSimulationParams() {
+    }
+
+    @Override
+    public void recordInvalidStatsGenerationParams() {
+    }
+  };
+
+  boolean isEnabled();
+
+  void recordPhase(SimulationPhase phase, long nanos);
+
+  /**
+   * {@code allocatedBytes} is the heap allocated by every thread that worked on the run, or {@code -1} when the JVM
+   * cannot measure it.
+   */
+  void recordRun(long numOfPaths, long nanos, long allocatedBytes, long resultSizeInBytes);
+
+  void recordInvalidSimulationParams();
+
+  void recordInvalidStatsGenerationParams();
+}
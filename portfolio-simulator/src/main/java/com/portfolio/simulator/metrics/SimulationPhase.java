@@ -0,0 +1,30 @@
+package com.portfolio.simulator.metrics;
+
+public enum SimulationPhase {
+
+  /**
+   * Generating the standard-normal shocks of each path.
+   */
+  DRAW_GENERATION,
+
+  /**
+   * Turning shocks into yearly balances and handing them to the result storage.
+   */
+  COMPOUNDING,
+
+  /**
+   * Building the {@code SimulationResult} once every path is done, e.g. merging sketches or concatenating batches.
+   */
+  RESULT_ASSEMBLY,
+
+  /**
+   * Copying one year's balances out of a result for the statistics generator, or sorting it the first time a cached
+   * year is queried.
+   */
+  EXTRACTION,
+
+  /**
+   * Selecting the requested percentiles from an extracted year.
+   */
+  SELECTION
+}
@@ -0,0 +1,83 @@
+package com.portfolio.simulator.random;
+
+/**
+ * Brownian bridge construction over unit time steps. The first input fixes the end point of the walk and later inputs
+ * fill in midpoints, so when the inputs come from a low-discrepancy sequence its best-distributed leading dimensions
+ * decide the overall shape of the path. The output is again a vector of independent standard normal increments.
+ */
+public final class BrownianBridge {
+
+  private final int steps;
+  private final int[] bridgeIndex;
+  private final int[] leftIndex;
+  private final int[] rightIndex;
+  private final double[] leftWeight;
+  private final double[] rightWeight;
+  private final double[] stdDev;
+
+  public BrownianBridge(int steps) {
+    this.steps = steps;
+    this.bridgeIndex = new int[steps];
+    this.leftIndex = new int[steps];
+    this.rightIndex = new int[steps];
+    this.leftWeight = new double[steps];
+    this.rightWeight = new double[steps];
+    this.stdDev = new double[steps];
+    if (steps == 0) {
+      return;
+    }
+
+    int[] map = new int[steps];
+    map[steps - 1] = 1;
+    bridgeIndex[0] = steps - 1;
+    stdDev[0] = Math.sqrt(steps);
+    int j = 0;
+    for (int i = 1; i < steps; i++) {
+      while (map[j] != 0) {
+        j++;
+      }
+      int k = j;
+      while (map[k] == 0) {
+        k++;
+      }
+      int l = j + ((k - 1 - j) >> 1);
+      map[l] = i;
+      bridgeIndex[i] = l;
+      leftIndex[i] = j;
+      rightIndex[i] = k;
+      double left = j;
+      double middle = l + 1;
+      double right = k + 1;
+      leftWeight[i] = (right - middle) / (right - left);
+      rightWeight[i] = (middle - left) / (right - left);
+      stdDev[i] = Math.sqrt((middle - left) * (right - middle) / (right - left));
+      j = k + 1;
+      if (j >= steps) {
+        j = 0;
+      }
+    }
+  }
+
+  /**
+   * Reads {@code steps} standard normals from {@code input} starting at {@code inputOffset} and writes the resulting
+   * increments to {@code output} starting at {@code outputOffset}. {@code path} is scratch space of length
+   * {@code steps}.
+   */
+  public void transform(double[] input, int inputOffset, double[] path, double[] output, int outputOffset) {
+    if (steps == 0) {
+      return;
+    }
+    path[steps - 1] = stdDev[0] * input[inputOffset];
+    for (int i = 1; i < steps; i++) {
+      int j = leftIndex[i];
+      int k = rightIndex[i];
+      int l = bridgeIndex[i];
+      double start = j != 0 ? leftWeight[i] * path[j - 1] : 0;
+      path[l] = start + rightWeight[i] * path[k] + stdDev[i] * input[inputOffset + i];
+    }
+    output[outputOffset] = path[0];
+    for (int i = 1; i < steps; i++) {
+      output[outputOffset + i] = path[i] - path[i - 1];
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package com.portfolio.simulator.random;
+
+import java.util.function.Supplier;
+
+/**
+ * Unsynchronised source of standard-normal draws. Simulation paths reseed their own instance per path, so a source is
+ * used by one thread at a time and never needs to be shared.
+ */
+public interface NormalSource {
+
+  void reset(long seed);
+
+  double next();
+
+  default void fill(double[] values, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      values[i] = next();
+    }
+  }
+
+  /**
+   * Whether {@link #getState()}, {@link #getPendingDeviate()} and {@link #restore} are supported, so a path can be
+   * continued later without replaying its draws.
+   */
+  default boolean isResumable() {
+    return false;
+  }
+
+  default long getState() {
+    throw new UnsupportedOperationException("Normal source cannot be resumed");
+  }
+
+  /**
+   * A deviate generated but not yet returned, {@code NaN} if there is none.
+   */
+  default double getPendingDeviate() {
+    throw new UnsupportedOperationException("Normal source cannot be resumed");
+  }
+
+  default void restore(long state, double pendingDeviate) {
+    throw new UnsupportedOperationException("Normal source cannot be resumed");
+  }
+
+  /**
+   * Marsaglia's polar method over {@link SplitMix64}, the default. Produces the same draws as earlier versions for a
+   * given seed.
+   */
+  static Supplier<NormalSource> polar() {
+    return PolarNormalSource::new;
+  }
+
+  /**
+   * Marsaglia and Tsang's ziggurat over {@link SplitMix64}. Draws come from the same distribution but differ from
+   * {@link #polar()} for a given seed.
+   */
+  static Supplier<NormalSource> ziggurat() {
+    return ZigguratNormalSource::new;
+  }
+}
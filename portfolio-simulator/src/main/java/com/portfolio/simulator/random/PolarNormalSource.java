@@ -0,0 +1,36 @@
+package com.portfolio.simulator.random;
+
+public final class PolarNormalSource implements NormalSource {
+
+  private final SplitMix64 random = new SplitMix64(0);
+
+  @Override
+  public void reset(long seed) {
+    random.reset(seed);
+  }
+
+  @Override
+  public double next() {
+    return random.nextGaussian();
+  }
+
+  @Override
+  public boolean isResumable() {
+    return true;
+  }
+
+  @Override
+  public long getState() {
+    return random.getState();
+  }
+
+  @Override
+  public double getPendingDeviate() {
+    return random.getPendingGaussian();
+  }
+
+  @Override
+  public void restore(long state, double pendingDeviate) {
+    random.restore(state, pendingDeviate);
+  }
+}
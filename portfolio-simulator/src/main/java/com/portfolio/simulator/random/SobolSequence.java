@@ -0,0 +1,132 @@
+package com.portfolio.simulator.random;
+
+/**
+ * Digitally shifted Sobol sequence. Dimension {@code d > 0} uses the d-th primitive polynomial over GF(2), found by
+ * search in increasing degree, with odd initial direction numbers drawn from a fixed SplitMix64 stream; dimension 0
+ * is the van der Corput sequence. Each dimension is XOR-scrambled with a random 32-bit shift derived from the seed,
+ * which keeps the net structure while making the estimator unbiased. Points are computed directly from their index,
+ * so any index range can be generated independently.
+ */
+public final class SobolSequence {
+
+  private static final int BITS = 32;
+  private static final double SCALE = 0x1.0p-32;
+  private static final long DIRECTION_SEED = 0x50B01L;
+
+  private final int[][] directions;
+  private final int[] shifts;
+
+  public SobolSequence(int dimensions, long seed) {
+    this.directions = new int[dimensions][BITS];
+    this.shifts = new int[dimensions];
+
+    SplitMix64 initialNumbers = new SplitMix64(DIRECTION_SEED);
+    int polynomial = 1;
+    for (int dimension = 0; dimension < dimensions; dimension++) {
+      int[] v = directions[dimension];
+      if (dimension == 0) {
+        for (int k = 0; k < BITS; k++) {
+          v[k] = 1 << (BITS - 1 - k);
+        }
+      } else {
+        polynomial = nextPrimitivePolynomial(polynomial);
+        initialiseDirections(v, polynomial, initialNumbers);
+      }
+      shifts[dimension] = (int) SplitMix64.streamSeed(seed, dimension);
+    }
+  }
+
+  public int getDimensions() {
+    return directions.length;
+  }
+
+  /**
+   * Coordinate of point {@code index} in {@code dimension}, as a value strictly inside (0, 1).
+   */
+  public double get(long index, int dimension) {
+    long gray = index ^ (index >>> 1);
+    int[] v = directions[dimension];
+    int x = shifts[dimension];
+    for (int k = 0; gray != 0; k++, gray >>>= 1) {
+      if ((gray & 1) != 0) {
+        x ^= v[k];
+      }
+    }
+    return ((x & 0xFFFFFFFFL) + 0.5) * SCALE;
+  }
+
+  private static void initialiseDirections(int[] v, int polynomial, SplitMix64 initialNumbers) {
+    int degree = 31 - Integer.numberOfLeadingZeros(polynomial);
+    long[] m = new long[BITS];
+    for (int k = 0; k < Math.min(degree, BITS); k++) {
+      m[k] = (initialNumbers.nextLong() >>> (63 - k)) | 1;
+    }
+    for (int k = degree; k < BITS; k++) {
+      long value = m[k - degree] ^ (m[k - degree] << degree);
+      for (int j = 1; j < degree; j++) {
+        if (((polynomial >>> (degree - j)) & 1) != 0) {
+          value ^= m[k - j] << j;
+        }
+      }
+      m[k] = value;
+    }
+    for (int k = 0; k < BITS; k++) {
+      v[k] = (int) (m[k] << (BITS - 1 - k));
+    }
+  }
+
+  private static int nextPrimitivePolynomial(int previous) {
+    for (int candidate = previous + 1; ; candidate++) {
+      if (isPrimitive(candidate)) {
+        return candidate;
+      }
+    }
+  }
+
+  private static boolean isPrimitive(int polynomial) {
+    int degree = 31 - Integer.numberOfLeadingZeros(polynomial);
+    if (degree < 1 || (polynomial & 1) == 0) {
+      return false;
+    }
+    long order = (1L << degree) - 1;
+    if (multiplyPower(2, order, polynomial, degree) != 1) {
+      return false;
+    }
+    for (long factor = 2; factor * factor <= order; factor++) {
+      if (order % factor == 0
+        && (multiplyPower(2, order / factor, polynomial, degree) == 1
+        || multiplyPower(2, factor, polynomial, degree) == 1)) {
+        return false;
+      }
+    }
+    return degree == 1 || multiplyPower(2, 1, polynomial, degree) != 1;
+  }
+
+  private static int multiplyPower(int base, long exponent, int polynomial, int degree) {
+    int result = 1;
+    int power = base;
+    while (exponent > 0) {
+      if ((exponent & 1) != 0) {
+        result = multiplyModulo(result, power, polynomial, degree);
+      }
+      power = multiplyModulo(power, power, polynomial, degree);
+      exponent >>>= 1;
+    }
+    return result;
+  }
+
+  private static int multiplyModulo(int a, int b, int polynomial, int degree) {
+    int result = 0;
+    while (b != 0) {
+      if ((b & 1) != 0) {
+        result ^= a;
+      }
+      b >>>= 1;
+      a <<= 1;
+      if ((a >>> degree & 1) != 0) {
+        a ^= polynomial;
+      }
+    }
+    return result;
+  }
+}
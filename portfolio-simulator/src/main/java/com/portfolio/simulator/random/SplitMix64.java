@@ -0,0 +1,82 @@
+package com.portfolio.simulator.random;
+
+/**
+ * Unsynchronised SplitMix64 generator, producing the same sequence as {@link java.util.SplittableRandom} for a given
+ * seed. Simulation paths each get their own instance state derived from a master seed via
+ * {@link #streamSeed(long, long)}, so a path draws the same numbers no matter which thread or chunk simulates it.
+ */
+public final class SplitMix64 {
+
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+  private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+  private long state;
+  private double nextNextGaussian;
+  private boolean haveNextNextGaussian;
+
+  public SplitMix64(long seed) {
+    reset(seed);
+  }
+
+  public void reset(long seed) {
+    this.state = seed;
+    this.haveNextNextGaussian = false;
+  }
+
+  /**
+   * Current position in the stream; together with {@link #getPendingGaussian()} it restores the generator exactly.
+   */
+  public long getState() {
+    return state;
+  }
+
+  /**
+   * The second deviate of the last polar pair when it has not been returned yet, {@code NaN} otherwise.
+   */
+  public double getPendingGaussian() {
+    return haveNextNextGaussian ? nextNextGaussian : Double.NaN;
+  }
+
+  public void restore(long state, double pendingGaussian) {
+    this.state = state;
+    this.haveNextNextGaussian = !Double.isNaN(pendingGaussian);
+    this.nextNextGaussian = pendingGaussian;
+  }
+
+  public long nextLong() {
+    return mix64(state += GOLDEN_GAMMA);
+  }
+
+  public double nextDouble() {
+    return (nextLong() >>> 11) * DOUBLE_UNIT;
+  }
+
+  public double nextGaussian() {
+    if (haveNextNextGaussian) {
+      haveNextNextGaussian = false;
+      return nextNextGaussian;
+    }
+    double v1;
+    double v2;
+    double s;
+    do {
+      v1 = 2 * nextDouble() - 1;
+      v2 = 2 * nextDouble() - 1;
+      s = v1 * v1 + v2 * v2;
+    } while (s >= 1 || s == 0);
+    double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+    nextNextGaussian = v2 * multiplier;
+    haveNextNextGaussian = true;
+    return v1 * multiplier;
+  }
+
+  public static long streamSeed(long masterSeed, long stream) {
+    return mix64(masterSeed + (stream + 1) * GOLDEN_GAMMA);
+  }
+
+  public static long mix64(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+}
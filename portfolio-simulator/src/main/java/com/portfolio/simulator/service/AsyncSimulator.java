@@ -0,0 +1,15 @@
+package com.portfolio.simulator.service;
+
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncSimulator {
+  CompletableFuture<SimulationResult> runAsync(Portfolio portfolio, SimulationParams params, ProgressListener listener);
+
+  default CompletableFuture<SimulationResult> runAsync(Portfolio portfolio, SimulationParams params) {
+    return runAsync(portfolio, params, null);
+  }
+}
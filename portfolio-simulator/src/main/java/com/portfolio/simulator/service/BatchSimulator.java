@@ -0,0 +1,13 @@
+package com.portfolio.simulator.service;
+
+import com.portfolio.simulator.domain.BatchSimulationResult;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+
+import java.util.List;
+
+public interface BatchSimulator {
+  BatchSimulationResult runBatch(List<Portfolio> portfolios, SimulationParams params, List<Double> percentiles)
+    throws InvalidSimulationParamsException;
+}
@@ -0,0 +1,14 @@
+package com.portfolio.simulator.service;
+
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.io.PathExporter;
+
+import java.io.IOException;
+
+public interface ExportingSimulator {
+  SimulationResult export(Portfolio portfolio, SimulationParams params, PathExporter exporter)
+    throws InvalidSimulationParamsException, IOException;
+}
@@ -0,0 +1,13 @@
+package com.portfolio.simulator.service;
+
+import com.portfolio.simulator.domain.FanChartPreview;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+
+import java.util.List;
+
+public interface PreviewSimulator {
+  FanChartPreview preview(Portfolio portfolio, SimulationParams params, List<Double> percentiles)
+    throws InvalidSimulationParamsException;
+}
@@ -0,0 +1,11 @@
+package com.portfolio.simulator.service;
+
+/**
+ * Receives the number of paths simulated so far after each chunk of a run. Parallel runs report from several threads
+ * at once, so implementations must be thread-safe; counts from one run never decrease, but calls may arrive out of
+ * order. {@code totalPaths} is the upper bound of an adaptive run, which may stop before reaching it.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+  void onProgress(long completedPaths, long totalPaths);
+}
@@ -0,0 +1,10 @@
+package com.portfolio.simulator.service;
+
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+
+public interface ResumableSimulator {
+  SimulationResult extend(SimulationResult result, int extraYears) throws InvalidSimulationParamsException;
+
+  SimulationResult addPaths(SimulationResult result, int numOfPaths) throws InvalidSimulationParamsException;
+}
@@ -0,0 +1,11 @@
+package com.portfolio.simulator.service;
+
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+
+public interface ShardSimulator {
+  SimulationResult runShard(Portfolio portfolio, SimulationParams params, long seed, int fromSim, int toSim)
+    throws InvalidSimulationParamsException;
+}
@@ -2,6 +2,22 @@ package com.portfolio.simulator.service;
 
 import com.portfolio.simulator.exception.InvalidStatsGenerationParamsException;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface StatsGenerator<T, K> {
   T calcPercentile(double percent, int year, K simulationResult) throws InvalidStatsGenerationParamsException;
+
+  /**
+   * Percentiles in the order of {@code percents}; by default one {@link #calcPercentile} each, which implementations
+   * that can select several percentiles in one pass override.
+   */
+  default List<T> calcPercentiles(List<Double> percents, int year, K simulationResult)
+    throws InvalidStatsGenerationParamsException {
+    List<T> percentiles = new ArrayList<>(percents.size());
+    for (double percent : percents) {
+      percentiles.add(calcPercentile(percent, year, simulationResult));
+    }
+    return percentiles;
+  }
 }
@@ -0,0 +1,17 @@
+package com.portfolio.simulator.service;
+
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SweepResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface SweepSimulator {
+  SweepResult runSweep(List<Portfolio> portfolios,
+                       SimulationParams params,
+                       List<BigDecimal> inflationRates,
+                       List<Integer> horizons,
+                       List<Double> percentiles) throws InvalidSimulationParamsException;
+}
@@ -0,0 +1,203 @@
+package com.portfolio.simulator.service.impl;
+
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.service.AsyncSimulator;
+import com.portfolio.simulator.service.ProgressListener;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs simulations asynchronously with admission control: at most {@code maxConcurrentRuns} run at once, up to
+ * {@code maxQueuedRuns} more wait for a slot, and anything beyond that completes immediately with a
+ * {@link RejectedExecutionException} rather than piling up behind the running work.
+ *
+ * <p>Cancelling the returned future stops the run before its next chunk of paths. A queued run that is cancelled gives
+ * up its place in the queue at once and never starts, and a thread already waiting for a slot on its behalf is
+ * interrupted and freed. A result that finishes after its future was cancelled is closed.
+ */
+public class AsyncMonteCarloSimulator implements AsyncSimulator, AutoCloseable {
+
+  private static final String REJECTED_MSG = "Simulation capacity exceeded - %d running, %d queued";
+
+  private final MonteCarloSimulator simulator;
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+  private final int maxConcurrentRuns;
+  private final int maxQueuedRuns;
+  private final Semaphore admitted;
+  private final Semaphore running;
+  private final AtomicInteger numOfRunning = new AtomicInteger();
+  private final AtomicLong rejectedCount = new AtomicLong();
+
+  /**
+   * Uses an executor of its own: a thread per run on virtual threads where the JDK provides them, and otherwise a
+   * fixed pool of {@code maxConcurrentRuns} daemon threads.
+   */
+  public AsyncMonteCarloSimulator(MonteCarloSimulator simulator, int maxConcurrentRuns, int maxQueuedRuns) {
+    this(simulator, defaultExecutor(maxConcurrentRuns), true, maxConcurrentRuns, maxQueuedRuns);
+  }
+
+  /**
+   * Uses the given executor, which is not shut down on {@link #close()}. It should accept at least
+   * {@code maxConcurrentRuns + maxQueuedRuns} tasks without rejecting them.
+   */
+  public AsyncMonteCarloSimulator(MonteCarloSimulator simulator,
+                                  ExecutorService executor,
+                                  int maxConcurrentRuns,
+                                  int maxQueuedRuns) {
+    this(simulator, executor, false, maxConcurrentRuns, maxQueuedRuns);
+  }
+
+  private AsyncMonteCarloSimulator(MonteCarloSimulator simulator,
+                                   ExecutorService executor,
+                                   boolean ownsExecutor,
+                                   int maxConcurrentRuns,
+                                   int maxQueuedRuns) {
+    if (maxConcurrentRuns < 1 || maxQueuedRuns < 0) {
+      throw new IllegalArgumentException(
+        "Unsupported concurrency limits: " + maxConcurrentRuns + " running, " + maxQueuedRuns + " queued");
+    }
+    this.simulator = simulator;
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+    this.maxConcurrentRuns = maxConcurrentRuns;
+    this.maxQueuedRuns = maxQueuedRuns;
+    this.admitted = new Semaphore(maxConcurrentRuns + maxQueuedRuns);
+    this.running = new Semaphore(maxConcurrentRuns);
+  }
+
+  @Override
+  public CompletableFuture<SimulationResult> runAsync(Portfolio portfolio,
+                                                      SimulationParams params,
+                                                      ProgressListener listener) {
+    CompletableFuture<SimulationResult> future = new CompletableFuture<>();
+    if (!admitted.tryAcquire()) {
+      rejectedCount.incrementAndGet();
+      future.completeExceptionally(new RejectedExecutionException(
+        String.format(REJECTED_MSG, maxConcurrentRuns, maxQueuedRuns)));
+      return future;
+    }
+    future.whenComplete((result, e) -> admitted.release());
+
+    long totalPaths = params == null ? 0
+      : params.getConvergenceCriteria() != null
+      ? params.getConvergenceCriteria().getMaxSimulations()
+      : params.getNumOfSimulations();
+    RunControl control = new RunControl(future, listener, totalPaths);
+    try {
+      executor.execute(() -> execute(future, portfolio, params, control));
+    } catch (RejectedExecutionException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  public int getNumOfRunning() {
+    return numOfRunning.get();
+  }
+
+  public int getNumOfQueued() {
+    return Math.max(0, maxConcurrentRuns + maxQueuedRuns - admitted.availablePermits() - numOfRunning.get());
+  }
+
+  public long getRejectedCount() {
+    return rejectedCount.get();
+  }
+
+  @Override
+  public void close() {
+    if (ownsExecutor) {
+      executor.shutdownNow();
+    }
+  }
+
+  private void execute(CompletableFuture<SimulationResult> future,
+                       Portfolio portfolio,
+                       SimulationParams params,
+                       RunControl control) {
+    if (future.isDone() || !acquireRunningSlot(future)) {
+      return;
+    }
+    numOfRunning.incrementAndGet();
+    try {
+      SimulationResult result = simulator.run(portfolio, params, control);
+      if (!future.complete(result)) {
+        result.close();
+      }
+    } catch (CancellationException e) {
+      future.cancel(false);
+    } catch (Throwable e) {
+      future.completeExceptionally(e);
+    } finally {
+      numOfRunning.decrementAndGet();
+      running.release();
+    }
+  }
+
+  /**
+   * Waits for a running slot, giving up when {@code future} completes meanwhile; completing it interrupts the wait, so
+   * the waiting thread does not stay parked for a run that will never start.
+   */
+  private boolean acquireRunningSlot(CompletableFuture<SimulationResult> future) {
+    AtomicReference<Thread> waiter = new AtomicReference<>(Thread.currentThread());
+    future.whenComplete((result, e) -> {
+      synchronized (waiter) {
+        Thread thread = waiter.getAndSet(null);
+        if (thread != null) {
+          thread.interrupt();
+        }
+      }
+    });
+    InterruptedException interrupted = null;
+    try {
+      running.acquire();
+    } catch (InterruptedException e) {
+      interrupted = e;
+    }
+    synchronized (waiter) {
+      if (waiter.getAndSet(null) == null) {
+        // the future completed, and any interrupt was meant for this wait alone
+        Thread.interrupted();
+        if (interrupted == null) {
+          running.release();
+        }
+        return false;
+      }
+    }
+    if (interrupted != null) {
+      Thread.currentThread().interrupt();
+      future.completeExceptionally(interrupted);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * {@code Executors.newVirtualThreadPerTaskExecutor()} is looked up reflectively so the library still runs on Java 8.
+   */
+  private static ExecutorService defaultExecutor(int maxConcurrentRuns) {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // virtual threads are not available on this JDK
+    }
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadFactory threadFactory = runnable -> {
+      Thread thread = new Thread(runnable, "portfolio-simulation-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+    return Executors.newFixedThreadPool(maxConcurrentRuns, threadFactory);
+  }
+}
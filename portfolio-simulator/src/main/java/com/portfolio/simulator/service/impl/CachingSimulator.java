@@ -0,0 +1,181 @@
+package com.portfolio.simulator.service.impl;
+
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.QuantileSketch;
+import com.portfolio.simulator.domain.ResultStorage;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.service.Simulator;
+
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches seeded runs of a delegate {@link Simulator} under a byte budget, evicting least recently used results first.
+ * Runs without a seed are never cached since every call must draw fresh paths, nor are {@link ResultStorage#MAPPED}
+ * runs, which their callers close.
+ *
+ * <p>A cached {@link ResultStorage#MATRIX} run is also served for any other starting balance by rescaling its matrix
+ * instead of re-simulating; runs that {@link ResultRescaler} cannot rescale are keyed on the exact balance.
+ *
+ * <p>Cached results are shared between callers and must be treated as read-only. Years that statistics sort and keep
+ * on a cached result count towards the budget, from the next call to the cache on.
+ */
+public class CachingSimulator implements Simulator {
+
+  private final Simulator delegate;
+  private final long maxSizeInBytes;
+  private final LinkedHashMap<RunKey, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long hitCount;
+  private long rescaledHitCount;
+  private long missCount;
+  private long evictionCount;
+
+  public CachingSimulator(Simulator delegate, long maxSizeInBytes) {
+    if (maxSizeInBytes < 0) {
+      throw new IllegalArgumentException("Cache size must not be negative: " + maxSizeInBytes);
+    }
+    this.delegate = delegate;
+    this.maxSizeInBytes = maxSizeInBytes;
+  }
+
+  @Override
+  public SimulationResult run(Portfolio portfolio, SimulationParams params) throws InvalidSimulationParamsException {
+    if (portfolio == null
+      || portfolio.getBalance() == null
+      || portfolio.getBalance().signum() <= 0
+      || params == null
+      || params.getSeed() == null
+      || params.getResultStorage() == ResultStorage.MAPPED) {
+      return delegate.run(portfolio, params);
+    }
+
+    RunKey key = new RunKey(portfolio, params, ResultRescaler.isRescalable(params));
+    CacheEntry cached;
+    synchronized (this) {
+      cached = entries.get(key);
+      if (cached != null) {
+        hitCount++;
+        evictBeyondBudget();
+      } else {
+        missCount++;
+      }
+    }
+    if (cached != null) {
+      return cached.resultFor(portfolio);
+    }
+
+    SimulationResult result = delegate.run(portfolio, params);
+    put(key, new CacheEntry(result, portfolio.getBalance()));
+    return result;
+  }
+
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Hits answered by rescaling a run simulated at a different starting balance; included in {@link #getHitCount()}.
+   */
+  public synchronized long getRescaledHitCount() {
+    return rescaledHitCount;
+  }
+
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  public synchronized long getSizeInBytes() {
+    long size = 0;
+    for (CacheEntry entry : entries.values()) {
+      size += entry.sizeInBytes();
+    }
+    return size;
+  }
+
+  public synchronized int getNumOfEntries() {
+    return entries.size();
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  private synchronized void put(RunKey key, CacheEntry entry) {
+    if (entry.sizeInBytes() > maxSizeInBytes) {
+      return;
+    }
+    entries.put(key, entry);
+    evictBeyondBudget();
+  }
+
+  /**
+   * Sizes are taken afresh since sorted years may have grown entries after they were added.
+   */
+  private void evictBeyondBudget() {
+    long sizeInBytes = getSizeInBytes();
+    Iterator<CacheEntry> leastRecentlyUsed = entries.values().iterator();
+    while (sizeInBytes > maxSizeInBytes) {
+      CacheEntry evicted = leastRecentlyUsed.next();
+      leastRecentlyUsed.remove();
+      sizeInBytes -= evicted.sizeInBytes();
+      evictionCount++;
+    }
+  }
+
+  private synchronized void recordRescaledHit() {
+    rescaledHitCount++;
+  }
+
+  private final class CacheEntry {
+
+    private final SimulationResult result;
+    private final BigDecimal balance;
+    private final long storageSizeInBytes;
+
+    CacheEntry(SimulationResult result, BigDecimal balance) {
+      this.result = result;
+      this.balance = balance;
+      this.storageSizeInBytes = estimateSizeInBytes(result);
+    }
+
+    long sizeInBytes() {
+      return storageSizeInBytes + result.getSortedYearsSizeInBytes();
+    }
+
+    SimulationResult resultFor(Portfolio portfolio) {
+      if (portfolio.getBalance().compareTo(balance) == 0 || !result.hasProjectionMatrix()) {
+        return result;
+      }
+      recordRescaledHit();
+      return ResultRescaler.rescale(result, balance, portfolio);
+    }
+
+    private long estimateSizeInBytes(SimulationResult result) {
+      long size = 128;
+      if (result.getProjectionMatrix() != null) {
+        size += 8L * result.getProjectionMatrix().getNumOfPaths() * result.getProjectionMatrix().getNumOfYears();
+      }
+      if (result.getYearSketches() != null) {
+        for (QuantileSketch sketch : result.getYearSketches()) {
+          size += sketch.getSizeInBytes();
+        }
+      }
+      if (result.getRiskMetrics() != null) {
+        size += result.getRiskMetrics().getSizeInBytes();
+      }
+      if (result.getResumeState() != null) {
+        size += result.getResumeState().getSizeInBytes();
+      }
+      return size;
+    }
+  }
+}
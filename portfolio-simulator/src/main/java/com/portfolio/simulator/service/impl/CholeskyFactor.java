@@ -0,0 +1,117 @@
+package com.portfolio.simulator.service.impl;
+
+/**
+ * Lower-triangular factor {@code L} of a covariance matrix, {@code covariance = L * L'}, packed row by row. Turns
+ * independent standard-normal draws into draws with that covariance. Positive semi-definite matrices are accepted, so
+ * riskless or perfectly correlated assets get zero columns instead of failing the factorisation.
+ */
+final class CholeskyFactor {
+
+  private static final double TOLERANCE = 1e-12;
+
+  private final int numOfAssets;
+  private final double[] lower;
+
+  private CholeskyFactor(int numOfAssets, double[] lower) {
+    this.numOfAssets = numOfAssets;
+    this.lower = lower;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the matrix is not square, symmetric and positive semi-definite
+   */
+  static CholeskyFactor of(double[][] covariance) {
+    int n = covariance.length;
+    double scale = 0;
+    for (int i = 0; i < n; i++) {
+      if (covariance[i] == null || covariance[i].length != n) {
+        throw new IllegalArgumentException("Covariance matrix is not square");
+      }
+      scale = Math.max(scale, Math.abs(covariance[i][i]));
+    }
+    double tolerance = TOLERANCE * Math.max(scale, Double.MIN_NORMAL);
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < i; j++) {
+        if (!(Math.abs(covariance[i][j] - covariance[j][i]) <= tolerance)) {
+          throw new IllegalArgumentException("Covariance matrix is not symmetric at " + i + ", " + j);
+        }
+      }
+    }
+
+    double[] lower = new double[n * (n + 1) / 2];
+    for (int i = 0; i < n; i++) {
+      int rowI = row(i);
+      for (int j = 0; j <= i; j++) {
+        int rowJ = row(j);
+        double sum = covariance[i][j];
+        for (int k = 0; k < j; k++) {
+          sum -= lower[rowI + k] * lower[rowJ + k];
+        }
+        if (i == j) {
+          if (!(sum >= -tolerance)) {
+            throw new IllegalArgumentException("Covariance matrix is not positive semi-definite");
+          }
+          lower[rowI + i] = Math.sqrt(Math.max(sum, 0));
+        } else if (lower[rowJ + j] > 0) {
+          lower[rowI + j] = sum / lower[rowJ + j];
+        } else if (!(Math.abs(sum) <= tolerance)) {
+          throw new IllegalArgumentException("Covariance matrix is not positive semi-definite");
+        }
+      }
+    }
+    return new CholeskyFactor(n, lower);
+  }
+
+  int getNumOfAssets() {
+    return numOfAssets;
+  }
+
+  double get(int i, int j) {
+    return j > i ? 0 : lower[row(i) + j];
+  }
+
+  /**
+   * {@code out = L * draws} for {@code steps} independent draw vectors at once. Both arrays are asset-major: the values
+   * of asset {@code i} occupy {@code [i * steps, (i + 1) * steps)}. Working a whole row of {@code L} against contiguous
+   * runs of draws keeps the inner loop a unit-stride multiply-add that the JIT vectorises.
+   */
+  void correlate(double[] draws, double[] out, int steps) {
+    for (int i = 0; i < numOfAssets; i++) {
+      int rowI = row(i);
+      int outOffset = i * steps;
+      double first = lower[rowI];
+      for (int t = 0; t < steps; t++) {
+        out[outOffset + t] = first * draws[t];
+      }
+      for (int j = 1; j <= i; j++) {
+        double factor = lower[rowI + j];
+        if (factor == 0) {
+          continue;
+        }
+        int drawOffset = j * steps;
+        for (int t = 0; t < steps; t++) {
+          out[outOffset + t] += factor * draws[drawOffset + t];
+        }
+      }
+    }
+  }
+
+  /**
+   * {@code L' * weights}: the loading of each independent draw on a portfolio held at {@code weights}, so that the
+   * portfolio's random return is a single dot product with the draws.
+   */
+  double[] transposeTimes(double[] weights) {
+    double[] loadings = new double[numOfAssets];
+    for (int i = 0; i < numOfAssets; i++) {
+      int rowI = row(i);
+      for (int j = 0; j <= i; j++) {
+        loadings[j] += lower[rowI + j] * weights[i];
+      }
+    }
+    return loadings;
+  }
+
+  private static int row(int i) {
+    return i * (i + 1) / 2;
+  }
+}
@@ -0,0 +1,151 @@
+package com.portfolio.simulator.service.impl;
+
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.ResultStorage;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.service.Simulator;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets concurrent identical seeded runs share one computation of a delegate {@link Simulator}. The first caller starts
+ * it on the coalescer's executor and every caller, the first included, waits for the same result or the same failure.
+ * Nothing is kept once the run completes; put a {@link CachingSimulator} behind this for that.
+ *
+ * <p>A waiting caller that is interrupted stops waiting with a {@link CancellationException} and leaves the shared run
+ * untouched, whether or not it started the run. Unseeded and {@link ResultStorage#MAPPED} runs are never
+ * shared, the former because each call must draw fresh paths and the latter because each caller closes its result.
+ * Shared results must be treated as read-only.
+ */
+public class CoalescingSimulator implements Simulator, AutoCloseable {
+
+  private final Simulator delegate;
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+  private final ConcurrentHashMap<RunKey, CompletableFuture<SimulationResult>> inFlight = new ConcurrentHashMap<>();
+  private final AtomicLong runCount = new AtomicLong();
+  private final AtomicLong coalescedCount = new AtomicLong();
+
+  /**
+   * Runs shared computations on a cached pool of daemon threads of its own, shut down on {@link #close()}.
+   */
+  public CoalescingSimulator(Simulator delegate) {
+    this(delegate, defaultExecutor(), true);
+  }
+
+  /**
+   * Runs shared computations on the given executor, which is not shut down on {@link #close()}.
+   */
+  public CoalescingSimulator(Simulator delegate, ExecutorService executor) {
+    this(delegate, executor, false);
+  }
+
+  private CoalescingSimulator(Simulator delegate, ExecutorService executor, boolean ownsExecutor) {
+    this.delegate = delegate;
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+  }
+
+  @Override
+  public SimulationResult run(Portfolio portfolio, SimulationParams params) throws InvalidSimulationParamsException {
+    if (portfolio == null
+      || portfolio.getBalance() == null
+      || params == null
+      || params.getSeed() == null
+      || params.getResultStorage() == ResultStorage.MAPPED) {
+      return delegate.run(portfolio, params);
+    }
+
+    RunKey key = new RunKey(portfolio, params, false);
+    CompletableFuture<SimulationResult> flight = new CompletableFuture<>();
+    CompletableFuture<SimulationResult> shared = inFlight.putIfAbsent(key, flight);
+    if (shared != null) {
+      coalescedCount.incrementAndGet();
+      return await(shared);
+    }
+
+    runCount.incrementAndGet();
+    try {
+      executor.execute(() -> {
+        try {
+          flight.complete(delegate.run(portfolio, params));
+        } catch (Throwable e) {
+          flight.completeExceptionally(e);
+        } finally {
+          inFlight.remove(key, flight);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      inFlight.remove(key, flight);
+      flight.completeExceptionally(e);
+    }
+    return await(flight);
+  }
+
+  /**
+   * Runs actually handed to the delegate.
+   */
+  public long getRunCount() {
+    return runCount.get();
+  }
+
+  /**
+   * Calls answered by joining a run already in flight.
+   */
+  public long getCoalescedCount() {
+    return coalescedCount.get();
+  }
+
+  public int getNumOfInFlight() {
+    return inFlight.size();
+  }
+
+  @Override
+  public void close() {
+    if (ownsExecutor) {
+      executor.shutdownNow();
+    }
+  }
+
+  private SimulationResult await(CompletableFuture<SimulationResult> shared) throws InvalidSimulationParamsException {
+    try {
+      return shared.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Interrupted while waiting for a shared simulation run");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof InvalidSimulationParamsException) {
+        throw (InvalidSimulationParamsException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  private static ExecutorService defaultExecutor() {
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadFactory threadFactory = runnable -> {
+      Thread thread = new Thread(runnable, "portfolio-coalesced-run-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+    return Executors.newCachedThreadPool(threadFactory);
+  }
+}
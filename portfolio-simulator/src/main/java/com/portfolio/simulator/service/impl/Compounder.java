@@ -0,0 +1,267 @@
+package com.portfolio.simulator.service.impl;
+
+import com.portfolio.simulator.domain.NumericMode;
+import com.portfolio.simulator.domain.ResumeState;
+import com.portfolio.simulator.domain.TargetAllocation;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * Turns one path's standard-normal shocks into yearly balances using the arithmetic selected by {@link NumericMode}.
+ * {@code shocks[year]} drives the step from {@code year - 1} to {@code year}; {@code shocks[0]} is unused. A cash-flow
+ * schedule is added after each year's growth in the same arithmetic, and a balance that falls to zero or below is
+ * depleted and stays at zero.
+ */
+abstract class Compounder {
+
+  abstract void compound(double[] shocks, double[] balances, int yearsToForecast);
+
+  /**
+   * Records where the last compounded path stopped at {@code index} of {@code state}.
+   */
+  abstract void save(ResumeState state, int index);
+
+  /**
+   * Continues the path saved at {@code index} of {@code state}, filling {@code balances[fromYear..toYear-1]} exactly as
+   * an uninterrupted {@link #compound} over {@code toYear} years would.
+   */
+  abstract void resume(ResumeState state, int index, double[] shocks, double[] balances, int fromYear, int toYear);
+
+  /**
+   * {@code cashFlows} follows {@link com.portfolio.simulator.domain.SimulationParams#getCashFlows()} and may be
+   * {@code null}.
+   */
+  static Compounder of(NumericMode numericMode,
+                       TargetAllocation targetAllocation,
+                       BigDecimal principal,
+                       BigDecimal inflationRate,
+                       List<BigDecimal> cashFlows) {
+    switch (numericMode) {
+      case FIXED_POINT_CENTS:
+        return new FixedPointCentsCompounder(targetAllocation, principal, inflationRate, cashFlows);
+      case DOUBLE:
+        return new DoubleCompounder(targetAllocation, principal, inflationRate, cashFlows);
+      case BIG_DECIMAL:
+      default:
+        return new BigDecimalCompounder(targetAllocation, principal, inflationRate, cashFlows);
+    }
+  }
+
+  /**
+   * The schedule indexed by the balance it is added to, so entry {@code year} follows the growth into {@code year};
+   * {@code null} without a schedule.
+   */
+  static double[] cashFlowsByYear(List<BigDecimal> cashFlows) {
+    if (cashFlows == null) {
+      return null;
+    }
+    double[] byYear = new double[cashFlows.size() + 1];
+    for (int i = 0; i < cashFlows.size(); i++) {
+      byYear[i + 1] = cashFlows.get(i).doubleValue();
+    }
+    return byYear;
+  }
+
+  /**
+   * Adds the cash flow of {@code year} from a {@link #cashFlowsByYear} schedule to a balance that is not depleted yet.
+   */
+  static double withCashFlow(double balance, double[] cashFlows, int year) {
+    return balance > 0 && year < cashFlows.length ? Math.max(balance + cashFlows[year], 0) : Math.max(balance, 0);
+  }
+
+  /**
+   * Whether {@code numericMode} holds {@code amount} exactly, which only {@link NumericMode#FIXED_POINT_CENTS} limits:
+   * to fewer than 2^53 cents.
+   */
+  static boolean isExact(NumericMode numericMode, BigDecimal amount) {
+    return numericMode != NumericMode.FIXED_POINT_CENTS
+      || FixedPointCentsCompounder.roundToCents(amount).abs().compareTo(FixedPointCentsCompounder.MAX_EXACT_CENTS) < 0;
+  }
+
+  private static final class BigDecimalCompounder extends Compounder {
+
+    private static final MathContext MATH_CONTEXT = MathContext.DECIMAL128;
+
+    private final BigDecimal historicalReturn;
+    private final BigDecimal historicalRisk;
+    private final BigDecimal principal;
+    private final BigDecimal inflationFactor;
+    private final BigDecimal[] cashFlows;
+    private BigDecimal balance;
+
+    BigDecimalCompounder(TargetAllocation targetAllocation,
+                         BigDecimal principal,
+                         BigDecimal inflationRate,
+                         List<BigDecimal> cashFlows) {
+      this.historicalReturn = targetAllocation.getHistoricalReturn();
+      this.historicalRisk = targetAllocation.getHistoricalRisk();
+      this.principal = principal;
+      this.inflationFactor = BigDecimal.ONE.subtract(inflationRate, MATH_CONTEXT);
+      this.cashFlows = cashFlows == null ? null : new BigDecimal[cashFlows.size() + 1];
+      for (int i = 0; cashFlows != null && i < cashFlows.size(); i++) {
+        this.cashFlows[i + 1] = cashFlows.get(i);
+      }
+    }
+
+    @Override
+    void compound(double[] shocks, double[] balances, int yearsToForecast) {
+      balance = principal;
+      balances[0] = balance.doubleValue();
+      compound(shocks, balances, 1, yearsToForecast);
+    }
+
+    @Override
+    void save(ResumeState state, int index) {
+      state.getTerminalBalances()[index] = balance;
+    }
+
+    @Override
+    void resume(ResumeState state, int index, double[] shocks, double[] balances, int fromYear, int toYear) {
+      balance = state.getTerminalBalances()[index];
+      compound(shocks, balances, fromYear, toYear);
+    }
+
+    private void compound(double[] shocks, double[] balances, int fromYear, int toYear) {
+      BigDecimal balance = this.balance;
+      for (int year = fromYear; year < toYear; year++) {
+        BigDecimal randomInterestRate = BigDecimal.valueOf(shocks[year])
+          .multiply(historicalRisk, MATH_CONTEXT)
+          .add(historicalReturn, MATH_CONTEXT);
+
+        balance = balance.multiply(BigDecimal.ONE.add(randomInterestRate, MATH_CONTEXT), MATH_CONTEXT);
+        balance = balance.multiply(inflationFactor, MATH_CONTEXT);
+        if (cashFlows != null) {
+          balance = balance.signum() > 0 && year < cashFlows.length
+            ? balance.add(cashFlows[year], MATH_CONTEXT).max(BigDecimal.ZERO)
+            : balance.max(BigDecimal.ZERO);
+        }
+        balances[year] = balance.doubleValue();
+      }
+      this.balance = balance;
+    }
+  }
+
+  private static final class FixedPointCentsCompounder extends Compounder {
+
+    private static final BigDecimal MAX_EXACT_CENTS = BigDecimal.valueOf(1L << 53);
+
+    private final double historicalReturn;
+    private final double historicalRisk;
+    private final long principalCents;
+    private final double inflationFactor;
+    private final long[] cashFlowCents;
+    private long cents;
+
+    FixedPointCentsCompounder(TargetAllocation targetAllocation,
+                              BigDecimal principal,
+                              BigDecimal inflationRate,
+                              List<BigDecimal> cashFlows) {
+      this.historicalReturn = targetAllocation.getHistoricalReturn().doubleValue();
+      this.historicalRisk = targetAllocation.getHistoricalRisk().doubleValue();
+      this.principalCents = toCents(principal);
+      this.inflationFactor = 1 - inflationRate.doubleValue();
+      this.cashFlowCents = cashFlows == null ? null : new long[cashFlows.size() + 1];
+      for (int i = 0; cashFlows != null && i < cashFlows.size(); i++) {
+        this.cashFlowCents[i + 1] = toCents(cashFlows.get(i));
+      }
+    }
+
+    private static BigDecimal roundToCents(BigDecimal amount) {
+      return amount.movePointRight(2).setScale(0, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * Amounts are checked by {@link #isExact} when the run is validated.
+     */
+    private static long toCents(BigDecimal amount) {
+      return roundToCents(amount).longValueExact();
+    }
+
+    @Override
+    void compound(double[] shocks, double[] balances, int yearsToForecast) {
+      cents = principalCents;
+      balances[0] = cents / 100.0;
+      compound(shocks, balances, 1, yearsToForecast);
+    }
+
+    @Override
+    void save(ResumeState state, int index) {
+      state.getTerminalValues()[index] = cents;
+    }
+
+    @Override
+    void resume(ResumeState state, int index, double[] shocks, double[] balances, int fromYear, int toYear) {
+      cents = (long) state.getTerminalValues()[index];
+      compound(shocks, balances, fromYear, toYear);
+    }
+
+    private void compound(double[] shocks, double[] balances, int fromYear, int toYear) {
+      long cents = this.cents;
+      for (int year = fromYear; year < toYear; year++) {
+        double growthFactor = (1 + historicalReturn + historicalRisk * shocks[year]) * inflationFactor;
+        cents = Math.round(cents * growthFactor);
+        if (cashFlowCents != null) {
+          cents = cents > 0 && year < cashFlowCents.length
+            ? Math.max(cents + cashFlowCents[year], 0)
+            : Math.max(cents, 0);
+        }
+        balances[year] = cents / 100.0;
+      }
+      this.cents = cents;
+    }
+  }
+
+  private static final class DoubleCompounder extends Compounder {
+
+    private final double historicalReturn;
+    private final double historicalRisk;
+    private final double principal;
+    private final double inflationFactor;
+    private final double[] cashFlows;
+    private double balance;
+
+    DoubleCompounder(TargetAllocation targetAllocation,
+                     BigDecimal principal,
+                     BigDecimal inflationRate,
+                     List<BigDecimal> cashFlows) {
+      this.historicalReturn = targetAllocation.getHistoricalReturn().doubleValue();
+      this.historicalRisk = targetAllocation.getHistoricalRisk().doubleValue();
+      this.principal = principal.doubleValue();
+      this.inflationFactor = 1 - inflationRate.doubleValue();
+      this.cashFlows = cashFlowsByYear(cashFlows);
+    }
+
+    @Override
+    void compound(double[] shocks, double[] balances, int yearsToForecast) {
+      balance = principal;
+      balances[0] = balance;
+      compound(shocks, balances, 1, yearsToForecast);
+    }
+
+    @Override
+    void save(ResumeState state, int index) {
+      state.getTerminalValues()[index] = balance;
+    }
+
+    @Override
+    void resume(ResumeState state, int index, double[] shocks, double[] balances, int fromYear, int toYear) {
+      balance = state.getTerminalValues()[index];
+      compound(shocks, balances, fromYear, toYear);
+    }
+
+    private void compound(double[] shocks, double[] balances, int fromYear, int toYear) {
+      double balance = this.balance;
+      for (int year = fromYear; year < toYear; year++) {
+        balance = balance * (1 + historicalReturn + historicalRisk * shocks[year]) * inflationFactor;
+        if (cashFlows != null) {
+          balance = withCashFlow(balance, cashFlows, year);
+        }
+        balances[year] = balance;
+      }
+      this.balance = balance;
+    }
+  }
+}
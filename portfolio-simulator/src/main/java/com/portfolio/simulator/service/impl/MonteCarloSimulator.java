@@ -1,78 +1,862 @@
 package com.portfolio.simulator.service.impl;
 
+import com.portfolio.simulator.domain.BatchSimulationResult;
+import com.portfolio.simulator.domain.ConvergenceCriteria;
+import com.portfolio.simulator.domain.ConvergenceReport;
+import com.portfolio.simulator.domain.NumericMode;
 import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.ProjectionMatrix;
+import com.portfolio.simulator.domain.QuantileSketch;
+import com.portfolio.simulator.domain.ResultStorage;
+import com.portfolio.simulator.domain.ResumeState;
+import com.portfolio.simulator.domain.SamplingStrategy;
 import com.portfolio.simulator.domain.SimulationParams;
 import com.portfolio.simulator.domain.SimulationResult;
-import com.portfolio.simulator.domain.TargetAllocation;
 import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.io.PathExporter;
+import com.portfolio.simulator.metrics.SimulationMetrics;
+import com.portfolio.simulator.metrics.SimulationPhase;
+import com.portfolio.simulator.random.NormalSource;
+import com.portfolio.simulator.service.BatchSimulator;
+import com.portfolio.simulator.service.ExportingSimulator;
+import com.portfolio.simulator.service.ResumableSimulator;
+import com.portfolio.simulator.service.ShardSimulator;
 import com.portfolio.simulator.service.Simulator;
-import org.springframework.stereotype.Service;
+import com.portfolio.simulator.utils.StatsPerformanceUtil;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
-@Service
-public class MonteCarloSimulator implements Simulator {
+public class MonteCarloSimulator
+  implements Simulator, BatchSimulator, ResumableSimulator, ShardSimulator, ExportingSimulator {
 
-  final Random random = new Random();
+  static final int CHUNK_SIZE = 1024;
+  static final int TIMING_BLOCK_SIZE = 64;
 
-  private static final Integer INITIAL_YEAR = 0;
   private static final String INVALID_PARAMS_MSG = "Cannot run simulation with invalid parameters";
 
+  private final ExecutorService executor;
+  private final Supplier<NormalSource> normalSources;
+  private volatile SimulationMetrics metrics = SimulationMetrics.NOOP;
+
+  public MonteCarloSimulator() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  public MonteCarloSimulator(ExecutorService executor) {
+    this(executor, NormalSource.polar());
+  }
+
+  /**
+   * {@code normalSources} creates the Gaussian generator of each simulated chunk; the default
+   * {@link NormalSource#polar()} keeps results identical to earlier versions for a given seed.
+   */
+  public MonteCarloSimulator(ExecutorService executor, Supplier<NormalSource> normalSources) {
+    this.executor = executor;
+    this.normalSources = normalSources;
+  }
+
+  public void setSimulationMetrics(SimulationMetrics metrics) {
+    this.metrics = metrics != null ? metrics : SimulationMetrics.NOOP;
+  }
+
   @Override
   public SimulationResult run(Portfolio portfolio, SimulationParams params) throws InvalidSimulationParamsException {
 
-    if (!isValidPortfolio(portfolio) || !isValidSimulationParams(params)) {
-      throw new InvalidSimulationParamsException(INVALID_PARAMS_MSG);
+    if (!isValidSimulationParams(params) || !isValidPortfolio(portfolio, params)) {
+      throw invalidParams();
+    }
+
+    return run(portfolio, params, null);
+  }
+
+  /**
+   * Runs with a {@link RunControl} that is consulted between chunks of paths, so the run can be cancelled and report
+   * progress; {@code null} runs uncontrolled.
+   */
+  SimulationResult run(Portfolio portfolio, SimulationParams params, RunControl control)
+    throws InvalidSimulationParamsException {
+
+    if (!isValidSimulationParams(params) || !isValidPortfolio(portfolio, params)) {
+      throw invalidParams();
+    }
+
+    RunMetrics runMetrics = RunMetrics.start(metrics);
+    SimulationResult result = simulate(portfolio, params, control, runMetrics, null);
+    if (runMetrics != null) {
+      runMetrics.finish(result.getNumOfSimulations(), RunMetrics.resultSizeInBytes(result));
+    }
+    return result;
+  }
+
+  /**
+   * Runs like {@link #run(Portfolio, SimulationParams)} while every path is written to {@code exporter} as soon as it
+   * is simulated; combined with {@link ResultStorage#SKETCH} neither the run nor its export grows with the number of
+   * paths. Runs with convergence criteria end at a path count not known up front and cannot be exported. The exporter
+   * is left open, and the export is only complete once the caller closes it.
+   */
+  @Override
+  public SimulationResult export(Portfolio portfolio, SimulationParams params, PathExporter exporter)
+    throws InvalidSimulationParamsException, IOException {
+
+    if (!isValidSimulationParams(params) || !isValidPortfolio(portfolio, params)
+      || params.getConvergenceCriteria() != null || exporter == null) {
+      throw invalidParams();
+    }
+
+    RunMetrics runMetrics = RunMetrics.start(metrics);
+    SimulationResult result;
+    try {
+      result = simulate(portfolio, params, null, runMetrics, exporter);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    if (runMetrics != null) {
+      runMetrics.finish(result.getNumOfSimulations(), RunMetrics.resultSizeInBytes(result));
+    }
+    return result;
+  }
+
+  private SimulationResult simulate(Portfolio portfolio,
+                                    SimulationParams params,
+                                    RunControl control,
+                                    RunMetrics runMetrics,
+                                    PathExporter exporter) {
+    long seed = params.getSeed() != null ? params.getSeed() : ThreadLocalRandom.current().nextLong();
+    SimulationResult.SimulationResultBuilder result = SimulationResult.builder()
+      .portfolio(portfolio)
+      .seed(seed);
+
+    if (params.getConvergenceCriteria() != null) {
+      return runUntilConverged(portfolio, params, seed, result, control, runMetrics);
     }
 
-    HashMap<Integer, List<BigDecimal>> monteCarloSimulationResults = new HashMap<>();
-    for (int sim = 0; sim < params.getNumOfSimulations(); sim++) {
-      List<BigDecimal> simulatedReturns = simulateYearlyReturns(
+    ResultCollector collector = collectorFor(params, params.getNumOfSimulations());
+    if (exporter != null) {
+      try {
+        exporter.begin(portfolio, params, seed);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot begin export", e);
+      }
+      collector = ResultCollector.compose(collector, ResultCollector.export(exporter));
+    }
+    ShockSampler.Factory samplers = ShockSampler.factory(
+      params.getSamplingStrategy(), seed, params.getNumOfSimulations(), params.getYearsToForecast(), normalSources);
+
+    ResumeState resumeState = params.isResumable() ? newResumeState(params, samplers) : null;
+    simulateRange(collector, samplers, portfolio, params, 0, params.getNumOfSimulations(), resumeState, control,
+      runMetrics);
+
+    assembleResult(collector, result, runMetrics);
+    return result
+      .numOfSimulations(params.getNumOfSimulations())
+      .resumeState(resumeState)
+      .build();
+  }
+
+  /**
+   * Simulates only the paths {@code [fromSim, toSim)} of the run {@code params} describes, seeded with {@code seed}.
+   * Paths are drawn from their own streams and strata are laid out over all {@code numOfSimulations} paths, so every
+   * path comes out exactly as in the full run and shards covering all paths concatenate into it. The shard holds
+   * {@code toSim - fromSim} paths in a heap matrix, or sketches for {@link ResultStorage#SKETCH}; runs with
+   * convergence criteria or resume state cannot be split.
+   */
+  @Override
+  public SimulationResult runShard(Portfolio portfolio, SimulationParams params, long seed, int fromSim, int toSim)
+    throws InvalidSimulationParamsException {
+    if (!isValidSimulationParams(params) || !isValidPortfolio(portfolio, params)
+      || params.getConvergenceCriteria() != null || params.isResumable()
+      || fromSim < 0 || fromSim >= toSim || toSim > params.getNumOfSimulations()) {
+      throw invalidParams();
+    }
+
+    ResultCollector collector = ResultCollector.withRiskMetrics(params.getResultStorage() == ResultStorage.SKETCH
+      ? ResultCollector.sketches(params.getYearsToForecast(), params.getSketchRelativeAccuracy())
+      : ResultCollector.batchedMatrix(params.getYearsToForecast()), params);
+    collector.beginBatch(fromSim, toSim);
+    ShockSampler.Factory samplers = ShockSampler.factory(
+      params.getSamplingStrategy(), seed, params.getNumOfSimulations(), params.getYearsToForecast(), normalSources);
+    simulateRange(collector, samplers, portfolio, params, fromSim, toSim, null, null, null);
+
+    SimulationResult.SimulationResultBuilder shard = SimulationResult.builder()
+      .portfolio(portfolio)
+      .seed(seed)
+      .numOfSimulations(toSim - fromSim);
+    collector.contributeTo(shard);
+    return shard.build();
+  }
+
+  /**
+   * Continues every path of a resumable run for {@code extraYears} more years from its saved balance and stream
+   * position. Existing years are copied rather than simulated again, and the result equals a fresh run over the longer
+   * horizon with the same seed. Only {@link SamplingStrategy#PSEUDO_RANDOM} and {@link SamplingStrategy#ANTITHETIC}
+   * draw each path sequentially and can be extended.
+   */
+  @Override
+  public SimulationResult extend(SimulationResult result, int extraYears) throws InvalidSimulationParamsException {
+    ResumeState resumeState = result != null ? result.getResumeState() : null;
+    if (resumeState == null || extraYears <= 0
+      || (long) resumeState.getParams().getYearsToForecast() + extraYears > Integer.MAX_VALUE) {
+      throw invalidParams();
+    }
+
+    SimulationParams params = resumeState.getParams();
+    int numOfSimulations = params.getNumOfSimulations();
+    int fromYear = params.getYearsToForecast();
+    int toYear = fromYear + extraYears;
+    SimulationParams extendedParams = params.toBuilder().yearsToForecast(toYear).build();
+    ShockSampler.Factory samplers = ShockSampler.factory(
+      params.getSamplingStrategy(), result.getSeed(), numOfSimulations, toYear, normalSources);
+    if (!samplers.create().isResumable()) {
+      throw invalidParams();
+    }
+
+    boolean sketched = params.getResultStorage() == ResultStorage.SKETCH;
+    ResultCollector collector = sketched
+      ? ResultCollector.sketches(extraYears, params.getSketchRelativeAccuracy())
+      : collectorFor(extendedParams, numOfSimulations);
+    ResumeState extendedState = newResumeState(extendedParams, samplers);
+    Portfolio portfolio = result.getPortfolio();
+    ProjectionMatrix projectionMatrix = result.getProjectionMatrix();
+
+    forEachChunk(params, 0, numOfSimulations, null, null, (chunkFrom, chunkTo) -> {
+      Compounder compounder = Compounder.of(
+        params.getNumericMode(),
         portfolio.getTargetAllocation(),
         portfolio.getBalance(),
         params.getInflationRate(),
-        params.getYearsToForecast());
-      monteCarloSimulationResults.put(sim, simulatedReturns);
-    }
+        params.getCashFlows());
+      ShockSampler sampler = samplers.create();
+      double[] shocks = new double[toYear];
+      double[] balances = new double[toYear];
+      double[] extraBalances = sketched ? new double[extraYears] : null;
+
+      PathSink sink = collector.acquireSink();
+      try {
+        for (int sim = chunkFrom; sim < chunkTo; sim++) {
+          sampler.resume(resumeState, sim, sim, shocks, fromYear, toYear);
+          compounder.resume(resumeState, sim, shocks, balances, fromYear, toYear);
+          sampler.save(extendedState, sim);
+          compounder.save(extendedState, sim);
+          if (sketched) {
+            System.arraycopy(balances, fromYear, extraBalances, 0, extraYears);
+            sink.accept(sim, extraBalances);
+          } else {
+            projectionMatrix.copyPath(sim, balances, 0);
+            sink.accept(sim, balances);
+          }
+        }
+      } finally {
+        collector.releaseSink(sink);
+      }
+    });
 
-    return SimulationResult.builder()
-      .projectionResults(monteCarloSimulationResults)
+    SimulationResult.SimulationResultBuilder extended = SimulationResult.builder()
       .portfolio(portfolio)
+      .seed(result.getSeed())
+      .numOfSimulations(numOfSimulations)
+      .resumeState(extendedState);
+    collector.contributeTo(extended);
+    if (sketched) {
+      QuantileSketch[] extraSketches = extended.build().getYearSketches();
+      QuantileSketch[] yearSketches = Arrays.copyOf(result.getYearSketches(), toYear);
+      System.arraycopy(extraSketches, 0, yearSketches, fromYear, extraYears);
+      extended.yearSketches(yearSketches);
+    }
+    return extended.build();
+  }
+
+  /**
+   * Appends {@code numOfPaths} paths to a resumable run. Paths are numbered on from the existing ones and drawn from
+   * their own streams, so the result equals a fresh run of the combined size with the same seed; under
+   * {@link SamplingStrategy#STRATIFIED} the new paths form further strata blocks of the original size instead.
+   */
+  @Override
+  public SimulationResult addPaths(SimulationResult result, int numOfPaths) throws InvalidSimulationParamsException {
+    ResumeState resumeState = result != null ? result.getResumeState() : null;
+    if (resumeState == null || numOfPaths <= 0
+      || (long) resumeState.getParams().getNumOfSimulations() + numOfPaths > Integer.MAX_VALUE) {
+      throw invalidParams();
+    }
+
+    SimulationParams params = resumeState.getParams();
+    int fromSim = params.getNumOfSimulations();
+    int toSim = fromSim + numOfPaths;
+    SimulationParams grownParams = params.toBuilder().numOfSimulations(toSim).build();
+    ShockSampler.Factory samplers = ShockSampler.factory(
+      params.getSamplingStrategy(), result.getSeed(), fromSim, params.getYearsToForecast(), normalSources);
+    ResumeState grownState = newResumeState(grownParams, samplers);
+    copyResumeState(resumeState, grownState, fromSim);
+
+    boolean sketched = params.getResultStorage() == ResultStorage.SKETCH;
+    ResultCollector collector = sketched
+      ? ResultCollector.sketches(params.getYearsToForecast(), params.getSketchRelativeAccuracy())
+      : collectorFor(grownParams, toSim);
+    if (!sketched) {
+      ProjectionMatrix projectionMatrix = result.getProjectionMatrix();
+      forEachChunk(params, 0, fromSim, null, null, (chunkFrom, chunkTo) -> {
+        double[] balances = new double[params.getYearsToForecast()];
+        PathSink sink = collector.acquireSink();
+        try {
+          for (int sim = chunkFrom; sim < chunkTo; sim++) {
+            projectionMatrix.copyPath(sim, balances, 0);
+            sink.accept(sim, balances);
+          }
+        } finally {
+          collector.releaseSink(sink);
+        }
+      });
+    }
+    simulateRange(collector, samplers, result.getPortfolio(), grownParams, fromSim, toSim, grownState, null, null);
+
+    SimulationResult.SimulationResultBuilder grown = SimulationResult.builder()
+      .portfolio(result.getPortfolio())
+      .seed(result.getSeed())
+      .numOfSimulations(toSim)
+      .resumeState(grownState);
+    collector.contributeTo(grown);
+    if (sketched) {
+      QuantileSketch[] addedSketches = grown.build().getYearSketches();
+      QuantileSketch[] yearSketches = new QuantileSketch[addedSketches.length];
+      for (int year = 0; year < yearSketches.length; year++) {
+        yearSketches[year] = new QuantileSketch(params.getSketchRelativeAccuracy());
+        yearSketches[year].merge(result.getYearSketches()[year]);
+        yearSketches[year].merge(addedSketches[year]);
+      }
+      grown.yearSketches(yearSketches);
+    }
+    return grown.build();
+  }
+
+  /**
+   * Empty state for every path of {@code params}; stream positions are only kept when the sampler and normal source
+   * can be resumed from them.
+   */
+  private ResumeState newResumeState(SimulationParams params, ShockSampler.Factory samplers) {
+    int numOfPaths = params.getNumOfSimulations();
+    boolean extendable = samplers.create().isResumable() && normalSources.get().isResumable();
+    boolean exact = params.getNumericMode() == NumericMode.BIG_DECIMAL;
+    return ResumeState.builder()
+      .params(params)
+      .terminalValues(exact ? null : new double[numOfPaths])
+      .terminalBalances(exact ? new BigDecimal[numOfPaths] : null)
+      .streamStates(extendable ? new long[numOfPaths] : null)
+      .pendingDeviates(extendable ? new double[numOfPaths] : null)
       .build();
   }
 
-  private List<BigDecimal> simulateYearlyReturns(TargetAllocation targetAllocation,
-                                                 BigDecimal principal,
-                                                 BigDecimal inflationRate,
-                                                 Integer yearsToForecast) {
-    List<BigDecimal> simulatedReturns = new ArrayList<>();
-    simulatedReturns.add(INITIAL_YEAR, principal);
+  private static void copyResumeState(ResumeState from, ResumeState to, int numOfPaths) {
+    if (from.getTerminalValues() != null) {
+      System.arraycopy(from.getTerminalValues(), 0, to.getTerminalValues(), 0, numOfPaths);
+    }
+    if (from.getTerminalBalances() != null) {
+      System.arraycopy(from.getTerminalBalances(), 0, to.getTerminalBalances(), 0, numOfPaths);
+    }
+    if (from.getStreamStates() != null && to.getStreamStates() != null) {
+      System.arraycopy(from.getStreamStates(), 0, to.getStreamStates(), 0, numOfPaths);
+      System.arraycopy(from.getPendingDeviates(), 0, to.getPendingDeviates(), 0, numOfPaths);
+    }
+  }
+
+  /**
+   * Simulates every portfolio over one shared set of shocks (common random numbers), generated once for the horizon,
+   * path count and seed. Portfolios with the same target allocation are simulated once and, where
+   * {@link ResultRescaler#isRescalable} allows, the others are derived by scaling to their starting balance. Adaptive
+   * runs choose their own path count, so each portfolio then runs on its own with the shared seed.
+   */
+  @Override
+  public BatchSimulationResult runBatch(List<Portfolio> portfolios, SimulationParams params, List<Double> percentiles)
+    throws InvalidSimulationParamsException {
 
-    for (int year = 1; year < yearsToForecast; year++) {
-      BigDecimal randomInterestRate = BigDecimal.valueOf(
-        random.nextGaussian())
-        .multiply(targetAllocation.getHistoricalRisk())
-        .add(targetAllocation.getHistoricalReturn());
+    if (portfolios == null || portfolios.isEmpty() || !isValidSimulationParams(params)
+      || !isValidPercents(percentiles)) {
+      throw invalidParams();
+    }
+    for (Portfolio portfolio : portfolios) {
+      if (!isValidPortfolio(portfolio, params)) {
+        throw invalidParams();
+      }
+    }
 
-      BigDecimal balance = simulatedReturns.get(year - 1);
-      balance = balance.multiply(BigDecimal.ONE.add(randomInterestRate));
-      balance = balance.multiply(BigDecimal.ONE.subtract(inflationRate));
-      simulatedReturns.add(year, balance);
+    long seed = params.getSeed() != null ? params.getSeed() : ThreadLocalRandom.current().nextLong();
+    double[] percents = new double[percentiles.size()];
+    for (int i = 0; i < percents.length; i++) {
+      percents[i] = percentiles.get(i);
+    }
+
+    List<SimulationResult> results = new ArrayList<>(portfolios.size());
+    double[][][] percentileValues = new double[portfolios.size()][][];
+    if (params.getConvergenceCriteria() != null) {
+      SimulationParams seededParams = params.toBuilder().seed(seed).build();
+      for (int i = 0; i < portfolios.size(); i++) {
+        results.add(run(portfolios.get(i), seededParams));
+        percentileValues[i] = yearlyPercentiles(results.get(i), percents);
+      }
+    } else {
+      RunMetrics runMetrics = RunMetrics.start(metrics);
+      simulateBatch(portfolios, params, seed, percents, results, percentileValues, runMetrics);
+      if (runMetrics != null) {
+        long resultSizeInBytes = 0;
+        for (SimulationResult result : results) {
+          resultSizeInBytes += RunMetrics.resultSizeInBytes(result);
+        }
+        runMetrics.finish((long) params.getNumOfSimulations() * portfolios.size(), resultSizeInBytes);
+      }
+    }
+
+    return BatchSimulationResult.builder()
+      .results(results)
+      .percentiles(percentiles)
+      .percentileValues(percentileValues)
+      .seed(seed)
+      .build();
+  }
+
+  private void simulateBatch(List<Portfolio> portfolios,
+                             SimulationParams params,
+                             long seed,
+                             double[] percents,
+                             List<SimulationResult> results,
+                             double[][][] percentileValues,
+                             RunMetrics runMetrics) throws InvalidSimulationParamsException {
+    int numOfSimulations = params.getNumOfSimulations();
+    int yearsToForecast = params.getYearsToForecast();
+    if ((long) numOfSimulations * yearsToForecast > Integer.MAX_VALUE) {
+      throw invalidParams();
+    }
+
+    double[] shocks = new double[numOfSimulations * yearsToForecast];
+    ShockSampler.Factory samplers = ShockSampler.factory(
+      params.getSamplingStrategy(), seed, numOfSimulations, yearsToForecast, normalSources);
+    forEachChunk(params, 0, numOfSimulations, null, runMetrics, (fromSim, toSim) -> {
+      long drawStart = runMetrics != null ? System.nanoTime() : 0;
+      ShockSampler sampler = samplers.create();
+      double[] pathShocks = new double[yearsToForecast];
+      for (int sim = fromSim; sim < toSim; sim++) {
+        sampler.fill(sim, pathShocks, yearsToForecast);
+        System.arraycopy(pathShocks, 1, shocks, sim * yearsToForecast + 1, yearsToForecast - 1);
+      }
+      if (runMetrics != null) {
+        runMetrics.addDrawNanos(System.nanoTime() - drawStart);
+      }
+    });
+    ShockSampler.Factory sharedSamplers = ShockSampler.shared(shocks, yearsToForecast);
+
+    boolean rescalable = ResultRescaler.isRescalable(params);
+    Map<List<BigDecimal>, Integer> simulatedAllocations = new HashMap<>();
+    for (int i = 0; i < portfolios.size(); i++) {
+      Portfolio portfolio = portfolios.get(i);
+      List<BigDecimal> allocation = Arrays.asList(
+        portfolio.getTargetAllocation().getHistoricalReturn().stripTrailingZeros(),
+        portfolio.getTargetAllocation().getHistoricalRisk().stripTrailingZeros());
+      Integer simulated = rescalable ? simulatedAllocations.get(allocation) : null;
+
+      if (simulated != null) {
+        SimulationResult source = results.get(simulated);
+        double scaleFactor = ResultRescaler.scaleFactor(source.getPortfolio().getBalance(), portfolio);
+        results.add(ResultRescaler.rescale(source, source.getPortfolio().getBalance(), portfolio));
+        percentileValues[i] = new double[yearsToForecast][percents.length];
+        for (int year = 0; year < yearsToForecast; year++) {
+          for (int p = 0; p < percents.length; p++) {
+            percentileValues[i][year][p] = year == 0
+              ? portfolio.getBalance().doubleValue()
+              : percentileValues[simulated][year][p] * scaleFactor;
+          }
+        }
+        continue;
+      }
+
+      ResultCollector collector = collectorFor(params, numOfSimulations);
+      simulateRange(collector, sharedSamplers, portfolio, params, 0, numOfSimulations, null, null, runMetrics);
+      SimulationResult.SimulationResultBuilder result = SimulationResult.builder()
+        .portfolio(portfolio)
+        .seed(seed)
+        .numOfSimulations(numOfSimulations);
+      assembleResult(collector, result, runMetrics);
+      results.add(result.build());
+      percentileValues[i] = yearlyPercentiles(results.get(i), percents);
+      simulatedAllocations.put(allocation, i);
+    }
+  }
+
+  private double[][] yearlyPercentiles(SimulationResult result, double[] percents) {
+    int numOfYears = result.hasProjectionMatrix()
+      ? result.getProjectionMatrix().getNumOfYears()
+      : result.getYearSketches().length;
+    double[][] values = new double[numOfYears][];
+    double[] yearValues = result.hasProjectionMatrix()
+      ? new double[result.getProjectionMatrix().getNumOfPaths()]
+      : null;
+    for (int year = 0; year < numOfYears; year++) {
+      if (yearValues != null) {
+        result.getProjectionMatrix().copyYear(year, yearValues, 0);
+        values[year] = StatsPerformanceUtil.derivePercentilesInPlace(yearValues, percents);
+      } else {
+        values[year] = new double[percents.length];
+        for (int p = 0; p < percents.length; p++) {
+          values[year][p] = result.getYearSketches()[year].getPercentile(percents[p]);
+        }
+      }
+    }
+    return values;
+  }
+
+  private SimulationResult runUntilConverged(Portfolio portfolio,
+                                             SimulationParams params,
+                                             long seed,
+                                             SimulationResult.SimulationResultBuilder result,
+                                             RunControl control,
+                                             RunMetrics runMetrics) {
+    ConvergenceCriteria criteria = params.getConvergenceCriteria();
+    int batchSize = params.getSamplingStrategy() == SamplingStrategy.ANTITHETIC
+      ? criteria.getBatchSize() + (criteria.getBatchSize() & 1)
+      : criteria.getBatchSize();
+    int yearIndex = (criteria.getYear() != null ? criteria.getYear() : params.getYearsToForecast()) - 1;
+    double[] percentiles = new double[criteria.getTargetPercentiles().size()];
+    for (int i = 0; i < percentiles.length; i++) {
+      percentiles[i] = criteria.getTargetPercentiles().get(i);
+    }
+
+    ResultCollector collector = collectorFor(params, criteria.getMaxSimulations());
+    ShockSampler.Factory samplers = ShockSampler.factory(
+      params.getSamplingStrategy(), seed, batchSize, params.getYearsToForecast(), normalSources);
+
+    List<double[]> batchEstimates = new ArrayList<>();
+    double[] estimates = new double[percentiles.length];
+    double[] halfWidths = new double[percentiles.length];
+    boolean converged = false;
+    int simulated = 0;
+    while (!converged && simulated < criteria.getMaxSimulations()) {
+      int toSim = (int) Math.min((long) simulated + batchSize, criteria.getMaxSimulations());
+      double[] yearValues = new double[toSim - simulated];
+      ResultCollector batchCollector =
+        ResultCollector.compose(collector, ResultCollector.yearCapture(yearValues, simulated, yearIndex));
+      batchCollector.beginBatch(simulated, toSim);
+      simulateRange(batchCollector, samplers, portfolio, params, simulated, toSim, null, control, runMetrics);
+      simulated = toSim;
+
+      batchEstimates.add(StatsPerformanceUtil.derivePercentilesInPlace(yearValues, percentiles));
+      if (batchEstimates.size() >= Math.max(criteria.getMinBatches(), 2)) {
+        converged = estimateConfidenceIntervals(batchEstimates, criteria, estimates, halfWidths);
+      }
+    }
+
+    assembleResult(collector, result, runMetrics);
+    return result
+      .numOfSimulations(simulated)
+      .convergenceReport(ConvergenceReport.builder()
+        .converged(converged)
+        .numOfBatches(batchEstimates.size())
+        .targetPercentiles(criteria.getTargetPercentiles())
+        .estimates(estimates)
+        .halfWidths(halfWidths)
+        .build())
+      .build();
+  }
+
+  private boolean estimateConfidenceIntervals(List<double[]> batchEstimates,
+                                              ConvergenceCriteria criteria,
+                                              double[] estimates,
+                                              double[] halfWidths) {
+    int numOfBatches = batchEstimates.size();
+    double criticalValue = StatsPerformanceUtil.studentTQuantile(
+      (1 + criteria.getConfidenceLevel()) / 2, numOfBatches - 1);
+    boolean converged = true;
+    for (int i = 0; i < estimates.length; i++) {
+      double sum = 0;
+      for (double[] batch : batchEstimates) {
+        sum += batch[i];
+      }
+      double mean = sum / numOfBatches;
+      double squaredDeviations = 0;
+      for (double[] batch : batchEstimates) {
+        squaredDeviations += (batch[i] - mean) * (batch[i] - mean);
+      }
+      estimates[i] = mean;
+      halfWidths[i] = criticalValue * Math.sqrt(squaredDeviations / (numOfBatches - 1) / numOfBatches);
+      converged &= halfWidths[i] <= criteria.getTolerance() * Math.abs(mean);
+    }
+    return converged;
+  }
+
+  /**
+   * {@code pathCapacity} is the exact path count of a fixed-size run and the upper bound of an adaptive one.
+   */
+  private ResultCollector collectorFor(SimulationParams params, int pathCapacity) {
+    return ResultCollector.withRiskMetrics(storageFor(params, pathCapacity), params);
+  }
+
+  private ResultCollector storageFor(SimulationParams params, int pathCapacity) {
+    switch (params.getResultStorage()) {
+      case SKETCH:
+        return ResultCollector.sketches(params.getYearsToForecast(), params.getSketchRelativeAccuracy());
+      case MAPPED:
+        return ResultCollector.mapped(pathCapacity, params.getYearsToForecast());
+      case MATRIX:
+      default:
+        return params.getConvergenceCriteria() != null
+          ? ResultCollector.batchedMatrix(params.getYearsToForecast())
+          : ResultCollector.matrix(pathCapacity, params.getYearsToForecast());
+    }
+  }
+
+  private void simulateRange(ResultCollector collector,
+                             ShockSampler.Factory samplers,
+                             Portfolio portfolio,
+                             SimulationParams params,
+                             int fromSim,
+                             int toSim,
+                             ResumeState resumeState,
+                             RunControl control,
+                             RunMetrics runMetrics) {
+    forEachChunk(params, fromSim, toSim, control, runMetrics, (chunkFrom, chunkTo) ->
+      simulatePaths(collector, samplers, portfolio, params, chunkFrom, chunkTo, resumeState, runMetrics));
+  }
+
+  private void assembleResult(ResultCollector collector,
+                              SimulationResult.SimulationResultBuilder result,
+                              RunMetrics runMetrics) {
+    long assemblyStart = runMetrics != null ? System.nanoTime() : 0;
+    collector.contributeTo(result);
+    if (runMetrics != null) {
+      runMetrics.recordPhase(SimulationPhase.RESULT_ASSEMBLY, assemblyStart);
+    }
+  }
+
+  /**
+   * Runs {@code task} over {@code [fromSim, toSim)} in chunks of {@link #CHUNK_SIZE} paths. A controlled run checks for
+   * cancellation before each chunk and reports progress after it, which also splits serial runs into chunks.
+   */
+  private void forEachChunk(SimulationParams params,
+                            int fromSim,
+                            int toSim,
+                            RunControl control,
+                            RunMetrics runMetrics,
+                            ChunkTask task) {
+    if (!params.isParallel()) {
+      if (control == null) {
+        task.run(fromSim, toSim);
+        return;
+      }
+      for (int from = fromSim; from < toSim; from += CHUNK_SIZE) {
+        runControlled(control, task, from, Math.min(from + CHUNK_SIZE, toSim));
+      }
+      return;
+    }
+
+    List<Callable<Void>> chunks = new ArrayList<>();
+    for (int from = fromSim; from < toSim; from += CHUNK_SIZE) {
+      int chunkFrom = from;
+      int chunkTo = Math.min(from + CHUNK_SIZE, toSim);
+      ChunkTask chunkTask = control == null
+        ? task
+        : (taskFrom, taskTo) -> runControlled(control, task, taskFrom, taskTo);
+      chunks.add(runMetrics == null
+        ? () -> {
+          chunkTask.run(chunkFrom, chunkTo);
+          return null;
+        }
+        : () -> {
+          runMetrics.runMeasured(() -> chunkTask.run(chunkFrom, chunkTo));
+          return null;
+        });
+    }
+
+    try {
+      for (Future<Void> chunk : executor.invokeAll(chunks)) {
+        chunk.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Simulation was interrupted", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Simulation chunk failed", e.getCause());
+    }
+  }
+
+  private static void runControlled(RunControl control, ChunkTask task, int fromSim, int toSim) {
+    control.checkCancelled();
+    task.run(fromSim, toSim);
+    control.advance(toSim - fromSim);
+  }
+
+  private void simulatePaths(ResultCollector collector,
+                             ShockSampler.Factory samplers,
+                             Portfolio portfolio,
+                             SimulationParams params,
+                             int fromSim,
+                             int toSim,
+                             ResumeState resumeState,
+                             RunMetrics runMetrics) {
+    int yearsToForecast = params.getYearsToForecast();
+    Compounder compounder = Compounder.of(
+      params.getNumericMode(),
+      portfolio.getTargetAllocation(),
+      portfolio.getBalance(),
+      params.getInflationRate(),
+      params.getCashFlows());
+    ShockSampler sampler = samplers.create();
+    double[] balances = new double[yearsToForecast];
+
+    PathSink sink = collector.acquireSink();
+    try {
+      if (runMetrics == null) {
+        double[] shocks = new double[yearsToForecast];
+        for (int sim = fromSim; sim < toSim; sim++) {
+          sampler.fill(sim, shocks, yearsToForecast);
+          compounder.compound(shocks, balances, yearsToForecast);
+          if (resumeState != null) {
+            sampler.save(resumeState, sim);
+            compounder.save(resumeState, sim);
+          }
+          sink.accept(sim, balances);
+        }
+      } else {
+        simulateTimedPaths(sink, sampler, compounder, balances, yearsToForecast, fromSim, toSim, resumeState,
+          runMetrics);
+      }
+    } finally {
+      collector.releaseSink(sink);
     }
-    return simulatedReturns;
   }
 
-  private boolean isValidPortfolio(Portfolio portfolio) {
+  /**
+   * Same work as the untimed loop, reordered into blocks of {@link #TIMING_BLOCK_SIZE} paths that draw all their shocks
+   * before compounding any of them, so that two timestamps per block separate the phases.
+   */
+  private void simulateTimedPaths(PathSink sink,
+                                  ShockSampler sampler,
+                                  Compounder compounder,
+                                  double[] balances,
+                                  int yearsToForecast,
+                                  int fromSim,
+                                  int toSim,
+                                  ResumeState resumeState,
+                                  RunMetrics runMetrics) {
+    double[][] blockShocks = new double[Math.min(TIMING_BLOCK_SIZE, Math.max(toSim - fromSim, 0))][yearsToForecast];
+    long drawNanos = 0;
+    long compoundingNanos = 0;
+    for (int blockFrom = fromSim; blockFrom < toSim; blockFrom += TIMING_BLOCK_SIZE) {
+      int blockTo = Math.min(blockFrom + TIMING_BLOCK_SIZE, toSim);
+      long drawStart = System.nanoTime();
+      for (int sim = blockFrom; sim < blockTo; sim++) {
+        sampler.fill(sim, blockShocks[sim - blockFrom], yearsToForecast);
+        if (resumeState != null) {
+          sampler.save(resumeState, sim);
+        }
+      }
+      long compoundingStart = System.nanoTime();
+      for (int sim = blockFrom; sim < blockTo; sim++) {
+        compounder.compound(blockShocks[sim - blockFrom], balances, yearsToForecast);
+        if (resumeState != null) {
+          compounder.save(resumeState, sim);
+        }
+        sink.accept(sim, balances);
+      }
+      long blockEnd = System.nanoTime();
+      drawNanos += compoundingStart - drawStart;
+      compoundingNanos += blockEnd - compoundingStart;
+    }
+    runMetrics.addDrawNanos(drawNanos);
+    runMetrics.addCompoundingNanos(compoundingNanos);
+  }
+
+  private InvalidSimulationParamsException invalidParams() {
+    metrics.recordInvalidSimulationParams();
+    return new InvalidSimulationParamsException(INVALID_PARAMS_MSG);
+  }
+
+  /**
+   * Checks the balance against {@code params}' numeric mode as well once the params are known to be valid.
+   */
+  private boolean isValidPortfolio(Portfolio portfolio, SimulationParams params) {
     return !(portfolio == null
       || portfolio.getBalance().compareTo(BigDecimal.ZERO) <= 0
-      || portfolio.getTargetAllocation() == null);
+      || portfolio.getTargetAllocation() == null
+      || !Compounder.isExact(params.getNumericMode(), portfolio.getBalance()));
   }
 
   private boolean isValidSimulationParams(SimulationParams params) {
-    return !(params == null || params.getYearsToForecast() <= 0 || params.getNumOfSimulations() <= 0);
+    return !(params == null
+      || params.getYearsToForecast() <= 0
+      || (params.getConvergenceCriteria() == null && params.getNumOfSimulations() <= 0)
+      || (params.getConvergenceCriteria() != null && !isValidConvergenceCriteria(params))
+      || (params.getConvergenceCriteria() != null && params.isResumable())
+      || (params.getConvergenceCriteria() != null && params.getSamplingStrategy() == SamplingStrategy.SOBOL)
+      || params.getInflationRate() == null
+      || params.getNumericMode() == null
+      || params.getSamplingStrategy() == null
+      || params.getResultStorage() == null
+      || !(params.getSketchRelativeAccuracy() > 0 && params.getSketchRelativeAccuracy() < 1)
+      || !isValidCashFlows(params.getCashFlows())
+      || !isExactCashFlows(params)
+      || (params.isRiskMetrics() && params.isResumable())
+      || !(params.getShortfallLevel() > 0 && params.getShortfallLevel() < 1));
+  }
+
+  private static boolean isExactCashFlows(SimulationParams params) {
+    for (int i = 0; params.getCashFlows() != null && i < params.getCashFlows().size(); i++) {
+      if (!Compounder.isExact(params.getNumericMode(), params.getCashFlows().get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static boolean isValidCashFlows(List<BigDecimal> cashFlows) {
+    if (cashFlows == null) {
+      return true;
+    }
+    for (BigDecimal cashFlow : cashFlows) {
+      if (cashFlow == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isValidPercents(List<Double> percents) {
+    if (percents == null || percents.isEmpty()) {
+      return false;
+    }
+    for (Double percent : percents) {
+      if (percent == null || percent < 0 || percent > 1) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isValidConvergenceCriteria(SimulationParams params) {
+    ConvergenceCriteria criteria = params.getConvergenceCriteria();
+    if (!isValidPercents(criteria.getTargetPercentiles())) {
+      return false;
+    }
+    int year = criteria.getYear() != null ? criteria.getYear() : params.getYearsToForecast();
+    return criteria.getTolerance() > 0
+      && criteria.getConfidenceLevel() > 0 && criteria.getConfidenceLevel() < 1
+      && criteria.getBatchSize() > 1
+      && criteria.getMaxSimulations() > 0
+      && year >= 1 && year <= params.getYearsToForecast();
+  }
+
+  private interface ChunkTask {
+    void run(int fromSim, int toSim);
   }
 }
@@ -1,31 +1,189 @@
 package com.portfolio.simulator.service.impl;
 
+import com.portfolio.simulator.domain.MappedProjectionMatrix;
+import com.portfolio.simulator.domain.ProjectionMatrix;
+import com.portfolio.simulator.domain.QuantileSketch;
 import com.portfolio.simulator.domain.SimulationResult;
 import com.portfolio.simulator.exception.InvalidStatsGenerationParamsException;
+import com.portfolio.simulator.metrics.SimulationMetrics;
+import com.portfolio.simulator.metrics.SimulationPhase;
 import com.portfolio.simulator.service.StatsGenerator;
 import com.portfolio.simulator.utils.ResultsUtil;
 import com.portfolio.simulator.utils.StatsPerformanceUtil;
-import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 
-@Service
 public class MonteCarloStatisticsGenerator implements StatsGenerator<BigDecimal, SimulationResult> {
 
   private static final String INVALID_PARAMS_MSG = "Invalid simulation results or year - cannot generate statistics";
 
+  private volatile SimulationMetrics metrics = SimulationMetrics.NOOP;
+
+  public void setSimulationMetrics(SimulationMetrics metrics) {
+    this.metrics = metrics != null ? metrics : SimulationMetrics.NOOP;
+  }
+
   @Override
   public BigDecimal calcPercentile(double percent, int year, SimulationResult simulationResult)
+    throws InvalidStatsGenerationParamsException {
+    return calcPercentiles(Collections.singletonList(percent), year, simulationResult).get(0);
+  }
+
+  @Override
+  public List<BigDecimal> calcPercentiles(List<Double> percents, int year, SimulationResult simulationResult)
     throws InvalidStatsGenerationParamsException {
     if (simulationResult == null
-      || isMapEmptyOrNull(simulationResult.getProjectionResults())
-      || percent < 0 || percent > 1
+      || (!simulationResult.hasProjectionMatrix()
+      && !simulationResult.hasYearSketches()
+      && isMapEmptyOrNull(simulationResult.getProjectionResults()))
+      || !isValidPercents(percents)
       || year < 0) {
-      throw new InvalidStatsGenerationParamsException(INVALID_PARAMS_MSG);
+      throw invalidParams();
+    }
+
+    double[] percentiles = new double[percents.size()];
+    for (int i = 0; i < percentiles.length; i++) {
+      percentiles[i] = percents.get(i);
+    }
+
+    SimulationMetrics metrics = this.metrics;
+    boolean timed = metrics.isEnabled();
+    List<BigDecimal> results = new ArrayList<>(percentiles.length);
+    if (simulationResult.hasProjectionMatrix()) {
+      ProjectionMatrix projectionMatrix = simulationResult.getProjectionMatrix();
+      if (year < 1 || year > projectionMatrix.getNumOfYears()) {
+        throw invalidParams();
+      }
+      for (double percentile : matrixPercentiles(simulationResult, year, percentiles, metrics)) {
+        results.add(BigDecimal.valueOf(percentile));
+      }
+      return results;
     }
+
+    if (simulationResult.hasYearSketches()) {
+      QuantileSketch[] yearSketches = simulationResult.getYearSketches();
+      if (year < 1 || year > yearSketches.length) {
+        throw invalidParams();
+      }
+      long selectionStart = timed ? System.nanoTime() : 0;
+      for (double percentile : percentiles) {
+        results.add(BigDecimal.valueOf(yearSketches[year - 1].getPercentile(percentile)));
+      }
+      if (timed) {
+        metrics.recordPhase(SimulationPhase.SELECTION, System.nanoTime() - selectionStart);
+      }
+      return results;
+    }
+
+    long extractionStart = timed ? System.nanoTime() : 0;
     BigDecimal[] filteredResults = ResultsUtil.retrieveResultsByYear(simulationResult.getProjectionResults(), year);
-    return StatsPerformanceUtil.derivePercentile(filteredResults, percent);
+    long selectionStart = timed ? System.nanoTime() : 0;
+    Collections.addAll(results, StatsPerformanceUtil.derivePercentiles(filteredResults, percentiles));
+    if (timed) {
+      metrics.recordPhase(SimulationPhase.EXTRACTION, selectionStart - extractionStart);
+      metrics.recordPhase(SimulationPhase.SELECTION, System.nanoTime() - selectionStart);
+    }
+    return results;
+  }
+
+  public double[][] calcFanChart(List<Double> percents, SimulationResult simulationResult)
+    throws InvalidStatsGenerationParamsException {
+    return calcFanChart(percents, simulationResult, false);
+  }
+
+  /**
+   * Every requested percentile of every year in one call, indexed {@code [year - 1][percentile]}. Years of a heap
+   * matrix are sorted up front, on the common fork-join pool when {@code parallel}, and stay cached on the result.
+   */
+  public double[][] calcFanChart(List<Double> percents, SimulationResult simulationResult, boolean parallel)
+    throws InvalidStatsGenerationParamsException {
+    if (simulationResult == null || !isValidPercents(percents)) {
+      throw invalidParams();
+    }
+    if (simulationResult.hasProjectionMatrix() && isCacheable(simulationResult.getProjectionMatrix())) {
+      simulationResult.sortYears(parallel);
+    }
+
+    int numOfYears = numOfYears(simulationResult);
+    double[][] fanChart = new double[numOfYears][];
+    for (int year = 1; year <= numOfYears; year++) {
+      List<BigDecimal> values = calcPercentiles(percents, year, simulationResult);
+      fanChart[year - 1] = new double[values.size()];
+      for (int i = 0; i < fanChart[year - 1].length; i++) {
+        fanChart[year - 1][i] = values.get(i).doubleValue();
+      }
+    }
+    return fanChart;
+  }
+
+  /**
+   * Heap matrices answer from the result's cached sorted years, so repeated queries of a year skip the selection.
+   * Mapped matrices are selected from a fresh copy each time instead, since caching their years would pull a run meant
+   * to live off-heap back onto it.
+   */
+  private double[] matrixPercentiles(SimulationResult simulationResult, int year, double[] percentiles,
+                                     SimulationMetrics metrics) {
+    boolean timed = metrics.isEnabled();
+    ProjectionMatrix projectionMatrix = simulationResult.getProjectionMatrix();
+    long extractionStart = timed ? System.nanoTime() : 0;
+    double[] values;
+    long selectionStart;
+    if (isCacheable(projectionMatrix)) {
+      double[] sortedYear = simulationResult.getSortedYear(year);
+      selectionStart = timed ? System.nanoTime() : 0;
+      values = new double[percentiles.length];
+      for (int i = 0; i < percentiles.length; i++) {
+        values[i] = sortedYear[StatsPerformanceUtil.percentileIndex(sortedYear.length, percentiles[i])];
+      }
+    } else {
+      double[] filteredResults = ResultsUtil.retrieveResultsByYear(projectionMatrix, year);
+      selectionStart = timed ? System.nanoTime() : 0;
+      values = StatsPerformanceUtil.derivePercentilesInPlace(filteredResults, percentiles);
+    }
+    if (timed) {
+      metrics.recordPhase(SimulationPhase.EXTRACTION, selectionStart - extractionStart);
+      metrics.recordPhase(SimulationPhase.SELECTION, System.nanoTime() - selectionStart);
+    }
+    return values;
+  }
+
+  private boolean isCacheable(ProjectionMatrix projectionMatrix) {
+    return !(projectionMatrix instanceof MappedProjectionMatrix);
+  }
+
+  private int numOfYears(SimulationResult simulationResult) throws InvalidStatsGenerationParamsException {
+    if (simulationResult.hasProjectionMatrix()) {
+      return simulationResult.getProjectionMatrix().getNumOfYears();
+    }
+    if (simulationResult.hasYearSketches()) {
+      return simulationResult.getYearSketches().length;
+    }
+    HashMap<Integer, List<BigDecimal>> projectionResults = simulationResult.getProjectionResults();
+    if (isMapEmptyOrNull(projectionResults)) {
+      throw invalidParams();
+    }
+    return projectionResults.values().iterator().next().size();
+  }
+
+  private InvalidStatsGenerationParamsException invalidParams() {
+    metrics.recordInvalidStatsGenerationParams();
+    return new InvalidStatsGenerationParamsException(INVALID_PARAMS_MSG);
+  }
+
+  private boolean isValidPercents(List<Double> percents) {
+    if (percents == null || percents.isEmpty()) {
+      return false;
+    }
+    for (Double percent : percents) {
+      if (percent == null || percent < 0 || percent > 1) {
+        return false;
+      }
+    }
+    return true;
   }
 
   private boolean isMapEmptyOrNull(HashMap<?, ?> map) {
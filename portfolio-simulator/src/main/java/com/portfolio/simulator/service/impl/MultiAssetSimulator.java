@@ -0,0 +1,312 @@
+package com.portfolio.simulator.service.impl;
+
+import com.portfolio.simulator.domain.AssetAllocation;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.SamplingStrategy;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.random.NormalSource;
+import com.portfolio.simulator.random.SplitMix64;
+import com.portfolio.simulator.service.Simulator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Simulates portfolios with an {@link AssetAllocation} over correlated asset-class returns. Each year every asset
+ * returns its expected return plus a shock drawn from the allocation's covariance through its Cholesky factor, which is
+ * computed once per allocation instance and cached. Holdings drift with their returns and are reset to the target
+ * weights every {@link AssetAllocation#getRebalancingPeriod()} years.
+ *
+ * <p>With yearly rebalancing the portfolio return only depends on the draws through one dot product with
+ * {@code L' * weights}, so a path-year costs time linear in the number of assets; other rebalancing periods need every
+ * asset's return and apply the full triangular factor. Balances are computed in double precision whatever the
+ * {@link SimulationParams#getNumericMode() numeric mode}, and only {@link SamplingStrategy#PSEUDO_RANDOM} and
+ * {@link SamplingStrategy#ANTITHETIC} sampling with a fixed number of paths are supported. A single-asset allocation
+ * reproduces {@link MonteCarloSimulator} in {@code DOUBLE} mode for the same seed. Cash flows are added to the
+ * drifting holdings in proportion to their current value, which leaves the weights of the year unchanged.
+ */
+public class MultiAssetSimulator implements Simulator {
+
+  private static final String INVALID_PARAMS_MSG = "Cannot run multi-asset simulation with invalid parameters";
+  private static final double WEIGHT_TOLERANCE = 1e-9;
+
+  private final ExecutorService executor;
+  private final Supplier<NormalSource> normalSources;
+  private final Map<AssetAllocation, CholeskyFactor> factors = Collections.synchronizedMap(new WeakHashMap<>());
+
+  public MultiAssetSimulator() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  public MultiAssetSimulator(ExecutorService executor) {
+    this(executor, NormalSource.polar());
+  }
+
+  public MultiAssetSimulator(ExecutorService executor, Supplier<NormalSource> normalSources) {
+    this.executor = executor;
+    this.normalSources = normalSources;
+  }
+
+  @Override
+  public SimulationResult run(Portfolio portfolio, SimulationParams params) throws InvalidSimulationParamsException {
+    if (!isValidPortfolio(portfolio) || !isValidSimulationParams(params)) {
+      throw new InvalidSimulationParamsException(INVALID_PARAMS_MSG);
+    }
+    CholeskyFactor factor;
+    try {
+      factor = factorOf(portfolio.getAssetAllocation());
+    } catch (IllegalArgumentException e) {
+      throw new InvalidSimulationParamsException(INVALID_PARAMS_MSG + ": " + e.getMessage());
+    }
+
+    long seed = params.getSeed() != null ? params.getSeed() : ThreadLocalRandom.current().nextLong();
+    int numOfSimulations = params.getNumOfSimulations();
+    PathModel model = new PathModel(portfolio, params, factor, seed);
+    ResultCollector collector = collectorFor(params);
+
+    if (params.isParallel()) {
+      List<Callable<Void>> chunks = new ArrayList<>();
+      for (int from = 0; from < numOfSimulations; from += MonteCarloSimulator.CHUNK_SIZE) {
+        int chunkFrom = from;
+        int chunkTo = Math.min(from + MonteCarloSimulator.CHUNK_SIZE, numOfSimulations);
+        chunks.add(() -> {
+          simulatePaths(collector, model, chunkFrom, chunkTo);
+          return null;
+        });
+      }
+      invokeAll(chunks);
+    } else {
+      simulatePaths(collector, model, 0, numOfSimulations);
+    }
+
+    SimulationResult.SimulationResultBuilder result = SimulationResult.builder()
+      .portfolio(portfolio)
+      .seed(seed)
+      .numOfSimulations(numOfSimulations);
+    collector.contributeTo(result);
+    return result.build();
+  }
+
+  /**
+   * The cached factor of the allocation's covariance, computed on first use.
+   */
+  CholeskyFactor factorOf(AssetAllocation assetAllocation) {
+    return factors.computeIfAbsent(assetAllocation, allocation -> CholeskyFactor.of(allocation.getCovariance()));
+  }
+
+  private ResultCollector collectorFor(SimulationParams params) {
+    return ResultCollector.withRiskMetrics(storageFor(params), params);
+  }
+
+  private ResultCollector storageFor(SimulationParams params) {
+    switch (params.getResultStorage()) {
+      case SKETCH:
+        return ResultCollector.sketches(params.getYearsToForecast(), params.getSketchRelativeAccuracy());
+      case MAPPED:
+        return ResultCollector.mapped(params.getNumOfSimulations(), params.getYearsToForecast());
+      case MATRIX:
+      default:
+        return ResultCollector.matrix(params.getNumOfSimulations(), params.getYearsToForecast());
+    }
+  }
+
+  private void invokeAll(List<Callable<Void>> chunks) {
+    try {
+      for (Future<Void> chunk : executor.invokeAll(chunks)) {
+        chunk.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Simulation was interrupted", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Simulation chunk failed", e.getCause());
+    }
+  }
+
+  private void simulatePaths(ResultCollector collector, PathModel model, int fromSim, int toSim) {
+    int steps = model.steps;
+    NormalSource normalSource = normalSources.get();
+    double[] draws = new double[model.numOfAssets * steps];
+    double[] returns = model.rebalancedYearly ? new double[steps] : new double[model.numOfAssets * steps];
+    double[] holdings = new double[model.numOfAssets];
+    double[] balances = new double[model.yearsToForecast];
+
+    PathSink sink = collector.acquireSink();
+    try {
+      for (int sim = fromSim; sim < toSim; sim++) {
+        model.draw(normalSource, sim, draws);
+        if (model.rebalancedYearly) {
+          model.compoundRebalanced(draws, returns, balances);
+        } else {
+          model.compoundDrifting(draws, returns, holdings, balances);
+        }
+        sink.accept(sim, balances);
+      }
+    } finally {
+      collector.releaseSink(sink);
+    }
+  }
+
+  private boolean isValidPortfolio(Portfolio portfolio) {
+    if (portfolio == null
+      || portfolio.getBalance() == null
+      || portfolio.getBalance().compareTo(BigDecimal.ZERO) <= 0
+      || portfolio.getAssetAllocation() == null) {
+      return false;
+    }
+    AssetAllocation allocation = portfolio.getAssetAllocation();
+    int numOfAssets = allocation.getNumOfAssets();
+    if (numOfAssets == 0
+      || allocation.getExpectedReturns() == null
+      || allocation.getExpectedReturns().length != numOfAssets
+      || allocation.getCovariance() == null
+      || allocation.getCovariance().length != numOfAssets
+      || allocation.getRebalancingPeriod() < 0) {
+      return false;
+    }
+    double weightSum = 0;
+    for (int i = 0; i < numOfAssets; i++) {
+      if (!Double.isFinite(allocation.getWeights()[i]) || !Double.isFinite(allocation.getExpectedReturns()[i])) {
+        return false;
+      }
+      weightSum += allocation.getWeights()[i];
+    }
+    return Math.abs(weightSum - 1) <= WEIGHT_TOLERANCE;
+  }
+
+  private boolean isValidSimulationParams(SimulationParams params) {
+    return !(params == null
+      || params.getYearsToForecast() <= 0
+      || params.getNumOfSimulations() <= 0
+      || params.getConvergenceCriteria() != null
+      || params.getInflationRate() == null
+      || params.getResultStorage() == null
+      || !(params.getSamplingStrategy() == SamplingStrategy.PSEUDO_RANDOM
+      || params.getSamplingStrategy() == SamplingStrategy.ANTITHETIC)
+      || !(params.getSketchRelativeAccuracy() > 0 && params.getSketchRelativeAccuracy() < 1)
+      || !MonteCarloSimulator.isValidCashFlows(params.getCashFlows())
+      || !(params.getShortfallLevel() > 0 && params.getShortfallLevel() < 1));
+  }
+
+  /**
+   * Everything a path needs that does not change between paths, shared read-only by all chunks of a run.
+   */
+  private static final class PathModel {
+
+    private final int numOfAssets;
+    private final int yearsToForecast;
+    private final int steps;
+    private final long seed;
+    private final boolean antithetic;
+    private final boolean rebalancedYearly;
+    private final int rebalancingPeriod;
+    private final double principal;
+    private final double inflationFactor;
+    private final double[] cashFlows;
+    private final double[] weights;
+    private final double[] expectedReturns;
+    private final double expectedReturn;
+    private final double[] loadings;
+    private final CholeskyFactor factor;
+
+    PathModel(Portfolio portfolio, SimulationParams params, CholeskyFactor factor, long seed) {
+      AssetAllocation allocation = portfolio.getAssetAllocation();
+      this.numOfAssets = allocation.getNumOfAssets();
+      this.yearsToForecast = params.getYearsToForecast();
+      this.steps = yearsToForecast - 1;
+      this.seed = seed;
+      this.antithetic = params.getSamplingStrategy() == SamplingStrategy.ANTITHETIC;
+      this.rebalancingPeriod = allocation.getRebalancingPeriod();
+      this.rebalancedYearly = rebalancingPeriod == 1;
+      this.principal = portfolio.getBalance().doubleValue();
+      this.inflationFactor = 1 - params.getInflationRate().doubleValue();
+      this.cashFlows = Compounder.cashFlowsByYear(params.getCashFlows());
+      this.weights = allocation.getWeights().clone();
+      this.expectedReturns = allocation.getExpectedReturns().clone();
+      this.expectedReturn = allocation.getExpectedReturn();
+      this.loadings = factor.transposeTimes(weights);
+      this.factor = factor;
+    }
+
+    /**
+     * Fills the path's independent draws asset by asset, {@code steps} per asset, from the path's own stream.
+     */
+    void draw(NormalSource normalSource, int sim, double[] draws) {
+      normalSource.reset(SplitMix64.streamSeed(seed, antithetic ? sim & ~1 : sim));
+      normalSource.fill(draws, 0, draws.length);
+      if (antithetic && (sim & 1) != 0) {
+        for (int i = 0; i < draws.length; i++) {
+          draws[i] = -draws[i];
+        }
+      }
+    }
+
+    void compoundRebalanced(double[] draws, double[] portfolioShocks, double[] balances) {
+      for (int t = 0; t < steps; t++) {
+        portfolioShocks[t] = 0;
+      }
+      for (int j = 0; j < numOfAssets; j++) {
+        double loading = loadings[j];
+        int drawOffset = j * steps;
+        for (int t = 0; t < steps; t++) {
+          portfolioShocks[t] += loading * draws[drawOffset + t];
+        }
+      }
+
+      double balance = principal;
+      balances[0] = balance;
+      for (int year = 1; year < yearsToForecast; year++) {
+        balance = balance * (1 + expectedReturn + portfolioShocks[year - 1]) * inflationFactor;
+        if (cashFlows != null) {
+          balance = Compounder.withCashFlow(balance, cashFlows, year);
+        }
+        balances[year] = balance;
+      }
+    }
+
+    void compoundDrifting(double[] draws, double[] shocks, double[] holdings, double[] balances) {
+      factor.correlate(draws, shocks, steps);
+
+      for (int i = 0; i < numOfAssets; i++) {
+        holdings[i] = principal * weights[i];
+      }
+      balances[0] = principal;
+      for (int year = 1; year < yearsToForecast; year++) {
+        double balance = 0;
+        for (int i = 0; i < numOfAssets; i++) {
+          holdings[i] = holdings[i] * (1 + expectedReturns[i] + shocks[i * steps + year - 1]) * inflationFactor;
+          balance += holdings[i];
+        }
+        if (cashFlows != null) {
+          double grown = balance;
+          balance = Compounder.withCashFlow(grown, cashFlows, year);
+          for (int i = 0; i < numOfAssets; i++) {
+            holdings[i] = grown > 0 ? holdings[i] * (balance / grown) : 0;
+          }
+        }
+        balances[year] = balance;
+        if (rebalancingPeriod > 0 && year % rebalancingPeriod == 0) {
+          for (int i = 0; i < numOfAssets; i++) {
+            holdings[i] = balance * weights[i];
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,10 @@
+package com.portfolio.simulator.service.impl;
+
+/**
+ * Receives the yearly balances of each simulated path. A sink is only ever used by one thread at a time and the
+ * balances array is reused for the next path once {@link #accept} returns.
+ */
+interface PathSink {
+
+  void accept(int sim, double[] balances);
+}
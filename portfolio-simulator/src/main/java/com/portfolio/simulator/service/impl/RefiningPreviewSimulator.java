@@ -0,0 +1,106 @@
+package com.portfolio.simulator.service.impl;
+
+import com.portfolio.simulator.domain.FanChartPreview;
+import com.portfolio.simulator.domain.FanChartRefinement;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.exception.InvalidStatsGenerationParamsException;
+import com.portfolio.simulator.service.AsyncSimulator;
+import com.portfolio.simulator.service.PreviewSimulator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Answers a fan chart from the {@link LognormalApproximation} in microseconds and refines it with a Monte Carlo run of
+ * the same params on an {@link AsyncSimulator}. The refinement reports the error the preview actually had, which grows
+ * with the risk of the portfolio and the horizon and is largest in the tails. Runs with a cash-flow schedule have no
+ * closed form here and are rejected.
+ */
+public class RefiningPreviewSimulator implements PreviewSimulator {
+
+  private static final String INVALID_PARAMS_MSG = "Cannot run simulation with invalid parameters";
+
+  private final AsyncSimulator simulator;
+  private final MonteCarloStatisticsGenerator statsGenerator;
+
+  public RefiningPreviewSimulator(AsyncSimulator simulator, MonteCarloStatisticsGenerator statsGenerator) {
+    this.simulator = simulator;
+    this.statsGenerator = statsGenerator;
+  }
+
+  @Override
+  public FanChartPreview preview(Portfolio portfolio, SimulationParams params, List<Double> percentiles)
+    throws InvalidSimulationParamsException {
+    double[][] approximation = approximate(portfolio, params, percentiles);
+    List<Double> percents = new ArrayList<>(percentiles);
+
+    CompletableFuture<SimulationResult> run = simulator.runAsync(portfolio, params);
+    CompletableFuture<FanChartRefinement> refinement = run.thenApply(result -> refine(result, percents, approximation));
+    refinement.whenComplete((result, e) -> {
+      if (refinement.isCancelled()) {
+        run.cancel(false);
+      }
+    });
+    return new FanChartPreview(percents, approximation, refinement);
+  }
+
+  /**
+   * The preview alone, without starting a run; indexed {@code [year - 1][percentile]}.
+   */
+  public double[][] approximate(Portfolio portfolio, SimulationParams params, List<Double> percentiles)
+    throws InvalidSimulationParamsException {
+    if (!isValid(portfolio, params, percentiles)) {
+      throw new InvalidSimulationParamsException(INVALID_PARAMS_MSG);
+    }
+    return LognormalApproximation.fanChart(percentiles, portfolio, params);
+  }
+
+  private FanChartRefinement refine(SimulationResult result, List<Double> percents, double[][] approximation) {
+    double[][] values;
+    try {
+      values = statsGenerator.calcFanChart(percents, result);
+    } catch (InvalidStatsGenerationParamsException e) {
+      throw new CompletionException(e);
+    }
+
+    double[][] relativeErrors = new double[values.length][percents.size()];
+    double maxRelativeError = 0;
+    for (int year = 0; year < values.length; year++) {
+      for (int i = 0; i < percents.size(); i++) {
+        double error = Math.abs(approximation[year][i] - values[year][i]);
+        relativeErrors[year][i] = values[year][i] != 0 ? error / Math.abs(values[year][i]) : error;
+        maxRelativeError = Math.max(maxRelativeError, relativeErrors[year][i]);
+      }
+    }
+    return new FanChartRefinement(result, values, relativeErrors, maxRelativeError);
+  }
+
+  private boolean isValid(Portfolio portfolio, SimulationParams params, List<Double> percentiles) {
+    if (portfolio == null
+      || portfolio.getBalance() == null
+      || portfolio.getBalance().compareTo(BigDecimal.ZERO) <= 0
+      || portfolio.getTargetAllocation() == null
+      || params == null
+      || params.getYearsToForecast() <= 0
+      || (params.getConvergenceCriteria() == null && params.getNumOfSimulations() <= 0)
+      || (params.getConvergenceCriteria() != null && params.getConvergenceCriteria().getMaxSimulations() <= 0)
+      || params.getInflationRate() == null
+      || params.getCashFlows() != null
+      || percentiles == null
+      || percentiles.isEmpty()) {
+      return false;
+    }
+    for (Double percent : percentiles) {
+      if (percent == null || percent < 0 || percent > 1) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
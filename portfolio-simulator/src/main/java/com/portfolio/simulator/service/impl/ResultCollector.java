@@ -0,0 +1,469 @@
+package com.portfolio.simulator.service.impl;
+
+import com.portfolio.simulator.domain.DenseProjectionMatrix;
+import com.portfolio.simulator.domain.MappedProjectionMatrix;
+import com.portfolio.simulator.domain.PathRiskMetrics;
+import com.portfolio.simulator.domain.QuantileSketch;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.io.PathExporter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Where a run's paths end up. Each chunk of paths borrows a {@link PathSink} and hands it back when done, so
+ * per-thread state is reused across chunks rather than allocated per chunk.
+ */
+abstract class ResultCollector {
+
+  abstract PathSink acquireSink();
+
+  abstract void releaseSink(PathSink sink);
+
+  abstract void contributeTo(SimulationResult.SimulationResultBuilder result);
+
+  /**
+   * Called on the coordinating thread before the paths {@code [fromSim, toSim)} are simulated, for collectors that
+   * receive a run in several consecutive batches.
+   */
+  void beginBatch(int fromSim, int toSim) {
+  }
+
+  static ResultCollector matrix(int numOfSimulations, int yearsToForecast) {
+    return new MatrixCollector(new DenseProjectionMatrix(numOfSimulations, yearsToForecast));
+  }
+
+  /**
+   * Writes paths into a {@link MappedProjectionMatrix} with room for {@code pathCapacity} paths. Each sink gathers a
+   * block of consecutive paths and writes it year by year, so every write is one contiguous run of the mapping.
+   */
+  static ResultCollector mapped(int pathCapacity, int yearsToForecast) {
+    return new MappedCollector(new MappedProjectionMatrix(pathCapacity, yearsToForecast), yearsToForecast);
+  }
+
+  static ResultCollector batchedMatrix(int yearsToForecast) {
+    return new BatchedMatrixCollector(yearsToForecast);
+  }
+
+  static ResultCollector yearCapture(double[] values, int fromSim, int year) {
+    return new YearCaptureCollector(values, fromSim, year);
+  }
+
+  static ResultCollector compose(ResultCollector first, ResultCollector second) {
+    return new CompositeCollector(first, second);
+  }
+
+  static ResultCollector sketches(int yearsToForecast, double relativeAccuracy) {
+    return new SketchCollector(yearsToForecast, relativeAccuracy);
+  }
+
+  /**
+   * Hands every path to {@code exporter} through one writer per sink. A failed write surfaces as an
+   * {@link UncheckedIOException} that stops the run.
+   */
+  static ResultCollector export(PathExporter exporter) {
+    return new ExportCollector(exporter);
+  }
+
+  /**
+   * Adds the run's {@link PathRiskMetrics} to {@code collector} when {@code params} asks for them.
+   */
+  static ResultCollector withRiskMetrics(ResultCollector collector, SimulationParams params) {
+    if (!params.isRiskMetrics()) {
+      return collector;
+    }
+    return compose(collector, new RiskMetricsCollector(
+      params.getYearsToForecast(), params.getShortfallLevel(), params.getSketchRelativeAccuracy()));
+  }
+
+  private static final class MatrixCollector extends ResultCollector implements PathSink {
+
+    private final DenseProjectionMatrix projectionMatrix;
+
+    MatrixCollector(DenseProjectionMatrix projectionMatrix) {
+      this.projectionMatrix = projectionMatrix;
+    }
+
+    @Override
+    public void accept(int sim, double[] balances) {
+      projectionMatrix.setPath(sim, balances, 0);
+    }
+
+    @Override
+    PathSink acquireSink() {
+      return this;
+    }
+
+    @Override
+    void releaseSink(PathSink sink) {
+    }
+
+    @Override
+    void contributeTo(SimulationResult.SimulationResultBuilder result) {
+      result.projectionMatrix(projectionMatrix);
+    }
+  }
+
+  private static final class MappedCollector extends ResultCollector {
+
+    private static final int BLOCK_SIZE = 1024;
+
+    private final MappedProjectionMatrix projectionMatrix;
+    private final int yearsToForecast;
+    private final ConcurrentLinkedQueue<MappedSink> idleSinks = new ConcurrentLinkedQueue<>();
+    private int numOfPaths;
+
+    MappedCollector(MappedProjectionMatrix projectionMatrix, int yearsToForecast) {
+      this.projectionMatrix = projectionMatrix;
+      this.yearsToForecast = yearsToForecast;
+      this.numOfPaths = projectionMatrix.getNumOfPaths();
+    }
+
+    @Override
+    void beginBatch(int fromSim, int toSim) {
+      numOfPaths = toSim;
+    }
+
+    @Override
+    PathSink acquireSink() {
+      MappedSink sink = idleSinks.poll();
+      return sink != null ? sink : new MappedSink(projectionMatrix, yearsToForecast, BLOCK_SIZE);
+    }
+
+    @Override
+    void releaseSink(PathSink sink) {
+      MappedSink mappedSink = (MappedSink) sink;
+      mappedSink.flush();
+      idleSinks.add(mappedSink);
+    }
+
+    @Override
+    void contributeTo(SimulationResult.SimulationResultBuilder result) {
+      projectionMatrix.limitNumOfPaths(numOfPaths);
+      result.projectionMatrix(projectionMatrix);
+    }
+  }
+
+  /**
+   * Buffers consecutive paths in a year-major block and writes each year of the block with one bulk put.
+   */
+  private static final class MappedSink implements PathSink {
+
+    private final MappedProjectionMatrix projectionMatrix;
+    private final int yearsToForecast;
+    private final int blockSize;
+    private final double[] block;
+    private int fromSim;
+    private int length;
+
+    MappedSink(MappedProjectionMatrix projectionMatrix, int yearsToForecast, int blockSize) {
+      this.projectionMatrix = projectionMatrix;
+      this.yearsToForecast = yearsToForecast;
+      this.blockSize = blockSize;
+      this.block = new double[yearsToForecast * blockSize];
+    }
+
+    @Override
+    public void accept(int sim, double[] balances) {
+      if (length == blockSize || (length > 0 && sim != fromSim + length)) {
+        flush();
+      }
+      if (length == 0) {
+        fromSim = sim;
+      }
+      for (int year = 0; year < yearsToForecast; year++) {
+        block[year * blockSize + length] = balances[year];
+      }
+      length++;
+    }
+
+    void flush() {
+      for (int year = 0; year < yearsToForecast && length > 0; year++) {
+        projectionMatrix.setYearBlock(year, fromSim, block, year * blockSize, length);
+      }
+      length = 0;
+    }
+  }
+
+  private static final class BatchedMatrixCollector extends ResultCollector {
+
+    private final int yearsToForecast;
+    private final List<DenseProjectionMatrix> batches = new ArrayList<>();
+    private PathSink batchSink;
+
+    BatchedMatrixCollector(int yearsToForecast) {
+      this.yearsToForecast = yearsToForecast;
+    }
+
+    @Override
+    void beginBatch(int fromSim, int toSim) {
+      DenseProjectionMatrix batch = new DenseProjectionMatrix(toSim - fromSim, yearsToForecast);
+      batches.add(batch);
+      batchSink = (sim, balances) -> batch.setPath(sim - fromSim, balances, 0);
+    }
+
+    @Override
+    PathSink acquireSink() {
+      return batchSink;
+    }
+
+    @Override
+    void releaseSink(PathSink sink) {
+    }
+
+    @Override
+    void contributeTo(SimulationResult.SimulationResultBuilder result) {
+      result.projectionMatrix(batches.size() == 1 ? batches.get(0) : DenseProjectionMatrix.concat(batches));
+    }
+  }
+
+  private static final class YearCaptureCollector extends ResultCollector implements PathSink {
+
+    private final double[] values;
+    private final int fromSim;
+    private final int year;
+
+    YearCaptureCollector(double[] values, int fromSim, int year) {
+      this.values = values;
+      this.fromSim = fromSim;
+      this.year = year;
+    }
+
+    @Override
+    public void accept(int sim, double[] balances) {
+      values[sim - fromSim] = balances[year];
+    }
+
+    @Override
+    PathSink acquireSink() {
+      return this;
+    }
+
+    @Override
+    void releaseSink(PathSink sink) {
+    }
+
+    @Override
+    void contributeTo(SimulationResult.SimulationResultBuilder result) {
+    }
+  }
+
+  private static final class CompositeCollector extends ResultCollector {
+
+    private final ResultCollector first;
+    private final ResultCollector second;
+
+    CompositeCollector(ResultCollector first, ResultCollector second) {
+      this.first = first;
+      this.second = second;
+    }
+
+    @Override
+    void beginBatch(int fromSim, int toSim) {
+      first.beginBatch(fromSim, toSim);
+      second.beginBatch(fromSim, toSim);
+    }
+
+    @Override
+    PathSink acquireSink() {
+      return new CompositeSink(first.acquireSink(), second.acquireSink());
+    }
+
+    @Override
+    void releaseSink(PathSink sink) {
+      CompositeSink compositeSink = (CompositeSink) sink;
+      first.releaseSink(compositeSink.first);
+      second.releaseSink(compositeSink.second);
+    }
+
+    @Override
+    void contributeTo(SimulationResult.SimulationResultBuilder result) {
+      first.contributeTo(result);
+      second.contributeTo(result);
+    }
+  }
+
+  private static final class CompositeSink implements PathSink {
+
+    private final PathSink first;
+    private final PathSink second;
+
+    CompositeSink(PathSink first, PathSink second) {
+      this.first = first;
+      this.second = second;
+    }
+
+    @Override
+    public void accept(int sim, double[] balances) {
+      first.accept(sim, balances);
+      second.accept(sim, balances);
+    }
+  }
+
+  private static final class SketchCollector extends ResultCollector {
+
+    private final int yearsToForecast;
+    private final double relativeAccuracy;
+    private final ConcurrentLinkedQueue<SketchSink> idleSinks = new ConcurrentLinkedQueue<>();
+    private final List<SketchSink> allSinks = new ArrayList<>();
+
+    SketchCollector(int yearsToForecast, double relativeAccuracy) {
+      this.yearsToForecast = yearsToForecast;
+      this.relativeAccuracy = relativeAccuracy;
+    }
+
+    @Override
+    PathSink acquireSink() {
+      SketchSink sink = idleSinks.poll();
+      if (sink == null) {
+        sink = new SketchSink(yearsToForecast, relativeAccuracy);
+        synchronized (allSinks) {
+          allSinks.add(sink);
+        }
+      }
+      return sink;
+    }
+
+    @Override
+    void releaseSink(PathSink sink) {
+      idleSinks.add((SketchSink) sink);
+    }
+
+    @Override
+    void contributeTo(SimulationResult.SimulationResultBuilder result) {
+      QuantileSketch[] yearSketches = new QuantileSketch[yearsToForecast];
+      for (int year = 0; year < yearsToForecast; year++) {
+        yearSketches[year] = new QuantileSketch(relativeAccuracy);
+        synchronized (allSinks) {
+          for (SketchSink sink : allSinks) {
+            yearSketches[year].merge(sink.yearSketches[year]);
+          }
+        }
+      }
+      result.yearSketches(yearSketches);
+    }
+  }
+
+  private static final class SketchSink implements PathSink {
+
+    private final QuantileSketch[] yearSketches;
+
+    SketchSink(int yearsToForecast, double relativeAccuracy) {
+      yearSketches = new QuantileSketch[yearsToForecast];
+      for (int year = 0; year < yearsToForecast; year++) {
+        yearSketches[year] = new QuantileSketch(relativeAccuracy);
+      }
+    }
+
+    @Override
+    public void accept(int sim, double[] balances) {
+      for (int year = 0; year < yearSketches.length; year++) {
+        yearSketches[year].add(balances[year]);
+      }
+    }
+  }
+
+  private static final class RiskMetricsCollector extends ResultCollector {
+
+    private final int yearsToForecast;
+    private final double shortfallLevel;
+    private final double relativeAccuracy;
+    private final ConcurrentLinkedQueue<RiskMetricsSink> idleSinks = new ConcurrentLinkedQueue<>();
+    private final List<RiskMetricsSink> allSinks = new ArrayList<>();
+
+    RiskMetricsCollector(int yearsToForecast, double shortfallLevel, double relativeAccuracy) {
+      this.yearsToForecast = yearsToForecast;
+      this.shortfallLevel = shortfallLevel;
+      this.relativeAccuracy = relativeAccuracy;
+    }
+
+    @Override
+    PathSink acquireSink() {
+      RiskMetricsSink sink = idleSinks.poll();
+      if (sink == null) {
+        sink = new RiskMetricsSink(new PathRiskMetrics(yearsToForecast, shortfallLevel, relativeAccuracy));
+        synchronized (allSinks) {
+          allSinks.add(sink);
+        }
+      }
+      return sink;
+    }
+
+    @Override
+    void releaseSink(PathSink sink) {
+      idleSinks.add((RiskMetricsSink) sink);
+    }
+
+    @Override
+    void contributeTo(SimulationResult.SimulationResultBuilder result) {
+      PathRiskMetrics riskMetrics = new PathRiskMetrics(yearsToForecast, shortfallLevel, relativeAccuracy);
+      synchronized (allSinks) {
+        for (RiskMetricsSink sink : allSinks) {
+          riskMetrics.merge(sink.riskMetrics);
+        }
+      }
+      result.riskMetrics(riskMetrics);
+    }
+  }
+
+  private static final class RiskMetricsSink implements PathSink {
+
+    private final PathRiskMetrics riskMetrics;
+
+    RiskMetricsSink(PathRiskMetrics riskMetrics) {
+      this.riskMetrics = riskMetrics;
+    }
+
+    @Override
+    public void accept(int sim, double[] balances) {
+      riskMetrics.add(balances);
+    }
+  }
+
+  private static final class ExportCollector extends ResultCollector {
+
+    private final PathExporter exporter;
+    private final ConcurrentLinkedQueue<ExportSink> idleSinks = new ConcurrentLinkedQueue<>();
+
+    ExportCollector(PathExporter exporter) {
+      this.exporter = exporter;
+    }
+
+    @Override
+    PathSink acquireSink() {
+      ExportSink sink = idleSinks.poll();
+      return sink != null ? sink : new ExportSink(exporter.newWriter());
+    }
+
+    @Override
+    void releaseSink(PathSink sink) {
+      idleSinks.add((ExportSink) sink);
+    }
+
+    @Override
+    void contributeTo(SimulationResult.SimulationResultBuilder result) {
+    }
+  }
+
+  private static final class ExportSink implements PathSink {
+
+    private final PathExporter.Writer writer;
+
+    ExportSink(PathExporter.Writer writer) {
+      this.writer = writer;
+    }
+
+    @Override
+    public void accept(int sim, double[] balances) {
+      try {
+        writer.write(sim, balances);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot export path " + sim, e);
+      }
+    }
+  }
+}
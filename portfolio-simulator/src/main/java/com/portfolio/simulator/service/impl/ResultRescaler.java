@@ -0,0 +1,54 @@
+package com.portfolio.simulator.service.impl;
+
+import com.portfolio.simulator.domain.DenseProjectionMatrix;
+import com.portfolio.simulator.domain.NumericMode;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.ResultStorage;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+
+import java.math.BigDecimal;
+
+/**
+ * Derives the run of a portfolio from a run of the same allocation and shocks at another starting balance. Balances
+ * grow linearly in the starting balance, so rescaled balances agree with a fresh run to within a few ulps.
+ */
+final class ResultRescaler {
+
+  private ResultRescaler() {
+  }
+
+  /**
+   * {@link NumericMode#FIXED_POINT_CENTS} rounds every year to whole cents, sketch buckets cannot be shifted exactly,
+   * and an adaptive run could stop at a different batch, so none of those can be rescaled. Resumable runs are left
+   * alone too, since their saved terminal state belongs to the simulated balance. Cash flows do not scale with the
+   * starting balance, and the risk metrics were accumulated at the simulated one.
+   */
+  static boolean isRescalable(SimulationParams params) {
+    return params.getResultStorage() == ResultStorage.MATRIX
+      && params.getNumericMode() != NumericMode.FIXED_POINT_CENTS
+      && params.getConvergenceCriteria() == null
+      && !params.isResumable()
+      && params.getCashFlows() == null
+      && !params.isRiskMetrics();
+  }
+
+  static double scaleFactor(BigDecimal simulatedBalance, Portfolio portfolio) {
+    return portfolio.getBalance().doubleValue() / simulatedBalance.doubleValue();
+  }
+
+  static SimulationResult rescale(SimulationResult result, BigDecimal simulatedBalance, Portfolio portfolio) {
+    DenseProjectionMatrix matrix = DenseProjectionMatrix.scale(
+      result.getProjectionMatrix(), scaleFactor(simulatedBalance, portfolio));
+    double principal = portfolio.getBalance().doubleValue();
+    for (int path = 0; path < matrix.getNumOfPaths(); path++) {
+      matrix.set(path, 0, principal);
+    }
+    return SimulationResult.builder()
+      .portfolio(portfolio)
+      .projectionMatrix(matrix)
+      .seed(result.getSeed())
+      .numOfSimulations(result.getNumOfSimulations())
+      .build();
+  }
+}
@@ -0,0 +1,38 @@
+package com.portfolio.simulator.service.impl;
+
+import com.portfolio.simulator.service.ProgressListener;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cooperative cancellation and progress for one run, consulted by the simulator between chunks of paths. The run is
+ * cancelled once its future completes by any other means than the run itself.
+ */
+final class RunControl {
+
+  private final Future<?> future;
+  private final ProgressListener listener;
+  private final long totalPaths;
+  private final AtomicLong completedPaths = new AtomicLong();
+
+  RunControl(Future<?> future, ProgressListener listener, long totalPaths) {
+    this.future = future;
+    this.listener = listener;
+    this.totalPaths = totalPaths;
+  }
+
+  void checkCancelled() {
+    if (future.isDone()) {
+      throw new CancellationException("Simulation was cancelled");
+    }
+  }
+
+  void advance(int numOfPaths) {
+    long completed = completedPaths.addAndGet(numOfPaths);
+    if (listener != null) {
+      listener.onProgress(completed, totalPaths);
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package com.portfolio.simulator.service.impl;
+
+import com.portfolio.simulator.domain.AssetAllocation;
+import com.portfolio.simulator.domain.ConvergenceCriteria;
+import com.portfolio.simulator.domain.NumericMode;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.ResultStorage;
+import com.portfolio.simulator.domain.SamplingStrategy;
+import com.portfolio.simulator.domain.SimulationParams;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Everything that determines a seeded run. Whether the run is parallel is left out since it does not change the
+ * results, and the balance is left out when the caller can rescale a run to any balance. Whether a run has risk
+ * metrics is keyed through their shortfall level, which is zero without them. Asset allocations have no value
+ * equality, so multi-asset runs only match the same allocation instance.
+ */
+final class RunKey {
+
+  private final PortfolioType portfolioType;
+  private final BigDecimal historicalReturn;
+  private final BigDecimal historicalRisk;
+  private final AssetAllocation assetAllocation;
+  private final BigDecimal balance;
+  private final int numOfSimulations;
+  private final int yearsToForecast;
+  private final BigDecimal inflationRate;
+  private final long seed;
+  private final NumericMode numericMode;
+  private final SamplingStrategy samplingStrategy;
+  private final ResultStorage resultStorage;
+  private final double sketchRelativeAccuracy;
+  private final List<Object> convergenceCriteria;
+  private final boolean resumable;
+  private final List<BigDecimal> cashFlows;
+  private final double shortfallLevel;
+
+  RunKey(Portfolio portfolio, SimulationParams params, boolean anyBalance) {
+    this.portfolioType = portfolio.getType();
+    this.historicalReturn = portfolio.getTargetAllocation() == null
+      ? null : normalise(portfolio.getTargetAllocation().getHistoricalReturn());
+    this.historicalRisk = portfolio.getTargetAllocation() == null
+      ? null : normalise(portfolio.getTargetAllocation().getHistoricalRisk());
+    this.assetAllocation = portfolio.getAssetAllocation();
+    this.balance = anyBalance ? null : normalise(portfolio.getBalance());
+    this.numOfSimulations = params.getConvergenceCriteria() == null ? params.getNumOfSimulations() : 0;
+    this.yearsToForecast = params.getYearsToForecast();
+    this.inflationRate = normalise(params.getInflationRate());
+    this.seed = params.getSeed();
+    this.numericMode = params.getNumericMode();
+    this.samplingStrategy = params.getSamplingStrategy();
+    this.resultStorage = params.getResultStorage();
+    this.sketchRelativeAccuracy = params.getResultStorage() == ResultStorage.SKETCH || params.isRiskMetrics()
+      ? params.getSketchRelativeAccuracy() : 0;
+    ConvergenceCriteria criteria = params.getConvergenceCriteria();
+    this.convergenceCriteria = criteria == null ? null : Arrays.asList(
+      criteria.getTargetPercentiles(),
+      criteria.getTolerance(),
+      criteria.getConfidenceLevel(),
+      criteria.getBatchSize(),
+      criteria.getMinBatches(),
+      criteria.getMaxSimulations(),
+      criteria.getYear());
+    this.resumable = params.isResumable();
+    this.cashFlows = params.getCashFlows() == null ? null : normalise(params.getCashFlows());
+    this.shortfallLevel = params.isRiskMetrics() ? params.getShortfallLevel() : 0;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof RunKey)) {
+      return false;
+    }
+    RunKey other = (RunKey) o;
+    return numOfSimulations == other.numOfSimulations
+      && yearsToForecast == other.yearsToForecast
+      && seed == other.seed
+      && resumable == other.resumable
+      && Double.compare(sketchRelativeAccuracy, other.sketchRelativeAccuracy) == 0
+      && Double.compare(shortfallLevel, other.shortfallLevel) == 0
+      && portfolioType == other.portfolioType
+      && numericMode == other.numericMode
+      && samplingStrategy == other.samplingStrategy
+      && resultStorage == other.resultStorage
+      && Objects.equals(historicalReturn, other.historicalReturn)
+      && Objects.equals(historicalRisk, other.historicalRisk)
+      && assetAllocation == other.assetAllocation
+      && Objects.equals(balance, other.balance)
+      && Objects.equals(inflationRate, other.inflationRate)
+      && Objects.equals(convergenceCriteria, other.convergenceCriteria)
+      && Objects.equals(cashFlows, other.cashFlows);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(portfolioType, historicalReturn, historicalRisk, assetAllocation, balance, numOfSimulations,
+      yearsToForecast, inflationRate, seed, numericMode, samplingStrategy, resultStorage, sketchRelativeAccuracy,
+      convergenceCriteria, resumable, cashFlows, shortfallLevel);
+  }
+
+  private static BigDecimal normalise(BigDecimal value) {
+    return value == null ? null : value.stripTrailingZeros();
+  }
+
+  private static List<BigDecimal> normalise(List<BigDecimal> values) {
+    List<BigDecimal> normalised = new ArrayList<>(values.size());
+    for (BigDecimal value : values) {
+      normalised.add(normalise(value));
+    }
+    return normalised;
+  }
+}
@@ -0,0 +1,112 @@
+package com.portfolio.simulator.service.impl;
+
+import com.portfolio.simulator.domain.QuantileSketch;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.metrics.SimulationMetrics;
+import com.portfolio.simulator.metrics.SimulationPhase;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates one run's measurements across the threads that simulate it and reports them when the run finishes.
+ * Only created when metrics are enabled; a disabled run passes {@code null} instead.
+ */
+final class RunMetrics {
+
+  private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN = allocationBean();
+
+  private final SimulationMetrics metrics;
+  private final Thread coordinator;
+  private final long startNanos;
+  private final long coordinatorAllocatedBytes;
+  private final LongAdder drawNanos = new LongAdder();
+  private final LongAdder compoundingNanos = new LongAdder();
+  private final LongAdder workerAllocatedBytes = new LongAdder();
+
+  private RunMetrics(SimulationMetrics metrics) {
+    this.metrics = metrics;
+    this.coordinator = Thread.currentThread();
+    this.coordinatorAllocatedBytes = threadAllocatedBytes();
+    this.startNanos = System.nanoTime();
+  }
+
+  static RunMetrics start(SimulationMetrics metrics) {
+    return metrics.isEnabled() ? new RunMetrics(metrics) : null;
+  }
+
+  void addDrawNanos(long nanos) {
+    drawNanos.add(nanos);
+  }
+
+  void addCompoundingNanos(long nanos) {
+    compoundingNanos.add(nanos);
+  }
+
+  /**
+   * Wraps work done for this run on a pooled thread so that its allocations are counted; work on the coordinating
+   * thread is already covered from {@link #start} to {@link #finish}.
+   */
+  void runMeasured(Runnable work) {
+    if (Thread.currentThread() == coordinator || ALLOCATION_BEAN == null) {
+      work.run();
+      return;
+    }
+    long before = threadAllocatedBytes();
+    try {
+      work.run();
+    } finally {
+      workerAllocatedBytes.add(threadAllocatedBytes() - before);
+    }
+  }
+
+  void recordPhase(SimulationPhase phase, long phaseStartNanos) {
+    metrics.recordPhase(phase, System.nanoTime() - phaseStartNanos);
+  }
+
+  void finish(long numOfPaths, long resultSizeInBytes) {
+    long nanos = System.nanoTime() - startNanos;
+    metrics.recordPhase(SimulationPhase.DRAW_GENERATION, drawNanos.sum());
+    metrics.recordPhase(SimulationPhase.COMPOUNDING, compoundingNanos.sum());
+    long allocatedBytes = ALLOCATION_BEAN == null
+      ? -1
+      : threadAllocatedBytes() - coordinatorAllocatedBytes + workerAllocatedBytes.sum();
+    metrics.recordRun(numOfPaths, nanos, allocatedBytes, resultSizeInBytes);
+  }
+
+  static long resultSizeInBytes(SimulationResult result) {
+    long size = 0;
+    if (result.getProjectionMatrix() != null) {
+      size += 8L * result.getProjectionMatrix().getNumOfPaths() * result.getProjectionMatrix().getNumOfYears();
+    }
+    if (result.getYearSketches() != null) {
+      for (QuantileSketch sketch : result.getYearSketches()) {
+        size += sketch.getSizeInBytes();
+      }
+    }
+    if (result.getRiskMetrics() != null) {
+      size += result.getRiskMetrics().getSizeInBytes();
+    }
+    return size;
+  }
+
+  private static long threadAllocatedBytes() {
+    return ALLOCATION_BEAN == null ? 0 : ALLOCATION_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  private static com.sun.management.ThreadMXBean allocationBean() {
+    try {
+      ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+      if (threadBean instanceof com.sun.management.ThreadMXBean) {
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+          return allocationBean;
+        }
+      }
+    } catch (LinkageError | RuntimeException e) {
+      // not a HotSpot-compatible JVM
+    }
+    return null;
+  }
+}
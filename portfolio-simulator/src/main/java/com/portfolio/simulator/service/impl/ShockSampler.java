@@ -0,0 +1,260 @@
+package com.portfolio.simulator.service.impl;
+
+import com.portfolio.simulator.domain.ResumeState;
+import com.portfolio.simulator.domain.SamplingStrategy;
+import com.portfolio.simulator.random.BrownianBridge;
+import com.portfolio.simulator.random.InverseNormal;
+import com.portfolio.simulator.random.NormalSource;
+import com.portfolio.simulator.random.SobolSequence;
+import com.portfolio.simulator.random.SplitMix64;
+
+import java.util.function.Supplier;
+
+/**
+ * Produces the standard-normal shocks of a path for the selected {@link SamplingStrategy}. Shocks depend only on the
+ * seed and the path index, never on which chunk or thread asks for them. Instances are not thread-safe; create one per
+ * chunk from a shared {@link Factory}.
+ */
+abstract class ShockSampler {
+
+  /**
+   * Fills {@code shocks[1..yearsToForecast-1]} for the given path.
+   */
+  abstract void fill(int sim, double[] shocks, int yearsToForecast);
+
+  /**
+   * Whether a path can be continued past the horizon it was drawn for, which holds for strategies that draw each path
+   * from its own sequential stream.
+   */
+  boolean isResumable() {
+    return false;
+  }
+
+  /**
+   * Records the stream position of the last filled path at {@code index} of {@code state}. Strategies that cannot be
+   * resumed have no position to record, so their paths can still be added to but not extended.
+   */
+  void save(ResumeState state, int index) {
+  }
+
+  /**
+   * Continues the path saved at {@code index} of {@code state}, filling {@code shocks[fromYear..toYear-1]} with the
+   * draws an uninterrupted {@link #fill} over {@code toYear} years would produce. Without a saved position the path's
+   * earlier draws are replayed.
+   */
+  void resume(ResumeState state, int index, int sim, double[] shocks, int fromYear, int toYear) {
+    throw new UnsupportedOperationException("Sampling strategy cannot be resumed");
+  }
+
+  /**
+   * {@code numOfStrata} is the number of paths that {@link SamplingStrategy#STRATIFIED} spreads over one set of
+   * strata; consecutive blocks of that many paths are stratified independently of each other.
+   */
+  static Factory factory(SamplingStrategy samplingStrategy, long seed, int numOfStrata, int yearsToForecast) {
+    return factory(samplingStrategy, seed, numOfStrata, yearsToForecast, NormalSource.polar());
+  }
+
+  /**
+   * {@code normalSources} supplies the Gaussian draws of {@link SamplingStrategy#PSEUDO_RANDOM} and
+   * {@link SamplingStrategy#ANTITHETIC}; the quasi-random and stratified strategies map uniforms through the inverse
+   * normal CDF instead.
+   */
+  static Factory factory(SamplingStrategy samplingStrategy,
+                         long seed,
+                         int numOfStrata,
+                         int yearsToForecast,
+                         Supplier<NormalSource> normalSources) {
+    switch (samplingStrategy) {
+      case ANTITHETIC:
+        return () -> new AntitheticSampler(seed, normalSources.get());
+      case SOBOL:
+        SobolSequence sobolSequence = new SobolSequence(Math.max(yearsToForecast - 1, 1), seed);
+        return () -> new SobolSampler(sobolSequence, yearsToForecast);
+      case STRATIFIED:
+        return () -> new StratifiedSampler(seed, numOfStrata, yearsToForecast);
+      case PSEUDO_RANDOM:
+      default:
+        return () -> new PseudoRandomSampler(seed, normalSources.get());
+    }
+  }
+
+  /**
+   * Serves shocks generated ahead of time, stored path by path with a stride of {@code yearsToForecast}, so that
+   * several runs can share one set of draws.
+   */
+  static Factory shared(double[] shocks, int yearsToForecast) {
+    return () -> new SharedSampler(shocks, yearsToForecast);
+  }
+
+  interface Factory {
+    ShockSampler create();
+  }
+
+  private static class PseudoRandomSampler extends ShockSampler {
+
+    final long seed;
+    final NormalSource normalSource;
+
+    PseudoRandomSampler(long seed, NormalSource normalSource) {
+      this.seed = seed;
+      this.normalSource = normalSource;
+    }
+
+    @Override
+    void fill(int sim, double[] shocks, int yearsToForecast) {
+      normalSource.reset(SplitMix64.streamSeed(seed, sim));
+      normalSource.fill(shocks, 1, yearsToForecast - 1);
+    }
+
+    @Override
+    boolean isResumable() {
+      return true;
+    }
+
+    @Override
+    void save(ResumeState state, int index) {
+      if (state.getStreamStates() != null) {
+        state.getStreamStates()[index] = normalSource.getState();
+        state.getPendingDeviates()[index] = normalSource.getPendingDeviate();
+      }
+    }
+
+    @Override
+    void resume(ResumeState state, int index, int sim, double[] shocks, int fromYear, int toYear) {
+      if (state.getStreamStates() != null) {
+        normalSource.restore(state.getStreamStates()[index], state.getPendingDeviates()[index]);
+      } else {
+        normalSource.reset(SplitMix64.streamSeed(seed, sim));
+        for (int year = 1; year < fromYear; year++) {
+          normalSource.next();
+        }
+      }
+      normalSource.fill(shocks, fromYear, toYear - fromYear);
+    }
+  }
+
+  private static final class SharedSampler extends ShockSampler {
+
+    private final double[] shocks;
+    private final int stride;
+
+    SharedSampler(double[] shocks, int stride) {
+      this.shocks = shocks;
+      this.stride = stride;
+    }
+
+    @Override
+    void fill(int sim, double[] shocks, int yearsToForecast) {
+      System.arraycopy(this.shocks, sim * stride + 1, shocks, 1, yearsToForecast - 1);
+    }
+  }
+
+  private static final class AntitheticSampler extends PseudoRandomSampler {
+
+    AntitheticSampler(long seed, NormalSource normalSource) {
+      super(seed, normalSource);
+    }
+
+    @Override
+    void fill(int sim, double[] shocks, int yearsToForecast) {
+      super.fill(sim & ~1, shocks, yearsToForecast);
+      if ((sim & 1) != 0) {
+        for (int year = 1; year < yearsToForecast; year++) {
+          shocks[year] = -shocks[year];
+        }
+      }
+    }
+
+    @Override
+    void resume(ResumeState state, int index, int sim, double[] shocks, int fromYear, int toYear) {
+      super.resume(state, index, sim & ~1, shocks, fromYear, toYear);
+      if ((sim & 1) != 0) {
+        for (int year = fromYear; year < toYear; year++) {
+          shocks[year] = -shocks[year];
+        }
+      }
+    }
+  }
+
+  private static final class SobolSampler extends ShockSampler {
+
+    private final SobolSequence sobolSequence;
+    private final BrownianBridge brownianBridge;
+    private final double[] normals;
+    private final double[] path;
+
+    SobolSampler(SobolSequence sobolSequence, int yearsToForecast) {
+      int steps = Math.max(yearsToForecast - 1, 0);
+      this.sobolSequence = sobolSequence;
+      this.brownianBridge = new BrownianBridge(steps);
+      this.normals = new double[steps];
+      this.path = new double[steps];
+    }
+
+    @Override
+    void fill(int sim, double[] shocks, int yearsToForecast) {
+      for (int dimension = 0; dimension < normals.length; dimension++) {
+        normals[dimension] = InverseNormal.cdfInverse(sobolSequence.get(sim, dimension));
+      }
+      brownianBridge.transform(normals, 0, path, shocks, 1);
+    }
+  }
+
+  private static final class StratifiedSampler extends ShockSampler {
+
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private final long seed;
+    private final int numOfStrata;
+    private final int permutationBits;
+    private final SplitMix64 random;
+    private final BrownianBridge brownianBridge;
+    private final double[] normals;
+    private final double[] path;
+
+    StratifiedSampler(long seed, int numOfStrata, int yearsToForecast) {
+      int steps = Math.max(yearsToForecast - 1, 0);
+      int bits = 64 - Long.numberOfLeadingZeros(Math.max(numOfStrata - 1, 1));
+      this.seed = seed;
+      this.numOfStrata = numOfStrata;
+      this.permutationBits = bits + (bits & 1);
+      this.random = new SplitMix64(seed);
+      this.brownianBridge = new BrownianBridge(steps);
+      this.normals = new double[steps];
+      this.path = new double[steps];
+    }
+
+    @Override
+    void fill(int sim, double[] shocks, int yearsToForecast) {
+      random.reset(SplitMix64.streamSeed(seed, sim));
+      int block = sim / numOfStrata;
+      for (int dimension = 0; dimension < normals.length; dimension++) {
+        long stratum = permute(sim % numOfStrata, SplitMix64.streamSeed(~seed - block, dimension));
+        double offset = ((random.nextLong() >>> 11) + 0.5) * DOUBLE_UNIT;
+        normals[dimension] = InverseNormal.cdfInverse((stratum + offset) / numOfStrata);
+      }
+      brownianBridge.transform(normals, 0, path, shocks, 1);
+    }
+
+    /**
+     * Keyed bijection of [0, numOfStrata) built from a four-round Feistel network over the smallest even number of
+     * bits that covers the range, cycle-walking until the output falls back inside it.
+     */
+    private long permute(long index, long key) {
+      int halfBits = permutationBits / 2;
+      long halfMask = (1L << halfBits) - 1;
+      long value = index;
+      do {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (int round = 0; round < 4; round++) {
+          long next = left ^ (SplitMix64.mix64(right ^ (key + round)) & halfMask);
+          left = right;
+          right = next;
+        }
+        value = (left << halfBits) | right;
+      } while (value >= numOfStrata);
+      return value;
+    }
+  }
+}
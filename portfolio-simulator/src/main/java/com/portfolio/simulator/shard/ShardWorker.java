@@ -0,0 +1,54 @@
+package com.portfolio.simulator.shard;
+
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.io.ShardMessages;
+import com.portfolio.simulator.service.ShardSimulator;
+import com.portfolio.simulator.service.impl.MonteCarloSimulator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Worker side of {@link ShardedSimulator}: answers shard requests one after another until its input ends, reporting a
+ * shard that fails back to the coordinator instead of exiting. Run as a process it serves standard input and output,
+ * with anything else the JVM prints diverted to standard error.
+ */
+public class ShardWorker {
+
+  private final ShardSimulator simulator;
+
+  public ShardWorker(ShardSimulator simulator) {
+    this.simulator = simulator;
+  }
+
+  public static void main(String[] args) throws IOException {
+    OutputStream out = new FileOutputStream(FileDescriptor.out);
+    System.setOut(System.err);
+    new ShardWorker(new MonteCarloSimulator()).serve(System.in, out);
+  }
+
+  public void serve(InputStream input, OutputStream output) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(input, 1 << 16));
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+    ShardMessages.Request request;
+    while ((request = ShardMessages.readRequest(in)) != null) {
+      try (SimulationResult shard = simulator.runShard(request.getPortfolio(), request.getParams(), request.getSeed(),
+        request.getFromSim(), request.getToSim())) {
+        ShardMessages.writeShard(out, shard, request.getCodec());
+      } catch (InvalidSimulationParamsException e) {
+        ShardMessages.writeInvalid(out, e.getMessage());
+      } catch (RuntimeException e) {
+        ShardMessages.writeFailed(out, "Shard of paths [" + request.getFromSim() + ", " + request.getToSim()
+          + ") failed: " + e);
+      }
+    }
+  }
+}
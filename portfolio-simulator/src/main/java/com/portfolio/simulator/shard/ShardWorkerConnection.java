@@ -0,0 +1,14 @@
+package com.portfolio.simulator.shard;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+/**
+ * Both ends of the byte streams to one {@link ShardWorker}. Closing the connection ends the worker.
+ */
+public interface ShardWorkerConnection extends Closeable {
+  DataOutputStream getRequests();
+
+  DataInputStream getResponses();
+}
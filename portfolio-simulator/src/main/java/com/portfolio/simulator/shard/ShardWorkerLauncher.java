@@ -0,0 +1,74 @@
+package com.portfolio.simulator.shard;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts {@link ShardWorker}s for a {@link ShardedSimulator}.
+ */
+public interface ShardWorkerLauncher {
+
+  ShardWorkerConnection launch() throws IOException;
+
+  /**
+   * Workers in child JVMs on this machine, started with the current Java installation and class path.
+   */
+  static ShardWorkerLauncher localProcesses(String... jvmArgs) {
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    command.addAll(Arrays.asList(jvmArgs));
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(ShardWorker.class.getName());
+    return command(command);
+  }
+
+  /**
+   * Workers started by an arbitrary command that ends up running {@link ShardWorker#main} with its standard input and
+   * output connected to this process, e.g. through {@code ssh} to spread workers over several hosts.
+   */
+  static ShardWorkerLauncher command(List<String> command) {
+    List<String> workerCommand = new ArrayList<>(command);
+    return () -> {
+      Process process = new ProcessBuilder(workerCommand)
+        .redirectError(ProcessBuilder.Redirect.INHERIT)
+        .start();
+      DataOutputStream requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream(), 1 << 16));
+      DataInputStream responses = new DataInputStream(new BufferedInputStream(process.getInputStream(), 1 << 16));
+      return new ShardWorkerConnection() {
+        @Override
+        public DataOutputStream getRequests() {
+          return requests;
+        }
+
+        @Override
+        public DataInputStream getResponses() {
+          return responses;
+        }
+
+        @Override
+        public void close() {
+          try {
+            requests.close();
+            if (!process.waitFor(1, TimeUnit.SECONDS)) {
+              process.destroyForcibly();
+            }
+          } catch (IOException e) {
+            process.destroyForcibly();
+          } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+          }
+        }
+      };
+    };
+  }
+}
@@ -0,0 +1,282 @@
+package com.portfolio.simulator.shard;
+
+import com.portfolio.simulator.domain.DenseProjectionMatrix;
+import com.portfolio.simulator.domain.MappedProjectionMatrix;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.PathRiskMetrics;
+import com.portfolio.simulator.domain.QuantileSketch;
+import com.portfolio.simulator.domain.ResultStorage;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.exception.ShardFailedException;
+import com.portfolio.simulator.io.ColumnCodec;
+import com.portfolio.simulator.io.ShardMessages;
+import com.portfolio.simulator.service.Simulator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coordinator that splits a run into shards of consecutive paths, has {@link ShardWorker}s simulate them and merges
+ * what they return. Every path is drawn from its own stream of the run's seed, so shards never overlap and the merged
+ * result equals the run simulated in one process: year columns are concatenated in path order, or per-year sketches
+ * are merged for {@link ResultStorage#SKETCH} runs, which keeps the traffic independent of the number of paths. Risk
+ * metrics are accumulated by each worker and merged the same way.
+ *
+ * <p>Workers are started on first use and kept for later runs, at most {@code numOfWorkers} of them. A shard whose
+ * worker fails, disconnects or does not answer within the shard timeout is retried on a freshly started worker up to
+ * {@code maxAttempts} times in all; a request the worker rejects as invalid, or whose simulation throws, is not retried
+ * but rethrown. Runs with convergence criteria or resume state cannot be sharded. Workers receive a portfolio's target
+ * allocation along with it, so a multi-asset portfolio is simulated from its allocation summary exactly as
+ * {@code MonteCarloSimulator} simulates it in process.
+ */
+public class ShardedSimulator implements Simulator, AutoCloseable {
+
+  static final int DEFAULT_SHARD_SIZE = 1 << 20;
+  static final int DEFAULT_MAX_ATTEMPTS = 3;
+  static final long DEFAULT_SHARD_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+  private static final String INVALID_PARAMS_MSG = "Cannot run simulation with invalid parameters";
+
+  private final ShardWorkerLauncher launcher;
+  private final int shardSize;
+  private final int maxAttempts;
+  private final ColumnCodec codec;
+  private final long shardTimeoutMillis;
+  private final int numOfWorkers;
+  private final ExecutorService dispatcher;
+  private final ScheduledExecutorService watchdog;
+  private final ConcurrentLinkedQueue<ShardWorkerConnection> idleWorkers = new ConcurrentLinkedQueue<>();
+  private final AtomicLong retryCount = new AtomicLong();
+
+  public ShardedSimulator(ShardWorkerLauncher launcher, int numOfWorkers) {
+    this(launcher, numOfWorkers, DEFAULT_SHARD_SIZE, DEFAULT_MAX_ATTEMPTS, ColumnCodec.NONE);
+  }
+
+  /**
+   * {@code shardSize} caps the paths per shard, so that large runs are split into more shards than workers and a retry
+   * repeats only a small part; {@code codec} encodes the year columns workers send back.
+   */
+  public ShardedSimulator(ShardWorkerLauncher launcher, int numOfWorkers, int shardSize, int maxAttempts,
+                          ColumnCodec codec) {
+    this(launcher, numOfWorkers, shardSize, maxAttempts, codec, DEFAULT_SHARD_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * A worker that has not answered a shard within {@code shardTimeoutMillis} of being sent it is discarded, which
+   * ends its process, and the shard is retried like that of a failed worker.
+   */
+  public ShardedSimulator(ShardWorkerLauncher launcher, int numOfWorkers, int shardSize, int maxAttempts,
+                          ColumnCodec codec, long shardTimeoutMillis) {
+    if (numOfWorkers < 1 || shardSize < 1 || maxAttempts < 1 || shardTimeoutMillis < 1) {
+      throw new IllegalArgumentException("Workers, shard size, attempts and shard timeout must be positive");
+    }
+    this.launcher = launcher;
+    this.numOfWorkers = numOfWorkers;
+    this.shardSize = shardSize;
+    this.maxAttempts = maxAttempts;
+    this.codec = codec;
+    this.shardTimeoutMillis = shardTimeoutMillis;
+    this.dispatcher = Executors.newFixedThreadPool(numOfWorkers, runnable -> {
+      Thread thread = new Thread(runnable, "shard-dispatcher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "shard-watchdog");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @Override
+  public SimulationResult run(Portfolio portfolio, SimulationParams params) throws InvalidSimulationParamsException {
+    if (portfolio == null || portfolio.getBalance() == null || params == null || params.getInflationRate() == null
+      || params.getNumOfSimulations() < 1 || params.getYearsToForecast() < 1
+      || params.getConvergenceCriteria() != null || params.isResumable()) {
+      throw new InvalidSimulationParamsException(INVALID_PARAMS_MSG);
+    }
+
+    long seed = params.getSeed() != null ? params.getSeed() : ThreadLocalRandom.current().nextLong();
+    int numOfSimulations = params.getNumOfSimulations();
+    int numOfShards = Math.max(Math.min(numOfWorkers, numOfSimulations),
+      (int) ((numOfSimulations + (long) shardSize - 1) / shardSize));
+    List<Future<SimulationResult>> shards = new ArrayList<>(numOfShards);
+    for (int shard = 0; shard < numOfShards; shard++) {
+      ShardMessages.Request request = new ShardMessages.Request(portfolio, params, seed,
+        (int) ((long) numOfSimulations * shard / numOfShards),
+        (int) ((long) numOfSimulations * (shard + 1) / numOfShards),
+        codec);
+      shards.add(dispatcher.submit(() -> runShard(request)));
+    }
+
+    List<SimulationResult> results = new ArrayList<>(numOfShards);
+    try {
+      for (Future<SimulationResult> shard : shards) {
+        results.add(shard.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for shards", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof InvalidSimulationParamsException) {
+        throw (InvalidSimulationParamsException) e.getCause();
+      }
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      for (Future<SimulationResult> shard : shards) {
+        shard.cancel(false);
+      }
+    }
+
+    SimulationResult.SimulationResultBuilder result = SimulationResult.builder()
+      .portfolio(portfolio)
+      .seed(seed)
+      .numOfSimulations(numOfSimulations);
+    merge(results, params, result);
+    return result.build();
+  }
+
+  /**
+   * Shards repeated after their worker failed.
+   */
+  public long getRetryCount() {
+    return retryCount.get();
+  }
+
+  @Override
+  public void close() {
+    dispatcher.shutdownNow();
+    watchdog.shutdownNow();
+    ShardWorkerConnection worker;
+    while ((worker = idleWorkers.poll()) != null) {
+      closeQuietly(worker);
+    }
+  }
+
+  private SimulationResult runShard(ShardMessages.Request request) throws InvalidSimulationParamsException {
+    IOException failure = null;
+    for (int attempt = 0; attempt < maxAttempts; attempt++) {
+      if (attempt > 0) {
+        retryCount.incrementAndGet();
+      }
+      ShardWorkerConnection worker = null;
+      ScheduledFuture<?> deadline = null;
+      try {
+        worker = idleWorkers.poll();
+        if (worker == null) {
+          worker = launcher.launch();
+        }
+        ShardWorkerConnection timedWorker = worker;
+        deadline = watchdog.schedule(() -> closeQuietly(timedWorker), shardTimeoutMillis, TimeUnit.MILLISECONDS);
+        ShardMessages.writeRequest(worker.getRequests(), request);
+        SimulationResult shard = ShardMessages.readShard(worker.getResponses());
+        release(worker, deadline);
+        return shard;
+      } catch (InvalidSimulationParamsException | ShardFailedException e) {
+        release(worker, deadline);
+        throw e;
+      } catch (RuntimeException e) {
+        discard(worker, deadline);
+        throw e;
+      } catch (IOException e) {
+        failure = discard(worker, deadline)
+          ? new IOException("Shard worker did not answer within " + shardTimeoutMillis + " ms", e)
+          : e;
+      }
+    }
+    throw new UncheckedIOException("Shard of paths [" + request.getFromSim() + ", " + request.getToSim()
+      + ") failed after " + maxAttempts + " attempts", failure);
+  }
+
+  /**
+   * Keeps the worker for later shards unless its deadline passed and closed it.
+   */
+  private void release(ShardWorkerConnection worker, ScheduledFuture<?> deadline) {
+    if (deadline.cancel(false)) {
+      idleWorkers.add(worker);
+    }
+  }
+
+  /**
+   * Closes the worker, if one was started, and returns whether its deadline had already passed.
+   */
+  private static boolean discard(ShardWorkerConnection worker, ScheduledFuture<?> deadline) {
+    boolean timedOut = deadline != null && !deadline.cancel(false);
+    if (worker != null) {
+      closeQuietly(worker);
+    }
+    return timedOut;
+  }
+
+  private void merge(List<SimulationResult> shards,
+                     SimulationParams params,
+                     SimulationResult.SimulationResultBuilder result) {
+    int numOfYears = params.getYearsToForecast();
+    if (params.isRiskMetrics()) {
+      PathRiskMetrics riskMetrics = new PathRiskMetrics(
+        numOfYears, params.getShortfallLevel(), params.getSketchRelativeAccuracy());
+      for (SimulationResult shard : shards) {
+        riskMetrics.merge(shard.getRiskMetrics());
+      }
+      result.riskMetrics(riskMetrics);
+    }
+    switch (params.getResultStorage()) {
+      case SKETCH:
+        QuantileSketch[] yearSketches = new QuantileSketch[numOfYears];
+        for (int year = 0; year < numOfYears; year++) {
+          yearSketches[year] = new QuantileSketch(params.getSketchRelativeAccuracy());
+          for (SimulationResult shard : shards) {
+            yearSketches[year].merge(shard.getYearSketches()[year]);
+          }
+        }
+        result.yearSketches(yearSketches);
+        break;
+      case MAPPED:
+        MappedProjectionMatrix mapped = new MappedProjectionMatrix(params.getNumOfSimulations(), numOfYears);
+        int fromSim = 0;
+        for (SimulationResult shard : shards) {
+          int numOfPaths = shard.getProjectionMatrix().getNumOfPaths();
+          double[] column = new double[numOfPaths];
+          for (int year = 0; year < numOfYears; year++) {
+            shard.getProjectionMatrix().copyYear(year, column, 0);
+            mapped.setYearBlock(year, fromSim, column, 0, numOfPaths);
+          }
+          fromSim += numOfPaths;
+        }
+        result.projectionMatrix(mapped);
+        break;
+      case MATRIX:
+      default:
+        List<DenseProjectionMatrix> parts = new ArrayList<>(shards.size());
+        for (SimulationResult shard : shards) {
+          parts.add((DenseProjectionMatrix) shard.getProjectionMatrix());
+        }
+        result.projectionMatrix(parts.size() == 1 ? parts.get(0) : DenseProjectionMatrix.concat(parts));
+    }
+  }
+
+  private static void closeQuietly(ShardWorkerConnection worker) {
+    try {
+      worker.close();
+    } catch (IOException e) {
+      // the worker is being discarded either way
+    }
+  }
+}
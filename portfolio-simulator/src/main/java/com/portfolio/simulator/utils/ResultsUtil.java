@@ -1,6 +1,9 @@
 package com.portfolio.simulator.utils;
 
+import com.portfolio.simulator.domain.ProjectionMatrix;
+
 import java.math.BigDecimal;
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -17,4 +20,17 @@ public final class ResultsUtil {
         });
     return filteredValues.toArray(new BigDecimal[simulationResults.size()]);
   }
+
+  public static double[] retrieveResultsByYear(ProjectionMatrix projectionMatrix, int year) {
+    double[] filteredValues = new double[projectionMatrix.getNumOfPaths()];
+    projectionMatrix.copyYear(year - 1, filteredValues, 0);
+    return filteredValues;
+  }
+
+  /**
+   * Same values as {@link #retrieveResultsByYear(ProjectionMatrix, int)} without copying them where the matrix allows.
+   */
+  public static DoubleBuffer viewResultsByYear(ProjectionMatrix projectionMatrix, int year) {
+    return projectionMatrix.viewYear(year - 1);
+  }
 }
@@ -1,13 +1,139 @@
 package com.portfolio.simulator.utils;
 
+import com.portfolio.simulator.random.InverseNormal;
+
 import java.math.BigDecimal;
 import java.util.Arrays;
 
 public final class StatsPerformanceUtil {
 
+  private static final int INSERTION_SORT_THRESHOLD = 16;
+
   public static BigDecimal derivePercentile(BigDecimal[] values, double percentile) {
-    Arrays.sort(values);
-    int index = (int) Math.ceil(values.length * percentile);
-    return values[index - 1];
+    BigDecimal[] sortedValues = values.clone();
+    Arrays.sort(sortedValues);
+    return sortedValues[percentileIndex(sortedValues.length, percentile)];
+  }
+
+  public static BigDecimal[] derivePercentiles(BigDecimal[] values, double[] percentiles) {
+    BigDecimal[] sortedValues = values.clone();
+    Arrays.sort(sortedValues);
+    BigDecimal[] results = new BigDecimal[percentiles.length];
+    for (int i = 0; i < percentiles.length; i++) {
+      results[i] = sortedValues[percentileIndex(sortedValues.length, percentiles[i])];
+    }
+    return results;
+  }
+
+  public static double derivePercentile(double[] values, double percentile) {
+    return derivePercentiles(values, new double[]{percentile})[0];
+  }
+
+  public static double[] derivePercentiles(double[] values, double[] percentiles) {
+    return derivePercentilesInPlace(values.clone(), percentiles);
+  }
+
+  /**
+   * Answers every requested percentile with a single multi-way introselect over {@code values}, which is reordered in
+   * the process. Use this only on arrays the caller owns, such as a freshly extracted year column.
+   */
+  public static double[] derivePercentilesInPlace(double[] values, double[] percentiles) {
+    int[] ranks = new int[percentiles.length];
+    for (int i = 0; i < percentiles.length; i++) {
+      ranks[i] = percentileIndex(values.length, percentiles[i]);
+    }
+    int[] sortedRanks = ranks.clone();
+    Arrays.sort(sortedRanks);
+    int depthLimit = 2 * (32 - Integer.numberOfLeadingZeros(Math.max(values.length, 1)));
+    multiSelect(values, 0, values.length - 1, sortedRanks, 0, sortedRanks.length - 1, depthLimit);
+
+    double[] results = new double[percentiles.length];
+    for (int i = 0; i < percentiles.length; i++) {
+      results[i] = values[ranks[i]];
+    }
+    return results;
+  }
+
+  /**
+   * Student t quantile from the Cornish-Fisher expansion around the normal quantile (Abramowitz and Stegun 26.7.5),
+   * accurate to about four digits from five degrees of freedom upwards.
+   */
+  public static double studentTQuantile(double probability, int degreesOfFreedom) {
+    double z = InverseNormal.cdfInverse(probability);
+    double z2 = z * z;
+    double nu = degreesOfFreedom;
+    double g1 = (z2 + 1) * z / 4;
+    double g2 = ((5 * z2 + 16) * z2 + 3) * z / 96;
+    double g3 = (((3 * z2 + 19) * z2 + 17) * z2 - 15) * z / 384;
+    double g4 = ((((79 * z2 + 776) * z2 + 1482) * z2 - 1920) * z2 - 945) * z / 92160;
+    return z + g1 / nu + g2 / (nu * nu) + g3 / (nu * nu * nu) + g4 / (nu * nu * nu * nu);
+  }
+
+  public static int percentileIndex(int size, double percentile) {
+    int index = (int) Math.ceil(size * percentile) - 1;
+    return Math.min(Math.max(index, 0), size - 1);
+  }
+
+  private static void multiSelect(double[] values, int lo, int hi,
+                                  int[] ranks, int firstRank, int lastRank,
+                                  int depthLimit) {
+    while (firstRank <= lastRank && lo < hi) {
+      if (hi - lo < INSERTION_SORT_THRESHOLD || depthLimit-- == 0) {
+        Arrays.sort(values, lo, hi + 1);
+        return;
+      }
+
+      double pivot = medianOfThree(values[lo], values[lo + ((hi - lo) >>> 1)], values[hi]);
+      int lt = lo;
+      int gt = hi;
+      int i = lo;
+      while (i <= gt) {
+        int cmp = Double.compare(values[i], pivot);
+        if (cmp < 0) {
+          swap(values, lt++, i++);
+        } else if (cmp > 0) {
+          swap(values, i, gt--);
+        } else {
+          i++;
+        }
+      }
+
+      int leftLast = firstRank - 1;
+      while (leftLast < lastRank && ranks[leftLast + 1] < lt) {
+        leftLast++;
+      }
+      int rightFirst = lastRank + 1;
+      while (rightFirst > firstRank && ranks[rightFirst - 1] > gt) {
+        rightFirst--;
+      }
+
+      if (leftLast - firstRank < lastRank - rightFirst) {
+        multiSelect(values, lo, lt - 1, ranks, firstRank, leftLast, depthLimit);
+        lo = gt + 1;
+        firstRank = rightFirst;
+      } else {
+        multiSelect(values, gt + 1, hi, ranks, rightFirst, lastRank, depthLimit);
+        hi = lt - 1;
+        lastRank = leftLast;
+      }
+    }
+  }
+
+  private static double medianOfThree(double a, double b, double c) {
+    if (Double.compare(a, b) > 0) {
+      double tmp = a;
+      a = b;
+      b = tmp;
+    }
+    if (Double.compare(b, c) > 0) {
+      b = c;
+    }
+    return Double.compare(a, b) > 0 ? a : b;
+  }
+
+  private static void swap(double[] values, int i, int j) {
+    double tmp = values[i];
+    values[i] = values[j];
+    values[j] = tmp;
   }
 }
@@ -0,0 +1,63 @@
+package com.portfolio.simulator.domain;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+public class MappedProjectionMatrixTest {
+
+  @Test
+  public void shouldReadBackYearBlocksSpanningSeveralSegments() throws IOException {
+    Path directory = Files.createTempDirectory("mapped-matrix-test");
+    int numOfPaths = 37;
+    int numOfYears = 5;
+    MappedProjectionMatrix matrix = new MappedProjectionMatrix(numOfPaths, numOfYears, directory, 64);
+    double[] block = new double[numOfPaths];
+    for (int year = 0; year < numOfYears; year++) {
+      for (int path = 0; path < numOfPaths; path++) {
+        block[path] = year * 1000 + path;
+      }
+      matrix.setYearBlock(year, 0, block, 0, 20);
+      matrix.setYearBlock(year, 20, block, 20, numOfPaths - 20);
+    }
+
+    try (Stream<Path> files = Files.list(directory)) {
+      assertThat(files.count(), is(0L));
+    }
+    assertThat(matrix.getMappedSizeInBytes(), is((long) numOfPaths * numOfYears * Double.BYTES));
+    double[] year = new double[numOfPaths];
+    matrix.copyYear(3, year, 0);
+    DoubleBuffer view = matrix.viewYear(3);
+    for (int path = 0; path < numOfPaths; path++) {
+      assertThat(year[path], is(3000.0 + path));
+      assertThat(view.get(path), is(3000.0 + path));
+      assertThat(matrix.get(path, 4), is(4000.0 + path));
+    }
+    double[] path = new double[numOfYears];
+    matrix.copyPath(11, path, 0);
+    assertThat(path[2], is(2011.0));
+
+    matrix.limitNumOfPaths(30);
+    assertThat(matrix.getNumOfPaths(), is(30));
+    assertThat(matrix.viewYear(1).remaining(), is(30));
+
+    matrix.close();
+    assertThrows(IllegalStateException.class, () -> matrix.get(0, 0));
+    Files.delete(directory);
+  }
+
+  @SpringBootApplication
+  static class TestConfiguration {
+  }
+}
@@ -0,0 +1,41 @@
+package com.portfolio.simulator.domain;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+public class QuantileSketchTest {
+
+  @Test
+  public void shouldReportPercentilesWithinRelativeAccuracyAfterMerging() {
+    double relativeAccuracy = 0.01;
+    Random random = new Random(3);
+    double[] values = new double[20000];
+    QuantileSketch first = new QuantileSketch(relativeAccuracy);
+    QuantileSketch second = new QuantileSketch(relativeAccuracy);
+    for (int i = 0; i < values.length; i++) {
+      values[i] = i % 97 == 0 ? 0 : Math.exp(random.nextGaussian() * 3) * (i % 5 == 0 ? -1 : 1);
+      (i % 2 == 0 ? first : second).add(values[i]);
+    }
+    first.merge(second);
+    Arrays.sort(values);
+
+    assertThat(first.getCount(), is((long) values.length));
+    for (double percentile = 0.01; percentile < 1; percentile += 0.01) {
+      double exact = values[(int) Math.ceil(values.length * percentile) - 1];
+      assertEquals(exact, first.getPercentile(percentile), Math.abs(exact) * relativeAccuracy);
+    }
+  }
+
+  @SpringBootApplication
+  static class TestConfiguration {
+  }
+}
@@ -0,0 +1,141 @@
+package com.portfolio.simulator.io;
+
+import com.portfolio.simulator.domain.ConvergenceCriteria;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.ResultStorage;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.service.impl.MonteCarloSimulator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+public class PathExporterTest {
+
+  private static final Portfolio PORTFOLIO = new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000));
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  public void shouldExportColumnsThatReloadAsTheSameRun() throws InvalidSimulationParamsException, IOException {
+    MonteCarloSimulator simulator = new MonteCarloSimulator();
+    SimulationParams params = params(3000).toBuilder().resultStorage(ResultStorage.SKETCH).build();
+    Path file = tempDir.resolve("paths.psim");
+    SimulationResult exported;
+    try (ColumnarPathExporter exporter = new ColumnarPathExporter(file, 100)) {
+      exported = simulator.export(PORTFOLIO, params, exporter);
+    }
+    assertThat(exported.hasProjectionMatrix(), is(false));
+    SimulationResult expected = simulator.run(PORTFOLIO, params(3000));
+
+    try (SimulationResultReader reader = SimulationResultReader.open(file)) {
+      assertThat(reader.getCodec(), is(ColumnCodec.NONE));
+      assertThat(reader.getSeed(), is(17L));
+      assertThat(reader.getNumOfPaths(), is(3000));
+      for (int year = 1; year <= 20; year++) {
+        double[] expectedYear = new double[3000];
+        expected.getProjectionMatrix().copyYear(year - 1, expectedYear, 0);
+        assertArrayEquals(expectedYear, reader.readYear(year));
+      }
+    }
+  }
+
+  @Test
+  public void shouldExportOneCsvRowPerPath() throws InvalidSimulationParamsException, IOException {
+    MonteCarloSimulator simulator = new MonteCarloSimulator();
+    Path file = tempDir.resolve("paths.csv");
+    try (CsvPathExporter exporter = new CsvPathExporter(file, 4096)) {
+      simulator.export(PORTFOLIO, params(2500), exporter);
+    }
+    SimulationResult expected = simulator.run(PORTFOLIO, params(2500));
+
+    List<String> lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+    assertThat(lines.size(), is(2501));
+    assertTrue(lines.get(0).startsWith("path,year_1,year_2,"));
+    assertTrue(lines.get(0).endsWith(",year_20"));
+    boolean[] seen = new boolean[2500];
+    for (String line : lines.subList(1, lines.size())) {
+      String[] fields = line.split(",");
+      assertThat(fields.length, is(21));
+      int path = Integer.parseInt(fields[0]);
+      assertThat(seen[path], is(false));
+      seen[path] = true;
+      for (int year = 0; year < 20; year++) {
+        double value = expected.getProjectionMatrix().get(path, year);
+        assertThat(fields[year + 1].matches("-?\\d+\\.\\d\\d"), is(true));
+        assertTrue(Math.abs(Double.parseDouble(fields[year + 1]) - value) <= 0.005 + Math.ulp(value) * 100);
+      }
+    }
+  }
+
+  @Test
+  public void shouldWritePercentileTableRows() throws IOException {
+    Path file = tempDir.resolve("percentiles.csv");
+    PercentileTableWriter.write(file, Arrays.asList(0.1, 0.9),
+      new double[][] {{100000, 100000}, {95000.125, 118000.5}, {-12.3456, 1e20}});
+
+    assertThat(Files.readAllLines(file, StandardCharsets.US_ASCII), is(Arrays.asList(
+      "year,percentile,value",
+      "1,0.1,100000.00",
+      "1,0.9,100000.00",
+      "2,0.1,95000.13",
+      "2,0.9,118000.50",
+      "3,0.1,-12.35",
+      "3,0.9,1.0E20")));
+  }
+
+  @Test
+  public void shouldRejectRunsThatCannotBeExported() throws IOException {
+    MonteCarloSimulator simulator = new MonteCarloSimulator();
+    SimulationParams adaptive = params(0).toBuilder()
+      .convergenceCriteria(ConvergenceCriteria.builder()
+        .targetPercentiles(Arrays.asList(0.5))
+        .tolerance(0.01)
+        .confidenceLevel(0.95)
+        .batchSize(1000)
+        .maxSimulations(10000)
+        .build())
+      .build();
+    try (CsvPathExporter exporter = new CsvPathExporter(tempDir.resolve("adaptive.csv"))) {
+      assertThrows(InvalidSimulationParamsException.class, () -> simulator.export(PORTFOLIO, adaptive, exporter));
+    }
+
+    ColumnarPathExporter incomplete = new ColumnarPathExporter(tempDir.resolve("incomplete.psim"));
+    incomplete.begin(PORTFOLIO, params(10), 17L);
+    incomplete.newWriter().write(3, new double[20]);
+    assertThrows(IOException.class, incomplete::close);
+  }
+
+  private static SimulationParams params(int numOfSimulations) {
+    return SimulationParams.builder()
+      .numOfSimulations(numOfSimulations)
+      .yearsToForecast(20)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .seed(17L)
+      .parallel(true)
+      .build();
+  }
+
+  @SpringBootApplication
+  static class TestConfiguration {
+  }
+}
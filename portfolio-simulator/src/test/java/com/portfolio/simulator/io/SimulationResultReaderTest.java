@@ -0,0 +1,169 @@
+package com.portfolio.simulator.io;
+
+import com.portfolio.simulator.domain.AssetAllocation;
+import com.portfolio.simulator.domain.NumericMode;
+import com.portfolio.simulator.domain.PathRiskMetrics;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.service.impl.MonteCarloSimulator;
+import com.portfolio.simulator.service.impl.MultiAssetSimulator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+public class SimulationResultReaderTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  public void shouldReloadSavedResultWithEveryCodec() throws InvalidSimulationParamsException, IOException {
+    Portfolio portfolio = new Portfolio(PortfolioType.VERY_CONSERVATIVE, BigDecimal.valueOf(100000.00));
+    SimulationParams params = SimulationParams.builder()
+      .numOfSimulations(2000)
+      .yearsToForecast(12)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .seed(99L)
+      .numericMode(NumericMode.FIXED_POINT_CENTS)
+      .cashFlows(Arrays.asList(BigDecimal.valueOf(-2500.50), BigDecimal.valueOf(1000)))
+      .build();
+    SimulationResult result = new MonteCarloSimulator().run(portfolio, params);
+
+    for (ColumnCodec codec : ColumnCodec.values()) {
+      Path file = tempDir.resolve(codec + ".psim");
+      SimulationResultWriter.write(file, result, params, codec);
+
+      try (SimulationResultReader reader = SimulationResultReader.open(file)) {
+        assertThat(reader.getCodec(), is(codec));
+        assertThat(reader.getSeed(), is(99L));
+        assertThat(reader.getPortfolio().getType(), is(PortfolioType.VERY_CONSERVATIVE));
+        assertThat(reader.getPortfolio().getBalance(), is(BigDecimal.valueOf(100000.00)));
+        assertThat(reader.getPortfolio().getTargetAllocation().getHistoricalReturn(),
+          is(portfolio.getTargetAllocation().getHistoricalReturn()));
+        assertThat(reader.getPortfolio().getTargetAllocation().getHistoricalRisk(),
+          is(portfolio.getTargetAllocation().getHistoricalRisk()));
+        assertThat(reader.getParams().getNumOfSimulations(), is(2000));
+        assertThat(reader.getParams().getSeed(), is(99L));
+        assertThat(reader.getParams().getNumericMode(), is(NumericMode.FIXED_POINT_CENTS));
+        assertThat(reader.getParams().getInflationRate(), is(BigDecimal.valueOf(0.035)));
+        assertThat(reader.getParams().getCashFlows(), is(params.getCashFlows()));
+        assertThat(reader.getRiskMetrics(), is(nullValue()));
+
+        double[] expected = new double[2000];
+        result.getProjectionMatrix().copyYear(6, expected, 0);
+        assertArrayEquals(expected, reader.readYear(7));
+
+        SimulationResult reloaded = reader.readResult();
+        for (int year = 0; year < 12; year++) {
+          double[] reloadedYear = new double[2000];
+          result.getProjectionMatrix().copyYear(year, expected, 0);
+          reloaded.getProjectionMatrix().copyYear(year, reloadedYear, 0);
+          assertArrayEquals(expected, reloadedYear);
+        }
+      }
+    }
+    assertTrue(Files.size(tempDir.resolve("DEFLATE.psim")) < Files.size(tempDir.resolve("NONE.psim")) * 0.8);
+  }
+
+  @Test
+  public void shouldReloadRiskMetrics() throws InvalidSimulationParamsException, IOException {
+    Portfolio portfolio = new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00));
+    SimulationParams params = SimulationParams.builder()
+      .numOfSimulations(3000)
+      .yearsToForecast(15)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .seed(31L)
+      .cashFlows(Arrays.asList(BigDecimal.valueOf(-9000)))
+      .riskMetrics(true)
+      .shortfallLevel(0.1)
+      .build();
+    SimulationResult result = new MonteCarloSimulator().run(portfolio, params);
+    PathRiskMetrics expected = result.getRiskMetrics();
+
+    for (ColumnCodec codec : ColumnCodec.values()) {
+      Path file = tempDir.resolve("risk-" + codec + ".psim");
+      SimulationResultWriter.write(file, result, params, codec);
+
+      try (SimulationResultReader reader = SimulationResultReader.open(file)) {
+        assertThat(reader.getParams().isRiskMetrics(), is(true));
+        for (PathRiskMetrics reloaded : Arrays.asList(reader.getRiskMetrics(), reader.readResult().getRiskMetrics())) {
+          assertThat(reloaded.getNumOfPaths(), is(3000L));
+          assertThat(reloaded.getShortfallLevel(), is(0.1));
+          assertThat(reloaded.getDepletionProbability(), is(expected.getDepletionProbability()));
+          assertThat(reloaded.getDepletionProbability(15), is(expected.getDepletionProbability(15)));
+          assertThat(reloaded.getMeanMaxDrawdown(), is(expected.getMeanMaxDrawdown()));
+          assertThat(reloaded.getValueAtRisk(), is(expected.getValueAtRisk()));
+          assertThat(reloaded.getExpectedShortfall(), is(expected.getExpectedShortfall()));
+        }
+
+        double[] expectedYear = new double[3000];
+        result.getProjectionMatrix().copyYear(14, expectedYear, 0);
+        assertArrayEquals(expectedYear, reader.readYear(15));
+      }
+    }
+  }
+
+  @Test
+  public void shouldReloadMultiAssetAllocationSummary() throws InvalidSimulationParamsException, IOException {
+    Portfolio portfolio = new Portfolio(BigDecimal.valueOf(250000.00), AssetAllocation.builder()
+      .weights(new double[] {0.6, 0.4})
+      .expectedReturns(new double[] {0.08, 0.03})
+      .covariance(new double[][] {{0.0324, 0.0018}, {0.0018, 0.0025}})
+      .build());
+    SimulationParams params = SimulationParams.builder()
+      .numOfSimulations(500)
+      .yearsToForecast(6)
+      .inflationRate(BigDecimal.valueOf(0.02))
+      .seed(5L)
+      .build();
+    SimulationResult result = new MultiAssetSimulator().run(portfolio, params);
+    Path file = tempDir.resolve("multi-asset.psim");
+    SimulationResultWriter.write(file, result, params, ColumnCodec.DEFLATE);
+
+    try (SimulationResultReader reader = SimulationResultReader.open(file)) {
+      Portfolio reloaded = reader.getPortfolio();
+      assertThat(reloaded.getType(), is(PortfolioType.MULTI_ASSET));
+      assertThat(reloaded.getBalance(), is(BigDecimal.valueOf(250000.00)));
+      assertThat(reloaded.getTargetAllocation().getHistoricalReturn(),
+        is(portfolio.getTargetAllocation().getHistoricalReturn()));
+      assertThat(reloaded.getTargetAllocation().getHistoricalRisk(),
+        is(portfolio.getTargetAllocation().getHistoricalRisk()));
+
+      double[] expected = new double[500];
+      result.getProjectionMatrix().copyYear(5, expected, 0);
+      assertArrayEquals(expected, reader.readYear(6));
+    }
+    assertThrows(IllegalArgumentException.class,
+      () -> new Portfolio(PortfolioType.MULTI_ASSET, BigDecimal.valueOf(250000.00)));
+  }
+
+  @Test
+  public void shouldRejectFilesThatAreNotSimulationResults() throws IOException {
+    Path file = tempDir.resolve("other.bin");
+    Files.write(file, new byte[64]);
+
+    assertThrows(IOException.class, () -> SimulationResultReader.open(file));
+  }
+
+  @SpringBootApplication
+  static class TestConfiguration {
+  }
+}
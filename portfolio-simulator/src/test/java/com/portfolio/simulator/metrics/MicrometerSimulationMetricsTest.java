@@ -0,0 +1,96 @@
+package com.portfolio.simulator.metrics;
+
+import com.portfolio.simulator.domain.NumericMode;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.exception.InvalidStatsGenerationParamsException;
+import com.portfolio.simulator.service.impl.MonteCarloSimulator;
+import com.portfolio.simulator.service.impl.MonteCarloStatisticsGenerator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+public class MicrometerSimulationMetricsTest {
+
+  @Autowired
+  private SimulationMetrics simulationMetrics;
+
+  @Test
+  public void shouldProvideMicrometerMetricsWhenRegistryIsPresent() {
+    assertThat(simulationMetrics, is(instanceOf(MicrometerSimulationMetrics.class)));
+  }
+
+  @Test
+  public void shouldRecordPhasesAndRunsOfInstrumentedSimulation()
+    throws InvalidSimulationParamsException, InvalidStatsGenerationParamsException {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    MonteCarloSimulator simulator = new MonteCarloSimulator();
+    simulator.setSimulationMetrics(new MicrometerSimulationMetrics(registry));
+    MonteCarloStatisticsGenerator statsGenerator = new MonteCarloStatisticsGenerator();
+    statsGenerator.setSimulationMetrics(new MicrometerSimulationMetrics(registry));
+    Portfolio portfolio = new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00));
+    SimulationParams params = SimulationParams.builder()
+      .numOfSimulations(3000)
+      .yearsToForecast(10)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .seed(42L)
+      .numericMode(NumericMode.DOUBLE)
+      .build();
+
+    SimulationResult result = simulator.run(portfolio, params);
+    SimulationResult uninstrumented = new MonteCarloSimulator().run(portfolio, params);
+    statsGenerator.calcPercentiles(Arrays.asList(0.1, 0.5, 0.9), 10, result);
+
+    assertThat(result.getProjectionMatrix().get(2999, 9), is(uninstrumented.getProjectionMatrix().get(2999, 9)));
+    assertThat(registry.get("portfolio.simulator.paths").counter().count(), is(3000.0));
+    assertThat(registry.get("portfolio.simulator.run").timer().count(), is(1L));
+    assertThat(registry.get("portfolio.simulator.result.size").summary().totalAmount(), is(3000.0 * 10 * 8));
+    for (SimulationPhase phase : SimulationPhase.values()) {
+      assertThat(phase.name(), registry.get("portfolio.simulator.phase")
+        .tag("phase", phase.name().toLowerCase()).timer().count(), is(1L));
+    }
+  }
+
+  @Test
+  public void shouldCountRejectedCallsByException() {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    MonteCarloSimulator simulator = new MonteCarloSimulator();
+    simulator.setSimulationMetrics(new MicrometerSimulationMetrics(registry));
+    MonteCarloStatisticsGenerator statsGenerator = new MonteCarloStatisticsGenerator();
+    statsGenerator.setSimulationMetrics(new MicrometerSimulationMetrics(registry));
+
+    assertThrows(InvalidSimulationParamsException.class, () -> simulator.run(null, null));
+    assertThrows(InvalidSimulationParamsException.class, () -> simulator.run(null, null));
+    assertThrows(InvalidStatsGenerationParamsException.class, () -> statsGenerator.calcPercentile(0.5, 1, null));
+
+    assertThat(registry.get("portfolio.simulator.invalid")
+      .tag("exception", "InvalidSimulationParamsException").counter().count(), is(2.0));
+    assertThat(registry.get("portfolio.simulator.invalid")
+      .tag("exception", "InvalidStatsGenerationParamsException").counter().count(), is(1.0));
+  }
+
+  @SpringBootApplication
+  static class TestConfiguration {
+
+    @Bean
+    public MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
+  }
+}
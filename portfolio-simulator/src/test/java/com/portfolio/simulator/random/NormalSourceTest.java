@@ -0,0 +1,58 @@
+package com.portfolio.simulator.random;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+public class NormalSourceTest {
+
+  @Test
+  public void shouldMatchSplitMix64GaussiansForPolarSource() {
+    NormalSource polar = NormalSource.polar().get();
+    polar.reset(17L);
+    double[] values = new double[101];
+    polar.fill(values, 0, values.length);
+
+    SplitMix64 random = new SplitMix64(17L);
+    for (double value : values) {
+      assertThat(value, is(random.nextGaussian()));
+    }
+  }
+
+  @Test
+  public void shouldDrawStandardNormalsFromZigguratSource() {
+    NormalSource ziggurat = NormalSource.ziggurat().get();
+    ziggurat.reset(5L);
+    int draws = 2_000_000;
+    double[] values = new double[draws];
+    ziggurat.fill(values, 0, draws);
+
+    double sum = 0;
+    double sumOfSquares = 0;
+    double sumOfFourthPowers = 0;
+    int belowOneSigma = 0;
+    int beyondTailStart = 0;
+    for (double value : values) {
+      sum += value;
+      sumOfSquares += value * value;
+      sumOfFourthPowers += value * value * value * value;
+      belowOneSigma += value < -1 ? 1 : 0;
+      beyondTailStart += Math.abs(value) > 3.442619855899 ? 1 : 0;
+    }
+
+    assertEquals(0, sum / draws, 0.005);
+    assertEquals(1, sumOfSquares / draws, 0.005);
+    assertEquals(3, sumOfFourthPowers / draws, 0.03);
+    assertEquals(0.158655, (double) belowOneSigma / draws, 0.001);
+    assertEquals(5.76e-4, (double) beyondTailStart / draws, 0.6e-4);
+  }
+
+  @SpringBootApplication
+  static class TestConfiguration {
+  }
+}
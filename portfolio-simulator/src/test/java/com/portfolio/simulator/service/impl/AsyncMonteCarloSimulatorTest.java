@@ -0,0 +1,198 @@
+package com.portfolio.simulator.service.impl;
+
+import com.portfolio.simulator.domain.NumericMode;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+public class AsyncMonteCarloSimulatorTest {
+
+  private final MonteCarloSimulator monteCarloSimulator = new MonteCarloSimulator();
+  private final Portfolio portfolio = new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00));
+
+  @Test
+  public void shouldMatchBlockingRunAndReportProgress() throws Exception {
+    AtomicLong lastProgress = new AtomicLong();
+    AtomicLong reportedTotal = new AtomicLong();
+    try (AsyncMonteCarloSimulator asyncSimulator = new AsyncMonteCarloSimulator(monteCarloSimulator, 2, 2)) {
+      SimulationResult result = asyncSimulator.runAsync(portfolio, params(5000, false), (completed, total) -> {
+        lastProgress.accumulateAndGet(completed, Math::max);
+        reportedTotal.set(total);
+      }).get(30, TimeUnit.SECONDS);
+      SimulationResult expected = monteCarloSimulator.run(portfolio, params(5000, false));
+
+      assertThat(lastProgress.get(), is(5000L));
+      assertThat(reportedTotal.get(), is(5000L));
+      for (int path = 0; path < 5000; path += 499) {
+        assertThat(result.getProjectionMatrix().get(path, 9), is(expected.getProjectionMatrix().get(path, 9)));
+      }
+    }
+  }
+
+  @Test
+  public void shouldStopCancelledRunBetweenChunks() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    AsyncMonteCarloSimulator asyncSimulator = new AsyncMonteCarloSimulator(monteCarloSimulator, executor, 1, 0);
+    AtomicReference<CompletableFuture<SimulationResult>> future = new AtomicReference<>();
+    CountDownLatch submitted = new CountDownLatch(1);
+    AtomicLong lastProgress = new AtomicLong();
+
+    future.set(asyncSimulator.runAsync(portfolio, params(200000, false), (completed, total) -> {
+      lastProgress.set(completed);
+      try {
+        submitted.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      future.get().cancel(true);
+    }));
+    submitted.countDown();
+    executor.shutdown();
+
+    assertThat(executor.awaitTermination(30, TimeUnit.SECONDS), is(true));
+    assertThat(future.get().isCancelled(), is(true));
+    assertThat(lastProgress.get(), is((long) MonteCarloSimulator.CHUNK_SIZE));
+    assertThat(asyncSimulator.getNumOfRunning(), is(0));
+  }
+
+  @Test
+  public void shouldRejectRunsBeyondCapacity() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    try (AsyncMonteCarloSimulator asyncSimulator = new AsyncMonteCarloSimulator(monteCarloSimulator, 1, 1)) {
+      CompletableFuture<SimulationResult> blocked = asyncSimulator.runAsync(portfolio, params(2000, true),
+        (completed, total) -> {
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+      CompletableFuture<SimulationResult> queued = asyncSimulator.runAsync(portfolio, params(2000, true));
+      CompletableFuture<SimulationResult> rejected = asyncSimulator.runAsync(portfolio, params(2000, true));
+
+      ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+      assertThat(e.getCause(), is(instanceOf(RejectedExecutionException.class)));
+      assertThat(asyncSimulator.getRejectedCount(), is(1L));
+
+      release.countDown();
+      assertThat(blocked.get(30, TimeUnit.SECONDS).getNumOfSimulations(), is(2000));
+      assertThat(queued.get(30, TimeUnit.SECONDS).getNumOfSimulations(), is(2000));
+      assertThat(asyncSimulator.runAsync(portfolio, params(2000, true)).get(30, TimeUnit.SECONDS)
+        .getNumOfSimulations(), is(2000));
+    }
+  }
+
+  @Test
+  public void shouldFreeQueueSlotOfCancelledQueuedRun() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicLong cancelledProgress = new AtomicLong();
+    try (AsyncMonteCarloSimulator asyncSimulator = new AsyncMonteCarloSimulator(monteCarloSimulator, 1, 1)) {
+      CompletableFuture<SimulationResult> blocked = asyncSimulator.runAsync(portfolio, params(2000, true),
+        (completed, total) -> {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+      assertThat(started.await(30, TimeUnit.SECONDS), is(true));
+      CompletableFuture<SimulationResult> cancelled = asyncSimulator.runAsync(portfolio, params(2000, true),
+        (completed, total) -> cancelledProgress.set(completed));
+      assertThat(asyncSimulator.getNumOfQueued(), is(1));
+      cancelled.cancel(true);
+      assertThat(asyncSimulator.getNumOfQueued(), is(0));
+
+      CompletableFuture<SimulationResult> queued = asyncSimulator.runAsync(portfolio, params(2000, true));
+      release.countDown();
+      assertThat(blocked.get(30, TimeUnit.SECONDS).getNumOfSimulations(), is(2000));
+      assertThat(queued.get(30, TimeUnit.SECONDS).getNumOfSimulations(), is(2000));
+      assertThat(cancelledProgress.get(), is(0L));
+      assertThat(asyncSimulator.getRejectedCount(), is(0L));
+      assertThat(asyncSimulator.getNumOfQueued(), is(0));
+    }
+  }
+
+  @Test
+  public void shouldFreeThreadWaitingForSlotOfCancelledRun() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    BlockingQueue<Thread> threads = new LinkedBlockingQueue<>();
+    ExecutorService threadPerRun = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0, TimeUnit.SECONDS,
+      new SynchronousQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable);
+        thread.setDaemon(true);
+        threads.add(thread);
+        return thread;
+      });
+    try (AsyncMonteCarloSimulator asyncSimulator =
+           new AsyncMonteCarloSimulator(monteCarloSimulator, threadPerRun, 1, 1)) {
+      CompletableFuture<SimulationResult> blocked = asyncSimulator.runAsync(portfolio, params(2000, false),
+        (completed, total) -> {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+      assertThat(started.await(30, TimeUnit.SECONDS), is(true));
+      threads.take();
+      CompletableFuture<SimulationResult> cancelled = asyncSimulator.runAsync(portfolio, params(2000, false));
+      Thread waiting = threads.poll(30, TimeUnit.SECONDS);
+      while (waiting.getState() != Thread.State.WAITING) {
+        Thread.sleep(10);
+      }
+      cancelled.cancel(true);
+
+      waiting.join(TimeUnit.SECONDS.toMillis(30));
+      assertThat(waiting.isAlive(), is(false));
+      assertThat(blocked.isDone(), is(false));
+      release.countDown();
+      assertThat(blocked.get(30, TimeUnit.SECONDS).getNumOfSimulations(), is(2000));
+    } finally {
+      threadPerRun.shutdownNow();
+    }
+  }
+
+  private SimulationParams params(int numOfSimulations, boolean parallel) {
+    return SimulationParams.builder()
+      .numOfSimulations(numOfSimulations)
+      .yearsToForecast(10)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .seed(11L)
+      .numericMode(NumericMode.DOUBLE)
+      .parallel(parallel)
+      .build();
+  }
+
+  @SpringBootApplication
+  static class TestConfiguration {
+  }
+}
@@ -0,0 +1,128 @@
+package com.portfolio.simulator.service.impl;
+
+import com.portfolio.simulator.domain.NumericMode;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+public class CachingSimulatorTest {
+
+  private final MonteCarloSimulator monteCarloSimulator = new MonteCarloSimulator();
+
+  @Test
+  public void shouldServeRepeatedSeededRunsFromCache() throws InvalidSimulationParamsException {
+    CachingSimulator cachingSimulator = new CachingSimulator(monteCarloSimulator, 1 << 20);
+    Portfolio portfolio = new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00));
+
+    SimulationResult first = cachingSimulator.run(portfolio, params(NumericMode.BIG_DECIMAL, 7L));
+    SimulationResult second = cachingSimulator.run(portfolio, params(NumericMode.BIG_DECIMAL, 7L));
+    SimulationResult otherSeed = cachingSimulator.run(portfolio, params(NumericMode.BIG_DECIMAL, 8L));
+    cachingSimulator.run(portfolio, params(NumericMode.BIG_DECIMAL, null));
+
+    assertThat(second, is(sameInstance(first)));
+    assertThat(otherSeed, is(not(sameInstance(first))));
+    assertThat(cachingSimulator.getHitCount(), is(1L));
+    assertThat(cachingSimulator.getMissCount(), is(2L));
+    assertThat(cachingSimulator.getNumOfEntries(), is(2));
+  }
+
+  @Test
+  public void shouldRescaleCachedRunForDifferentStartingBalance() throws InvalidSimulationParamsException {
+    CachingSimulator cachingSimulator = new CachingSimulator(monteCarloSimulator, 1 << 20);
+    Portfolio portfolio = new Portfolio(PortfolioType.VERY_CONSERVATIVE, BigDecimal.valueOf(100000.00));
+    Portfolio largerPortfolio = new Portfolio(PortfolioType.VERY_CONSERVATIVE, BigDecimal.valueOf(250000.00));
+
+    cachingSimulator.run(portfolio, params(NumericMode.BIG_DECIMAL, 7L));
+    SimulationResult rescaled = cachingSimulator.run(largerPortfolio, params(NumericMode.BIG_DECIMAL, 7L));
+    SimulationResult simulated = monteCarloSimulator.run(largerPortfolio, params(NumericMode.BIG_DECIMAL, 7L));
+
+    assertThat(cachingSimulator.getRescaledHitCount(), is(1L));
+    assertThat(rescaled.getPortfolio(), is(sameInstance(largerPortfolio)));
+    for (int path = 0; path < 500; path++) {
+      for (int year = 0; year < 10; year++) {
+        double expected = simulated.getProjectionMatrix().get(path, year);
+        assertEquals(expected, rescaled.getProjectionMatrix().get(path, year), Math.abs(expected) * 1e-14);
+      }
+    }
+
+    cachingSimulator.run(largerPortfolio, params(NumericMode.FIXED_POINT_CENTS, 7L));
+    cachingSimulator.run(portfolio, params(NumericMode.FIXED_POINT_CENTS, 7L));
+    assertThat(cachingSimulator.getRescaledHitCount(), is(1L));
+    assertThat(cachingSimulator.getMissCount(), is(3L));
+
+    SimulationParams withdrawals = params(NumericMode.DOUBLE, 7L).toBuilder()
+      .cashFlows(Collections.nCopies(9, BigDecimal.valueOf(-5000)))
+      .build();
+    cachingSimulator.run(portfolio, withdrawals);
+    SimulationResult withdrawn = cachingSimulator.run(largerPortfolio, withdrawals);
+    assertThat(cachingSimulator.getRescaledHitCount(), is(1L));
+    assertThat(cachingSimulator.getMissCount(), is(5L));
+    assertThat(withdrawn.getProjectionMatrix().get(0, 9),
+      is(monteCarloSimulator.run(largerPortfolio, withdrawals).getProjectionMatrix().get(0, 9)));
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedRunsBeyondByteBudget() throws InvalidSimulationParamsException {
+    CachingSimulator cachingSimulator = new CachingSimulator(monteCarloSimulator, 2 * (8 * 500 * 10 + 128));
+    Portfolio portfolio = new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00));
+
+    cachingSimulator.run(portfolio, params(NumericMode.DOUBLE, 1L));
+    cachingSimulator.run(portfolio, params(NumericMode.DOUBLE, 2L));
+    cachingSimulator.run(portfolio, params(NumericMode.DOUBLE, 1L));
+    cachingSimulator.run(portfolio, params(NumericMode.DOUBLE, 3L));
+    cachingSimulator.run(portfolio, params(NumericMode.DOUBLE, 1L));
+    cachingSimulator.run(portfolio, params(NumericMode.DOUBLE, 2L));
+
+    assertThat(cachingSimulator.getHitCount(), is(2L));
+    assertThat(cachingSimulator.getMissCount(), is(4L));
+    assertThat(cachingSimulator.getEvictionCount(), is(2L));
+    assertThat(cachingSimulator.getNumOfEntries(), is(2));
+    assertThat(cachingSimulator.getSizeInBytes() <= 2 * (8 * 500 * 10 + 128), is(true));
+  }
+
+  @Test
+  public void shouldCountSortedYearsTowardsByteBudget() throws InvalidSimulationParamsException {
+    CachingSimulator cachingSimulator = new CachingSimulator(monteCarloSimulator, 2 * (8 * 500 * 10 + 128));
+    Portfolio portfolio = new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00));
+
+    SimulationResult sorted = cachingSimulator.run(portfolio, params(NumericMode.DOUBLE, 1L));
+    cachingSimulator.run(portfolio, params(NumericMode.DOUBLE, 2L));
+    sorted.sortYears(false);
+    assertThat(cachingSimulator.run(portfolio, params(NumericMode.DOUBLE, 1L)), is(sameInstance(sorted)));
+
+    assertThat(cachingSimulator.getEvictionCount(), is(1L));
+    assertThat(cachingSimulator.getNumOfEntries(), is(1));
+    assertThat(cachingSimulator.getSizeInBytes(), is(2L * 8 * 500 * 10 + 128));
+    assertThrows(IllegalArgumentException.class, () -> sorted.getSortedYear(11));
+  }
+
+  private SimulationParams params(NumericMode numericMode, Long seed) {
+    return SimulationParams.builder()
+      .numOfSimulations(500)
+      .yearsToForecast(10)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .seed(seed)
+      .numericMode(numericMode)
+      .build();
+  }
+
+  @SpringBootApplication
+  static class TestConfiguration {
+  }
+}
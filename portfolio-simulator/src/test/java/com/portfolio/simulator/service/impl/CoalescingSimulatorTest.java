@@ -0,0 +1,175 @@
+package com.portfolio.simulator.service.impl;
+
+import com.portfolio.simulator.domain.NumericMode;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.service.Simulator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+public class CoalescingSimulatorTest {
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final Portfolio portfolio = new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00));
+
+  @AfterEach
+  public void shutdownExecutor() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldShareOneRunBetweenConcurrentIdenticalRequests() throws Exception {
+    BlockingSimulator delegate = new BlockingSimulator(new MonteCarloSimulator());
+    CoalescingSimulator coalescingSimulator = new CoalescingSimulator(delegate);
+
+    List<Future<SimulationResult>> results = submitIdenticalRuns(coalescingSimulator, delegate, 8);
+    delegate.release.countDown();
+
+    for (Future<SimulationResult> result : results) {
+      assertThat(result.get(10, TimeUnit.SECONDS), is(sameInstance(results.get(0).get())));
+    }
+    assertThat(delegate.calls.get(), is(1));
+    assertThat(coalescingSimulator.getRunCount(), is(1L));
+    assertThat(coalescingSimulator.getCoalescedCount(), is(7L));
+    assertThat(coalescingSimulator.getNumOfInFlight(), is(0));
+
+    coalescingSimulator.run(portfolio, params(7L));
+    coalescingSimulator.run(portfolio, params(null));
+    assertThat(delegate.calls.get(), is(3));
+  }
+
+  @Test
+  public void shouldPassFailureOfSharedRunToEveryWaiter() throws Exception {
+    BlockingSimulator delegate = new BlockingSimulator((portfolio, params) -> {
+      throw new InvalidSimulationParamsException("Invalid simulation parameters");
+    });
+    CoalescingSimulator coalescingSimulator = new CoalescingSimulator(delegate);
+
+    List<Future<SimulationResult>> results = submitIdenticalRuns(coalescingSimulator, delegate, 4);
+    delegate.release.countDown();
+
+    for (Future<SimulationResult> result : results) {
+      ExecutionException exception = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+      assertThat(exception.getCause(), is(instanceOf(InvalidSimulationParamsException.class)));
+    }
+    assertThat(delegate.calls.get(), is(1));
+    assertThat(coalescingSimulator.getNumOfInFlight(), is(0));
+  }
+
+  @Test
+  public void shouldKeepSharedRunGoingWhenOneWaiterIsCancelled() throws Exception {
+    BlockingSimulator delegate = new BlockingSimulator(new MonteCarloSimulator());
+    CoalescingSimulator coalescingSimulator = new CoalescingSimulator(delegate);
+
+    List<Future<SimulationResult>> results = submitIdenticalRuns(coalescingSimulator, delegate, 3);
+    results.get(1).cancel(true);
+    delegate.release.countDown();
+
+    assertThrows(CancellationException.class, () -> results.get(1).get());
+    assertThat(results.get(2).get(10, TimeUnit.SECONDS), is(sameInstance(results.get(0).get())));
+    assertThat(delegate.calls.get(), is(1));
+  }
+
+  @Test
+  public void shouldKeepSharedRunGoingWhenItsFirstCallerIsInterrupted() throws Exception {
+    BlockingSimulator delegate = new BlockingSimulator(new MonteCarloSimulator());
+    CoalescingSimulator coalescingSimulator = new CoalescingSimulator(delegate);
+    SimulationParams parallelParams = params(7L).toBuilder().parallel(true).numOfSimulations(5000).build();
+
+    List<Future<SimulationResult>> results = submitIdenticalRuns(coalescingSimulator, delegate, parallelParams, 3);
+    results.get(0).cancel(true);
+    delegate.release.countDown();
+
+    assertThrows(CancellationException.class, () -> results.get(0).get());
+    SimulationResult shared = results.get(1).get(10, TimeUnit.SECONDS);
+    assertThat(results.get(2).get(10, TimeUnit.SECONDS), is(sameInstance(shared)));
+    assertThat(shared.getNumOfSimulations(), is(5000));
+    assertThat(delegate.calls.get(), is(1));
+    coalescingSimulator.close();
+  }
+
+  private List<Future<SimulationResult>> submitIdenticalRuns(CoalescingSimulator coalescingSimulator,
+                                                             BlockingSimulator delegate, int numOfRuns)
+    throws InterruptedException {
+    return submitIdenticalRuns(coalescingSimulator, delegate, params(7L), numOfRuns);
+  }
+
+  private List<Future<SimulationResult>> submitIdenticalRuns(CoalescingSimulator coalescingSimulator,
+                                                             BlockingSimulator delegate,
+                                                             SimulationParams params,
+                                                             int numOfRuns)
+    throws InterruptedException {
+    List<Future<SimulationResult>> results = new ArrayList<>();
+    results.add(executor.submit(() -> coalescingSimulator.run(portfolio, params)));
+    delegate.started.await();
+    for (int i = 1; i < numOfRuns; i++) {
+      results.add(executor.submit(() -> coalescingSimulator.run(portfolio, params)));
+    }
+    while (coalescingSimulator.getCoalescedCount() < numOfRuns - 1) {
+      Thread.sleep(1);
+    }
+    return results;
+  }
+
+  private SimulationParams params(Long seed) {
+    return SimulationParams.builder()
+      .numOfSimulations(500)
+      .yearsToForecast(10)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .seed(seed)
+      .numericMode(NumericMode.DOUBLE)
+      .build();
+  }
+
+  private static final class BlockingSimulator implements Simulator {
+
+    private final Simulator delegate;
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger calls = new AtomicInteger();
+
+    BlockingSimulator(Simulator delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public SimulationResult run(Portfolio portfolio, SimulationParams params) throws InvalidSimulationParamsException {
+      calls.incrementAndGet();
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return delegate.run(portfolio, params);
+    }
+  }
+
+  @SpringBootApplication
+  static class TestConfiguration {
+  }
+}
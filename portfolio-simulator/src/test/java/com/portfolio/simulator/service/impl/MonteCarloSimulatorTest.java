@@ -1,20 +1,37 @@
 package com.portfolio.simulator.service.impl;
 
+import com.portfolio.simulator.domain.BatchSimulationResult;
+import com.portfolio.simulator.domain.ConvergenceCriteria;
+import com.portfolio.simulator.domain.ConvergenceReport;
+import com.portfolio.simulator.domain.MappedProjectionMatrix;
+import com.portfolio.simulator.domain.NumericMode;
+import com.portfolio.simulator.domain.PathRiskMetrics;
 import com.portfolio.simulator.domain.Portfolio;
 import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.ProjectionMatrix;
+import com.portfolio.simulator.domain.ResultStorage;
+import com.portfolio.simulator.domain.SamplingStrategy;
 import com.portfolio.simulator.domain.SimulationParams;
 import com.portfolio.simulator.domain.SimulationResult;
 import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.service.BatchSimulator;
+import com.portfolio.simulator.service.ResumableSimulator;
 import com.portfolio.simulator.service.Simulator;
+import com.portfolio.simulator.utils.StatsPerformanceUtil;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -24,6 +41,9 @@ public class MonteCarloSimulatorTest {
   @Autowired
   private Simulator monteCarloSimulator = new MonteCarloSimulator();
 
+  @Autowired
+  private BatchSimulator batchSimulator = new MonteCarloSimulator();
+
   @Test
   public void shouldThrowInvalidSimulationParametersExceptionWhenSimParamsAreNull() {
     Portfolio testPortfolio = new Portfolio(PortfolioType.VERY_CONSERVATIVE, BigDecimal.ONE);
@@ -129,6 +149,8 @@ public class MonteCarloSimulatorTest {
       assertThat(v.size(), is(yearsToForecast));
       assertThat(v.get(0), is(initialBalance));
     });
+    assertThat(simResults.getProjectionMatrix().getNumOfPaths(), is(numberOfSimulations));
+    assertThat(simResults.getProjectionMatrix().getNumOfYears(), is(yearsToForecast));
   }
 
   @Test
@@ -157,6 +179,374 @@ public class MonteCarloSimulatorTest {
     });
   }
 
+  @Test
+  public void shouldProduceIdenticalResultsForSameSeedWhetherRunSequentiallyOrInParallel()
+    throws InvalidSimulationParamsException {
+    Portfolio testPortfolio = new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00));
+    SimulationParams sequentialParams = SimulationParams.builder()
+      .numOfSimulations(2500)
+      .yearsToForecast(5)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .seed(42L)
+      .build();
+    SimulationParams parallelParams = SimulationParams.builder()
+      .numOfSimulations(2500)
+      .yearsToForecast(5)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .seed(42L)
+      .parallel(true)
+      .build();
+
+    SimulationResult sequentialResults = monteCarloSimulator.run(testPortfolio, sequentialParams);
+    SimulationResult parallelResults = monteCarloSimulator.run(testPortfolio, parallelParams);
+
+    assertThat(parallelResults.getSeed(), is(42L));
+    for (int year = 0; year < 5; year++) {
+      double[] sequentialYear = new double[2500];
+      double[] parallelYear = new double[2500];
+      sequentialResults.getProjectionMatrix().copyYear(year, sequentialYear, 0);
+      parallelResults.getProjectionMatrix().copyYear(year, parallelYear, 0);
+      assertArrayEquals(sequentialYear, parallelYear);
+    }
+  }
+
+  @Test
+  public void shouldAgreeWithinDocumentedErrorBoundsAcrossNumericModes() throws InvalidSimulationParamsException {
+    int numberOfSimulations = 200;
+    int yearsToForecast = 30;
+    Portfolio testPortfolio = new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00));
+
+    SimulationResult bigDecimalResults = monteCarloSimulator.run(testPortfolio,
+      numericModeParams(NumericMode.BIG_DECIMAL, numberOfSimulations, yearsToForecast));
+    SimulationResult fixedPointResults = monteCarloSimulator.run(testPortfolio,
+      numericModeParams(NumericMode.FIXED_POINT_CENTS, numberOfSimulations, yearsToForecast));
+    SimulationResult doubleResults = monteCarloSimulator.run(testPortfolio,
+      numericModeParams(NumericMode.DOUBLE, numberOfSimulations, yearsToForecast));
+
+    for (int sim = 0; sim < numberOfSimulations; sim++) {
+      for (int year = 0; year < yearsToForecast; year++) {
+        double expected = bigDecimalResults.getProjectionMatrix().get(sim, year);
+        double centsErrorBound = 0;
+        for (int roundedYear = 1; roundedYear <= year; roundedYear++) {
+          centsErrorBound += 0.005 * expected / bigDecimalResults.getProjectionMatrix().get(sim, roundedYear);
+        }
+        assertEquals(expected, doubleResults.getProjectionMatrix().get(sim, year), Math.abs(expected) * 1e-13);
+        assertEquals(expected, fixedPointResults.getProjectionMatrix().get(sim, year),
+          centsErrorBound + Math.abs(expected) * 1e-13);
+      }
+    }
+  }
+
+  @Test
+  public void shouldRejectAmountsBeyondExactCents() throws InvalidSimulationParamsException {
+    Portfolio testPortfolio = new Portfolio(PortfolioType.AGGRESSIVE, new BigDecimal("1E14"));
+    SimulationParams params = numericModeParams(NumericMode.FIXED_POINT_CENTS, 10, 5);
+    assertThrows(InvalidSimulationParamsException.class, () -> monteCarloSimulator.run(testPortfolio, params));
+
+    Portfolio smallPortfolio = new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00));
+    SimulationParams withLargeCashFlow = params.toBuilder()
+      .cashFlows(Arrays.asList(BigDecimal.ZERO, new BigDecimal("-9.0071992547409925E13")))
+      .build();
+    assertThrows(InvalidSimulationParamsException.class,
+      () -> monteCarloSimulator.run(smallPortfolio, withLargeCashFlow));
+    assertThat(monteCarloSimulator.run(smallPortfolio, params.toBuilder().numericMode(NumericMode.DOUBLE).build())
+      .getNumOfSimulations(), is(10));
+    assertThat(monteCarloSimulator.run(testPortfolio, params.toBuilder().numericMode(NumericMode.BIG_DECIMAL).build())
+      .getNumOfSimulations(), is(10));
+  }
+
+  @Test
+  public void shouldStopOnceTargetPercentilesConverge() throws InvalidSimulationParamsException {
+    ConvergenceCriteria criteria = ConvergenceCriteria.builder()
+      .targetPercentiles(Arrays.asList(0.1, 0.5, 0.9))
+      .tolerance(0.01)
+      .batchSize(500)
+      .maxSimulations(200000)
+      .build();
+    SimulationParams params = SimulationParams.builder()
+      .yearsToForecast(20)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .seed(11L)
+      .parallel(true)
+      .convergenceCriteria(criteria)
+      .build();
+
+    SimulationResult conservativeResults = monteCarloSimulator.run(
+      new Portfolio(PortfolioType.VERY_CONSERVATIVE, BigDecimal.valueOf(100000.00)), params);
+    SimulationResult aggressiveResults = monteCarloSimulator.run(
+      new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00)), params);
+
+    ConvergenceReport report = aggressiveResults.getConvergenceReport();
+    assertThat(report.isConverged(), is(true));
+    assertThat(conservativeResults.getConvergenceReport().isConverged(), is(true));
+    assertThat(conservativeResults.getNumOfSimulations() < aggressiveResults.getNumOfSimulations(), is(true));
+    assertThat(aggressiveResults.getProjectionMatrix().getNumOfPaths(), is(aggressiveResults.getNumOfSimulations()));
+    assertThat(report.getNumOfBatches() * 500, is(aggressiveResults.getNumOfSimulations()));
+    for (int i = 0; i < report.getEstimates().length; i++) {
+      assertThat(report.getHalfWidths()[i] <= 0.01 * report.getEstimates()[i], is(true));
+    }
+
+    SimulationParams sobolParams = params.toBuilder().samplingStrategy(SamplingStrategy.SOBOL).build();
+    assertThrows(InvalidSimulationParamsException.class, () -> monteCarloSimulator.run(
+      new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00)), sobolParams));
+  }
+
+  @Test
+  public void shouldMatchIndividualRunsWhenSimulatingBatchOverSharedShocks() throws InvalidSimulationParamsException {
+    List<Portfolio> portfolios = Arrays.asList(
+      new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00)),
+      new Portfolio(PortfolioType.VERY_CONSERVATIVE, BigDecimal.valueOf(50000.00)),
+      new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(300000.00)));
+    SimulationParams params = SimulationParams.builder()
+      .numOfSimulations(1500)
+      .yearsToForecast(8)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .seed(9L)
+      .parallel(true)
+      .build();
+
+    BatchSimulationResult batchResult = batchSimulator.runBatch(portfolios, params, Arrays.asList(0.1, 0.5, 0.9));
+
+    assertThat(batchResult.getResults().size(), is(3));
+    for (int i = 0; i < portfolios.size(); i++) {
+      SimulationResult individualResult = monteCarloSimulator.run(portfolios.get(i), params);
+      ProjectionMatrix expected = individualResult.getProjectionMatrix();
+      ProjectionMatrix actual = batchResult.getResults().get(i).getProjectionMatrix();
+      for (int year = 0; year < 8; year++) {
+        for (int path = 0; path < 1500; path++) {
+          assertEquals(expected.get(path, year), actual.get(path, year), Math.abs(expected.get(path, year)) * 1e-14);
+        }
+        double[] yearValues = new double[1500];
+        expected.copyYear(year, yearValues, 0);
+        double median = StatsPerformanceUtil.derivePercentile(yearValues, 0.5);
+        assertEquals(median, batchResult.getPercentile(i, 1, year + 1), Math.abs(median) * 1e-14);
+      }
+    }
+  }
+
+  @Test
+  public void shouldStoreSameBalancesInMappedFileAsOnHeap() throws InvalidSimulationParamsException {
+    Portfolio testPortfolio = new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00));
+    SimulationParams heapParams = SimulationParams.builder()
+      .numOfSimulations(3000)
+      .yearsToForecast(6)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .seed(21L)
+      .parallel(true)
+      .build();
+
+    SimulationResult heapResults = monteCarloSimulator.run(testPortfolio, heapParams);
+    try (SimulationResult mappedResults = monteCarloSimulator.run(testPortfolio,
+      heapParams.toBuilder().resultStorage(ResultStorage.MAPPED).build())) {
+      MappedProjectionMatrix mappedMatrix = (MappedProjectionMatrix) mappedResults.getProjectionMatrix();
+      assertThat(mappedMatrix.getNumOfPaths(), is(3000));
+      assertThat(mappedMatrix.getMappedSizeInBytes(), is(3000L * 6 * Double.BYTES));
+      for (int year = 0; year < 6; year++) {
+        double[] heapYear = new double[3000];
+        double[] mappedYear = new double[3000];
+        heapResults.getProjectionMatrix().copyYear(year, heapYear, 0);
+        mappedMatrix.copyYear(year, mappedYear, 0);
+        assertArrayEquals(heapYear, mappedYear);
+      }
+    }
+  }
+
+  @Test
+  public void shouldExtendResumableRunToMatchFreshRunOverLongerHorizon() throws InvalidSimulationParamsException {
+    ResumableSimulator resumableSimulator = new MonteCarloSimulator();
+    Portfolio testPortfolio = new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00));
+
+    for (NumericMode numericMode : NumericMode.values()) {
+      SimulationParams params = numericModeParams(numericMode, 1500, 20).toBuilder()
+        .samplingStrategy(
+          numericMode == NumericMode.DOUBLE ? SamplingStrategy.ANTITHETIC : SamplingStrategy.PSEUDO_RANDOM)
+        .resumable(true)
+        .parallel(true)
+        .build();
+      SimulationResult extended = resumableSimulator.extend(monteCarloSimulator.run(testPortfolio, params), 10);
+      SimulationResult fresh = monteCarloSimulator.run(testPortfolio, params.toBuilder().yearsToForecast(30).build());
+
+      assertThat(extended.getProjectionMatrix().getNumOfYears(), is(30));
+      for (int year = 0; year < 30; year++) {
+        double[] extendedYear = new double[1500];
+        double[] freshYear = new double[1500];
+        extended.getProjectionMatrix().copyYear(year, extendedYear, 0);
+        fresh.getProjectionMatrix().copyYear(year, freshYear, 0);
+        assertArrayEquals(freshYear, extendedYear, numericMode + " year " + year);
+      }
+    }
+  }
+
+  @Test
+  public void shouldAddPathsToResumableQuasiRandomAndStratifiedRuns() throws InvalidSimulationParamsException {
+    ResumableSimulator resumableSimulator = new MonteCarloSimulator();
+    Portfolio testPortfolio = new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00));
+
+    for (SamplingStrategy samplingStrategy : Arrays.asList(SamplingStrategy.SOBOL, SamplingStrategy.STRATIFIED)) {
+      SimulationParams params = numericModeParams(NumericMode.DOUBLE, 1000, 10).toBuilder()
+        .samplingStrategy(samplingStrategy)
+        .resumable(true)
+        .parallel(true)
+        .build();
+      SimulationResult result = monteCarloSimulator.run(testPortfolio, params);
+      SimulationResult grown = resumableSimulator.addPaths(result, 500);
+
+      assertThat(grown.getNumOfSimulations(), is(1500));
+      assertThat(grown.getResumeState().isExtendable(), is(false));
+      for (int path = 0; path < 1000; path++) {
+        assertThat(grown.getProjectionMatrix().get(path, 9), is(result.getProjectionMatrix().get(path, 9)));
+      }
+      if (samplingStrategy == SamplingStrategy.SOBOL) {
+        SimulationResult fresh =
+          monteCarloSimulator.run(testPortfolio, params.toBuilder().numOfSimulations(1500).build());
+        for (int path = 1000; path < 1500; path++) {
+          assertThat(grown.getProjectionMatrix().get(path, 9), is(fresh.getProjectionMatrix().get(path, 9)));
+        }
+      }
+      assertThrows(InvalidSimulationParamsException.class, () -> resumableSimulator.extend(result, 5));
+    }
+  }
+
+  @Test
+  public void shouldAddPathsToMatchLargerFreshRun() throws InvalidSimulationParamsException {
+    ResumableSimulator resumableSimulator = new MonteCarloSimulator();
+    Portfolio testPortfolio = new Portfolio(PortfolioType.VERY_CONSERVATIVE, BigDecimal.valueOf(100000.00));
+    SimulationParams params = numericModeParams(NumericMode.DOUBLE, 1000, 10).toBuilder().resumable(true).build();
+
+    SimulationResult grown = resumableSimulator.addPaths(monteCarloSimulator.run(testPortfolio, params), 1500);
+    SimulationResult fresh = monteCarloSimulator.run(testPortfolio, params.toBuilder().numOfSimulations(2500).build());
+    SimulationResult grownAndExtended = resumableSimulator.extend(grown, 5);
+    SimulationResult freshLonger = monteCarloSimulator.run(testPortfolio,
+      params.toBuilder().numOfSimulations(2500).yearsToForecast(15).build());
+
+    assertThat(grown.getNumOfSimulations(), is(2500));
+    for (int path = 0; path < 2500; path++) {
+      assertThat(grown.getProjectionMatrix().get(path, 9), is(fresh.getProjectionMatrix().get(path, 9)));
+      assertThat(grownAndExtended.getProjectionMatrix().get(path, 14),
+        is(freshLonger.getProjectionMatrix().get(path, 14)));
+    }
+
+    SimulationParams sketchParams = params.toBuilder().resultStorage(ResultStorage.SKETCH).build();
+    SimulationResult grownSketches = resumableSimulator.extend(
+      resumableSimulator.addPaths(monteCarloSimulator.run(testPortfolio, sketchParams), 1500), 5);
+    SimulationResult freshSketches = monteCarloSimulator.run(testPortfolio,
+      sketchParams.toBuilder().numOfSimulations(2500).yearsToForecast(15).build());
+    for (int year = 0; year < 15; year++) {
+      assertThat(grownSketches.getYearSketches()[year].getPercentile(0.1),
+        is(freshSketches.getYearSketches()[year].getPercentile(0.1)));
+    }
+
+    SimulationResult notResumable = monteCarloSimulator.run(testPortfolio, params.toBuilder().resumable(false).build());
+    assertThrows(InvalidSimulationParamsException.class, () -> resumableSimulator.extend(notResumable, 5));
+  }
+
+  @Test
+  public void shouldTrackDepletionDrawdownAndShortfallOfWithdrawalsWhileSimulating()
+    throws InvalidSimulationParamsException {
+    Portfolio testPortfolio = new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00));
+    SimulationParams params = SimulationParams.builder()
+      .numOfSimulations(4000)
+      .yearsToForecast(26)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .seed(31L)
+      .numericMode(NumericMode.DOUBLE)
+      .cashFlows(Collections.nCopies(25, BigDecimal.valueOf(-7000)))
+      .riskMetrics(true)
+      .build();
+
+    SimulationResult result = monteCarloSimulator.run(testPortfolio, params);
+    PathRiskMetrics riskMetrics = result.getRiskMetrics();
+    ProjectionMatrix matrix = result.getProjectionMatrix();
+
+    int[] depletedByYear = new int[26];
+    double maxDrawdownSum = 0;
+    double[] terminalBalances = new double[4000];
+    for (int path = 0; path < 4000; path++) {
+      double peak = matrix.get(path, 0);
+      double maxDrawdown = 0;
+      boolean depleted = false;
+      for (int year = 1; year < 26; year++) {
+        double balance = matrix.get(path, year);
+        if (depleted) {
+          assertThat(balance, is(0.0));
+        } else if (balance == 0) {
+          depleted = true;
+          depletedByYear[year]++;
+        }
+        peak = Math.max(peak, balance);
+        maxDrawdown = Math.max(maxDrawdown, (peak - balance) / peak);
+      }
+      maxDrawdownSum += maxDrawdown;
+      terminalBalances[path] = matrix.get(path, 25);
+    }
+
+    int depleted = 0;
+    for (int year = 1; year <= 26; year++) {
+      depleted += depletedByYear[year - 1];
+      assertThat(riskMetrics.getDepletionProbability(year), is(depleted / 4000.0));
+    }
+    assertThat(riskMetrics.getDepletionProbability() > 0.05 && riskMetrics.getDepletionProbability() < 0.95, is(true));
+    assertThat(riskMetrics.getNumOfPaths(), is(4000L));
+    assertEquals(maxDrawdownSum / 4000, riskMetrics.getMeanMaxDrawdown(), 1e-12);
+
+    Arrays.sort(terminalBalances);
+    double worstSum = 0;
+    for (int path = 0; path < 200; path++) {
+      worstSum += terminalBalances[path];
+    }
+    assertEquals(terminalBalances[199], riskMetrics.getValueAtRisk(), 0.005 * terminalBalances[199]);
+    assertEquals(worstSum / 200, riskMetrics.getExpectedShortfall(), 0.005 * worstSum / 200);
+
+    SimulationResult sketched = monteCarloSimulator.run(testPortfolio, params.toBuilder()
+      .resultStorage(ResultStorage.SKETCH)
+      .parallel(true)
+      .build());
+    assertThat(sketched.getRiskMetrics().getDepletionProbability(), is(riskMetrics.getDepletionProbability()));
+    assertThat(sketched.getRiskMetrics().getExpectedShortfall(), is(riskMetrics.getExpectedShortfall()));
+
+    assertThrows(InvalidSimulationParamsException.class, () ->
+      monteCarloSimulator.run(testPortfolio, params.toBuilder().resumable(true).build()));
+    assertThrows(InvalidSimulationParamsException.class, () ->
+      monteCarloSimulator.run(testPortfolio,
+        params.toBuilder().cashFlows(Arrays.asList(BigDecimal.ONE, null)).build()));
+  }
+
+  @Test
+  public void shouldApplyCashFlowsAlikeInEveryNumericMode() throws InvalidSimulationParamsException {
+    Portfolio testPortfolio = new Portfolio(PortfolioType.VERY_CONSERVATIVE, BigDecimal.valueOf(100000.00));
+    List<BigDecimal> cashFlows = Arrays.asList(
+      BigDecimal.valueOf(5000), BigDecimal.valueOf(5000), BigDecimal.ZERO, BigDecimal.valueOf(-20000.55));
+
+    SimulationResult exact = monteCarloSimulator.run(testPortfolio,
+      numericModeParams(NumericMode.BIG_DECIMAL, 300, 8).toBuilder().cashFlows(cashFlows).build());
+    SimulationResult withoutCashFlows = monteCarloSimulator.run(testPortfolio,
+      numericModeParams(NumericMode.BIG_DECIMAL, 300, 8));
+    for (NumericMode numericMode : Arrays.asList(NumericMode.DOUBLE, NumericMode.FIXED_POINT_CENTS)) {
+      SimulationResult approximate = monteCarloSimulator.run(testPortfolio,
+        numericModeParams(numericMode, 300, 8).toBuilder().cashFlows(cashFlows).build());
+      for (int path = 0; path < 300; path++) {
+        for (int year = 0; year < 8; year++) {
+          double expected = exact.getProjectionMatrix().get(path, year);
+          assertEquals(expected, approximate.getProjectionMatrix().get(path, year), 0.05);
+        }
+      }
+    }
+
+    double growth = exact.getProjectionMatrix().get(0, 1) - 5000;
+    assertEquals(withoutCashFlows.getProjectionMatrix().get(0, 1), growth, 1e-6);
+    assertThat(exact.getProjectionMatrix().get(0, 0), is(100000.00));
+  }
+
+  private SimulationParams numericModeParams(NumericMode numericMode, int numberOfSimulations, int yearsToForecast) {
+    return SimulationParams.builder()
+      .numOfSimulations(numberOfSimulations)
+      .yearsToForecast(yearsToForecast)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .seed(7L)
+      .numericMode(numericMode)
+      .build();
+  }
+
   @SpringBootApplication
   static class TestConfiguration {
   }
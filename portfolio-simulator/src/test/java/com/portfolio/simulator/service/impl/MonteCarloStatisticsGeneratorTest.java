@@ -1,8 +1,16 @@
 package com.portfolio.simulator.service.impl;
 
+import com.portfolio.simulator.domain.DenseProjectionMatrix;
+import com.portfolio.simulator.domain.NumericMode;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.ResultStorage;
+import com.portfolio.simulator.domain.SimulationParams;
 import com.portfolio.simulator.domain.SimulationResult;
 import com.portfolio.simulator.exception.InvalidStatsGenerationParamsException;
 import com.portfolio.simulator.service.StatsGenerator;
+import com.portfolio.simulator.utils.ResultsUtil;
+import com.portfolio.simulator.utils.StatsPerformanceUtil;
 import org.assertj.core.util.Lists;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,11 +18,15 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -160,6 +172,120 @@ public class MonteCarloStatisticsGeneratorTest {
     assertThat(bestCase, is(BigDecimal.valueOf(5)));
   }
 
+  @Test
+  public void shouldCalculatePercentilesFromProjectionMatrix() throws InvalidStatsGenerationParamsException {
+    DenseProjectionMatrix projectionMatrix = new DenseProjectionMatrix(4, 3);
+    double[][] paths = {{1, 10, 20}, {1, 5, 15}, {1, 5, 5}, {1, 5, 25}};
+    for (int path = 0; path < paths.length; path++) {
+      projectionMatrix.setPath(path, paths[path], 0);
+    }
+
+    SimulationResult simulationResult = SimulationResult.builder()
+      .projectionMatrix(projectionMatrix)
+      .build();
+
+    assertThat(monteCarloStatisticsGenerator.calcPercentile(0.50, 3, simulationResult), is(BigDecimal.valueOf(15.0)));
+    assertThat(monteCarloStatisticsGenerator.calcPercentile(0.90, 3, simulationResult), is(BigDecimal.valueOf(25.0)));
+    assertThat(monteCarloStatisticsGenerator.calcPercentile(0.10, 3, simulationResult), is(BigDecimal.valueOf(5.0)));
+    assertThat(simulationResult.getProjectionResults().get(3).get(2), is(BigDecimal.valueOf(25.0)));
+  }
+
+  @Test
+  public void shouldCalculateSeveralPercentilesInOneCall() throws InvalidStatsGenerationParamsException {
+    HashMap<Integer, List<BigDecimal>> simResults = new HashMap<>();
+    simResults.put(0, Lists.newArrayList(BigDecimal.ONE, BigDecimal.TEN, BigDecimal.valueOf(20)));
+    simResults.put(1, Lists.newArrayList(BigDecimal.ONE, BigDecimal.valueOf(5), BigDecimal.valueOf(15)));
+    simResults.put(2, Lists.newArrayList(BigDecimal.ONE, BigDecimal.valueOf(5), BigDecimal.valueOf(5)));
+    simResults.put(3, Lists.newArrayList(BigDecimal.ONE, BigDecimal.valueOf(5), BigDecimal.valueOf(25)));
+
+    SimulationResult simulationResult = SimulationResult.builder()
+      .projectionResults(simResults)
+      .build();
+
+    List<BigDecimal> percentiles =
+      monteCarloStatisticsGenerator.calcPercentiles(Arrays.asList(0.90, 0.10, 0.50), 3, simulationResult);
+
+    assertThat(percentiles, is(Arrays.asList(BigDecimal.valueOf(25), BigDecimal.valueOf(5), BigDecimal.valueOf(15))));
+
+    StatsGenerator<BigDecimal, SimulationResult> onePerCall = monteCarloStatisticsGenerator::calcPercentile;
+    assertThat(onePerCall.calcPercentiles(Arrays.asList(0.90, 0.10, 0.50), 3, simulationResult),
+      is(percentiles));
+  }
+
+  @Test
+  public void shouldThrowInvalidStatsGenerationParamsExceptionWhenAnyRequestedPercentIsInvalid() {
+    SimulationResult simulationResult = SimulationResult.builder()
+      .projectionMatrix(new DenseProjectionMatrix(2, 3))
+      .build();
+
+    Exception exception = assertThrows(InvalidStatsGenerationParamsException.class, () ->
+      monteCarloStatisticsGenerator.calcPercentiles(Arrays.asList(0.5, 1.5), 1, simulationResult));
+
+    assertThat(exception.getMessage(), is("Invalid simulation results or year - cannot generate statistics"));
+  }
+
+  @Test
+  public void shouldCalculatePercentilesFromYearSketchesWithinStatedError() throws Exception {
+    Portfolio portfolio = new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00));
+    SimulationParams.SimulationParamsBuilder params = SimulationParams.builder()
+      .numOfSimulations(5000)
+      .yearsToForecast(20)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .seed(99L)
+      .numericMode(NumericMode.DOUBLE);
+    SimulationResult exactResult = new MonteCarloSimulator().run(portfolio, params.build());
+    SimulationResult sketchResult = new MonteCarloSimulator().run(portfolio,
+      params.resultStorage(ResultStorage.SKETCH).parallel(true).build());
+
+    List<Double> percents = Arrays.asList(0.1, 0.5, 0.9);
+    List<BigDecimal> exact = monteCarloStatisticsGenerator.calcPercentiles(percents, 20, exactResult);
+    List<BigDecimal> approximate = monteCarloStatisticsGenerator.calcPercentiles(percents, 20, sketchResult);
+
+    assertThat(sketchResult.getProjectionResults(), is(nullValue()));
+    assertThat(sketchResult.getPercentileRelativeError(), is(0.005));
+    for (int i = 0; i < percents.size(); i++) {
+      assertEquals(exact.get(i).doubleValue(), approximate.get(i).doubleValue(),
+        exact.get(i).doubleValue() * sketchResult.getPercentileRelativeError());
+    }
+  }
+
+  @Test
+  public void shouldThrowInvalidStatsGenerationParamsExceptionWhenYearIsOutsideProjectionMatrix() {
+    SimulationResult simulationResult = SimulationResult.builder()
+      .projectionMatrix(new DenseProjectionMatrix(2, 3))
+      .build();
+
+    Exception exception = assertThrows(InvalidStatsGenerationParamsException.class, () ->
+      monteCarloStatisticsGenerator.calcPercentile(0.5, 4, simulationResult));
+
+    assertThat(exception.getMessage(), is("Invalid simulation results or year - cannot generate statistics"));
+  }
+
+  @Test
+  public void shouldMatchUncachedSelectionWhenAnsweringFanChartFromSortedYears() throws Exception {
+    Portfolio portfolio = new Portfolio(PortfolioType.VERY_CONSERVATIVE, BigDecimal.valueOf(100000.00));
+    SimulationResult simulationResult = new MonteCarloSimulator().run(portfolio, SimulationParams.builder()
+      .numOfSimulations(2001)
+      .yearsToForecast(15)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .seed(5L)
+      .numericMode(NumericMode.DOUBLE)
+      .build());
+
+    List<Double> percents = Arrays.asList(0.9, 0.0, 0.25, 0.5, 1.0);
+    double[] percentiles = {0.9, 0.0, 0.25, 0.5, 1.0};
+    double[][] fanChart = new MonteCarloStatisticsGenerator().calcFanChart(percents, simulationResult, true);
+
+    assertThat(fanChart.length, is(15));
+    for (int year = 1; year <= 15; year++) {
+      double[] expected = StatsPerformanceUtil.derivePercentilesInPlace(
+        ResultsUtil.retrieveResultsByYear(simulationResult.getProjectionMatrix(), year), percentiles);
+      assertThat(fanChart[year - 1], is(expected));
+      assertThat(monteCarloStatisticsGenerator.calcPercentile(0.5, year, simulationResult),
+        is(BigDecimal.valueOf(expected[3])));
+    }
+    assertThat(simulationResult.getSortedYear(7), is(sameInstance(simulationResult.getSortedYear(7))));
+  }
 
   @SpringBootApplication
   static class TestConfiguration {
@@ -0,0 +1,93 @@
+package com.portfolio.simulator.service.impl;
+
+import com.portfolio.simulator.domain.NumericMode;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SweepResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.exception.InvalidStatsGenerationParamsException;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+public class MonteCarloSweepSimulatorTest {
+
+  private final MonteCarloSimulator monteCarloSimulator = new MonteCarloSimulator();
+  private final MonteCarloStatisticsGenerator statsGenerator = new MonteCarloStatisticsGenerator();
+  private final MonteCarloSweepSimulator sweepSimulator = new MonteCarloSweepSimulator(monteCarloSimulator);
+
+  @Test
+  public void shouldMatchSeparateRunsForEveryCellOfTheGrid()
+    throws InvalidSimulationParamsException, InvalidStatsGenerationParamsException {
+    List<Portfolio> portfolios = Arrays.asList(
+      new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00)),
+      new Portfolio(PortfolioType.VERY_CONSERVATIVE, BigDecimal.valueOf(250000.00)));
+    List<BigDecimal> inflationRates =
+      Arrays.asList(BigDecimal.ZERO, BigDecimal.valueOf(0.02), BigDecimal.valueOf(0.035));
+    List<Integer> horizons = Arrays.asList(1, 10, 25);
+    List<Double> percentiles = Arrays.asList(0.1, 0.5, 0.9);
+    SimulationParams params = SimulationParams.builder()
+      .numOfSimulations(2000)
+      .yearsToForecast(40)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .seed(5L)
+      .numericMode(NumericMode.DOUBLE)
+      .parallel(true)
+      .build();
+
+    SweepResult sweep = sweepSimulator.runSweep(portfolios, params, inflationRates, horizons, percentiles);
+
+    assertThat(sweep.getNumOfSimulations(), is(2000));
+    for (int k = 0; k < portfolios.size(); k++) {
+      for (int i = 0; i < inflationRates.size(); i++) {
+        for (int h = 0; h < horizons.size(); h++) {
+          SimulationParams cellParams = params.toBuilder()
+            .inflationRate(inflationRates.get(i))
+            .yearsToForecast(horizons.get(h))
+            .build();
+          List<BigDecimal> expected = statsGenerator.calcPercentiles(percentiles, horizons.get(h),
+            monteCarloSimulator.run(portfolios.get(k), cellParams));
+          for (int p = 0; p < percentiles.size(); p++) {
+            double value = expected.get(p).doubleValue();
+            assertEquals(value, sweep.getPercentile(k, i, h, p), value * 1e-12);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void shouldRejectInvalidSweepRanges() {
+    List<Portfolio> portfolios = Collections.singletonList(
+      new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00)));
+    SimulationParams params = SimulationParams.builder()
+      .numOfSimulations(100)
+      .yearsToForecast(10)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .build();
+    List<Double> percentiles = Collections.singletonList(0.5);
+
+    assertThrows(InvalidSimulationParamsException.class, () -> sweepSimulator.runSweep(portfolios, params,
+      Collections.singletonList(BigDecimal.ONE), Collections.singletonList(10), percentiles));
+    assertThrows(InvalidSimulationParamsException.class, () -> sweepSimulator.runSweep(portfolios, params,
+      Collections.singletonList(BigDecimal.ZERO), Collections.singletonList(0), percentiles));
+    assertThrows(InvalidSimulationParamsException.class, () -> sweepSimulator.runSweep(portfolios, params,
+      Collections.emptyList(), Collections.singletonList(10), percentiles));
+  }
+
+  @SpringBootApplication
+  static class TestConfiguration {
+  }
+}
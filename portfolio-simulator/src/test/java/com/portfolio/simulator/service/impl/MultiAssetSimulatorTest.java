@@ -0,0 +1,143 @@
+package com.portfolio.simulator.service.impl;
+
+import com.portfolio.simulator.domain.AssetAllocation;
+import com.portfolio.simulator.domain.NumericMode;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.SamplingStrategy;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+public class MultiAssetSimulatorTest {
+
+  private static final double[][] COVARIANCE = {
+    {0.0400, 0.0180, 0.0060, 0.0020, 0.0000},
+    {0.0180, 0.0225, 0.0045, 0.0015, 0.0000},
+    {0.0060, 0.0045, 0.0100, 0.0030, 0.0000},
+    {0.0020, 0.0015, 0.0030, 0.0025, 0.0000},
+    {0.0000, 0.0000, 0.0000, 0.0000, 0.0000}
+  };
+
+  private final MultiAssetSimulator multiAssetSimulator = new MultiAssetSimulator();
+
+  @Test
+  public void shouldReproduceSingleAssetSimulationForOneAssetClass() throws InvalidSimulationParamsException {
+    Portfolio singleAsset = new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00));
+    double historicalReturn = singleAsset.getTargetAllocation().getHistoricalReturn().doubleValue();
+    double historicalRisk = singleAsset.getTargetAllocation().getHistoricalRisk().doubleValue();
+    SimulationResult expected = new MonteCarloSimulator().run(singleAsset, params(2000, SamplingStrategy.ANTITHETIC));
+
+    for (int rebalancingPeriod : new int[] {1, 0}) {
+      Portfolio portfolio = new Portfolio(BigDecimal.valueOf(100000.00), AssetAllocation.builder()
+        .weights(new double[] {1})
+        .expectedReturns(new double[] {historicalReturn})
+        .covariance(new double[][] {{historicalRisk * historicalRisk}})
+        .rebalancingPeriod(rebalancingPeriod)
+        .build());
+      SimulationResult result = multiAssetSimulator.run(portfolio, params(2000, SamplingStrategy.ANTITHETIC));
+
+      for (int path = 0; path < 2000; path += 7) {
+        for (int year = 0; year < 10; year++) {
+          double balance = expected.getProjectionMatrix().get(path, year);
+          assertEquals(balance, result.getProjectionMatrix().get(path, year), balance * 1e-12);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void shouldMatchPortfolioMomentsAndAgreeAcrossRebalancingPeriods() throws InvalidSimulationParamsException {
+    double[] weights = {0.3, 0.25, 0.2, 0.15, 0.1};
+    double[] expectedReturns = {0.08, 0.07, 0.04, 0.03, 0.01};
+    Portfolio rebalanced = new Portfolio(BigDecimal.valueOf(100000.00), allocation(weights, expectedReturns, 1));
+    Portfolio drifting = new Portfolio(BigDecimal.valueOf(100000.00), allocation(weights, expectedReturns, 0));
+    int numOfSimulations = 40000;
+
+    SimulationResult rebalancedResult = multiAssetSimulator.run(rebalanced, params(numOfSimulations,
+      SamplingStrategy.PSEUDO_RANDOM));
+    SimulationResult driftingResult = multiAssetSimulator.run(drifting, params(numOfSimulations,
+      SamplingStrategy.PSEUDO_RANDOM));
+
+    double sum = 0;
+    double sumOfSquares = 0;
+    for (int path = 0; path < numOfSimulations; path++) {
+      double balance = rebalancedResult.getProjectionMatrix().get(path, 1);
+      assertEquals(balance, driftingResult.getProjectionMatrix().get(path, 1), balance * 1e-12);
+      sum += balance;
+      sumOfSquares += balance * balance;
+    }
+    double mean = sum / numOfSimulations;
+    double standardDeviation = Math.sqrt(sumOfSquares / numOfSimulations - mean * mean);
+    double inflationFactor = 1 - 0.035;
+    double expectedMean = 100000 * (1 + rebalanced.getAssetAllocation().getExpectedReturn()) * inflationFactor;
+    double expectedDeviation = 100000 * rebalanced.getAssetAllocation().getRisk() * inflationFactor;
+    assertEquals(expectedMean, mean, 4 * expectedDeviation / Math.sqrt(numOfSimulations));
+    assertEquals(expectedDeviation, standardDeviation, expectedDeviation * 0.02);
+    assertThat(rebalancedResult.getProjectionMatrix().get(0, 9),
+      is(not(driftingResult.getProjectionMatrix().get(0, 9))));
+  }
+
+  @Test
+  public void shouldCacheFactorPerAllocationAndRejectInvalidCovariance() {
+    AssetAllocation allocation = allocation(new double[] {0.2, 0.2, 0.2, 0.2, 0.2}, new double[5], 1);
+    CholeskyFactor factor = multiAssetSimulator.factorOf(allocation);
+
+    assertThat(multiAssetSimulator.factorOf(allocation), is(sameInstance(factor)));
+    for (int i = 0; i < 5; i++) {
+      for (int j = 0; j < 5; j++) {
+        double product = 0;
+        for (int k = 0; k < 5; k++) {
+          product += factor.get(i, k) * factor.get(j, k);
+        }
+        assertEquals(COVARIANCE[i][j], product, 1e-15);
+      }
+    }
+
+    Portfolio indefinite = new Portfolio(BigDecimal.valueOf(100000.00), AssetAllocation.builder()
+      .weights(new double[] {0.5, 0.5})
+      .expectedReturns(new double[] {0.05, 0.05})
+      .covariance(new double[][] {{0.01, 0.02}, {0.02, 0.01}})
+      .build());
+    assertThrows(InvalidSimulationParamsException.class,
+      () -> multiAssetSimulator.run(indefinite, params(100, SamplingStrategy.PSEUDO_RANDOM)));
+  }
+
+  private AssetAllocation allocation(double[] weights, double[] expectedReturns, int rebalancingPeriod) {
+    return AssetAllocation.builder()
+      .weights(weights)
+      .expectedReturns(expectedReturns)
+      .covariance(COVARIANCE)
+      .rebalancingPeriod(rebalancingPeriod)
+      .build();
+  }
+
+  private SimulationParams params(int numOfSimulations, SamplingStrategy samplingStrategy) {
+    return SimulationParams.builder()
+      .numOfSimulations(numOfSimulations)
+      .yearsToForecast(10)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .seed(23L)
+      .parallel(true)
+      .numericMode(NumericMode.DOUBLE)
+      .samplingStrategy(samplingStrategy)
+      .build();
+  }
+
+  @SpringBootApplication
+  static class TestConfiguration {
+  }
+}
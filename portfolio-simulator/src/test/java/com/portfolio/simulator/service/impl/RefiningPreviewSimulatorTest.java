@@ -0,0 +1,103 @@
+package com.portfolio.simulator.service.impl;
+
+import com.portfolio.simulator.domain.FanChartPreview;
+import com.portfolio.simulator.domain.FanChartRefinement;
+import com.portfolio.simulator.domain.NumericMode;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.number.OrderingComparison.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+public class RefiningPreviewSimulatorTest {
+
+  private final List<Double> percentiles = Arrays.asList(0.05, 0.25, 0.5, 0.75, 0.95);
+  private final AsyncMonteCarloSimulator asyncSimulator = new AsyncMonteCarloSimulator(new MonteCarloSimulator(), 2, 2);
+  private final RefiningPreviewSimulator previewSimulator =
+    new RefiningPreviewSimulator(asyncSimulator, new MonteCarloStatisticsGenerator());
+
+  @AfterEach
+  public void closeSimulator() {
+    asyncSimulator.close();
+  }
+
+  @Test
+  public void shouldPreviewWithinTwoPercentOfRefinedFanChart() throws Exception {
+    for (PortfolioType portfolioType : Arrays.asList(PortfolioType.AGGRESSIVE, PortfolioType.VERY_CONSERVATIVE)) {
+      Portfolio portfolio = new Portfolio(portfolioType, BigDecimal.valueOf(100000.00));
+      FanChartPreview preview = previewSimulator.preview(portfolio, params(), percentiles);
+
+      assertThat(preview.getApproximation().length, is(21));
+      assertThat(preview.getApproximation()[0][0], is(100000.00));
+
+      FanChartRefinement refinement = preview.getRefinement().get(30, TimeUnit.SECONDS);
+      double maxRelativeError = 0;
+      for (int year = 0; year < 21; year++) {
+        for (int i = 0; i < percentiles.size(); i++) {
+          double expected = refinement.getValues()[year][i];
+          double relativeError = Math.abs(preview.getApproximation()[year][i] - expected) / expected;
+          assertThat(refinement.getRelativeErrors()[year][i], is(relativeError));
+          maxRelativeError = Math.max(maxRelativeError, relativeError);
+        }
+      }
+      assertThat(refinement.getMaxRelativeError(), is(maxRelativeError));
+      assertThat(maxRelativeError, is(lessThan(0.02)));
+      assertThat(refinement.getResult().getNumOfSimulations(), is(20000));
+    }
+  }
+
+  @Test
+  public void shouldApproximateWithinOnePercentOfHundredThousandPaths() throws Exception {
+    SimulationParams params = params().toBuilder().numOfSimulations(100000).build();
+    for (PortfolioType portfolioType : Arrays.asList(PortfolioType.AGGRESSIVE, PortfolioType.VERY_CONSERVATIVE)) {
+      Portfolio portfolio = new Portfolio(portfolioType, BigDecimal.valueOf(100000.00));
+      FanChartRefinement refinement =
+        previewSimulator.preview(portfolio, params, percentiles).getRefinement().get(60, TimeUnit.SECONDS);
+
+      assertThat(refinement.getResult().getNumOfSimulations(), is(100000));
+      assertThat(refinement.getMaxRelativeError(), is(lessThan(0.01)));
+    }
+  }
+
+  @Test
+  public void shouldRejectInvalidPreviewWithoutStartingRun() {
+    Portfolio portfolio = new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00));
+
+    assertThrows(InvalidSimulationParamsException.class, () ->
+      previewSimulator.preview(portfolio, params().toBuilder().inflationRate(null).build(), percentiles));
+    assertThrows(InvalidSimulationParamsException.class, () ->
+      previewSimulator.preview(portfolio, params(), Collections.singletonList(1.5)));
+    assertThrows(InvalidSimulationParamsException.class, () ->
+      previewSimulator.approximate(new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.ZERO), params(), percentiles));
+    assertThat(asyncSimulator.getNumOfRunning(), is(0));
+  }
+
+  private SimulationParams params() {
+    return SimulationParams.builder()
+      .numOfSimulations(20000)
+      .yearsToForecast(21)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .seed(23L)
+      .numericMode(NumericMode.DOUBLE)
+      .build();
+  }
+
+  @SpringBootApplication
+  static class TestConfiguration {
+  }
+}
@@ -0,0 +1,63 @@
+package com.portfolio.simulator.service.impl;
+
+import com.portfolio.simulator.domain.SamplingStrategy;
+import com.portfolio.simulator.random.InverseNormal;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+public class ShockSamplerTest {
+
+  private static final int YEARS_TO_FORECAST = 6;
+
+  @Test
+  public void shouldNegateDrawsForSecondPathOfEachAntitheticPair() {
+    ShockSampler sampler = ShockSampler.factory(SamplingStrategy.ANTITHETIC, 5L, 10, YEARS_TO_FORECAST).create();
+    double[] first = new double[YEARS_TO_FORECAST];
+    double[] second = new double[YEARS_TO_FORECAST];
+
+    sampler.fill(6, first, YEARS_TO_FORECAST);
+    sampler.fill(7, second, YEARS_TO_FORECAST);
+
+    for (int year = 1; year < YEARS_TO_FORECAST; year++) {
+      assertThat(second[year], is(-first[year]));
+    }
+  }
+
+  @Test
+  public void shouldPlaceExactlyOnePathInEveryStratumOfCumulativeShockForStratifiedAndSobolSampling() {
+    int numOfSimulations = 1024;
+    for (SamplingStrategy samplingStrategy
+      : new SamplingStrategy[]{SamplingStrategy.STRATIFIED, SamplingStrategy.SOBOL}) {
+      ShockSampler sampler = ShockSampler.factory(samplingStrategy, 17L, numOfSimulations, YEARS_TO_FORECAST).create();
+      double[] cumulativeShocks = new double[numOfSimulations];
+      double[] shocks = new double[YEARS_TO_FORECAST];
+      for (int sim = 0; sim < numOfSimulations; sim++) {
+        sampler.fill(sim, shocks, YEARS_TO_FORECAST);
+        for (int year = 1; year < YEARS_TO_FORECAST; year++) {
+          cumulativeShocks[sim] += shocks[year];
+        }
+        cumulativeShocks[sim] /= Math.sqrt(YEARS_TO_FORECAST - 1);
+      }
+
+      Arrays.sort(cumulativeShocks);
+      for (int stratum = 0; stratum < numOfSimulations; stratum++) {
+        double lower = InverseNormal.cdfInverse((double) stratum / numOfSimulations);
+        double upper = InverseNormal.cdfInverse((double) (stratum + 1) / numOfSimulations);
+        assertTrue(cumulativeShocks[stratum] >= lower - 1e-12);
+        assertTrue(cumulativeShocks[stratum] <= upper + 1e-12);
+      }
+    }
+  }
+
+  @SpringBootApplication
+  static class TestConfiguration {
+  }
+}
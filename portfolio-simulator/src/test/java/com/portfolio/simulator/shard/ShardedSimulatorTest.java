@@ -0,0 +1,233 @@
+package com.portfolio.simulator.shard;
+
+import com.portfolio.simulator.domain.AssetAllocation;
+import com.portfolio.simulator.domain.NumericMode;
+import com.portfolio.simulator.domain.Portfolio;
+import com.portfolio.simulator.domain.PortfolioType;
+import com.portfolio.simulator.domain.ResultStorage;
+import com.portfolio.simulator.domain.SamplingStrategy;
+import com.portfolio.simulator.domain.SimulationParams;
+import com.portfolio.simulator.domain.SimulationResult;
+import com.portfolio.simulator.exception.InvalidSimulationParamsException;
+import com.portfolio.simulator.exception.ShardFailedException;
+import com.portfolio.simulator.io.ColumnCodec;
+import com.portfolio.simulator.service.ShardSimulator;
+import com.portfolio.simulator.service.impl.MonteCarloSimulator;
+import com.portfolio.simulator.service.impl.MonteCarloStatisticsGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+public class ShardedSimulatorTest {
+
+  private final Portfolio portfolio = new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.valueOf(100000.00));
+
+  @Test
+  public void shouldMatchSingleProcessRunWhenShardedOverWorkerProcesses() throws Exception {
+    SimulationParams params = params(ResultStorage.MATRIX, SamplingStrategy.ANTITHETIC);
+    SimulationResult expected = new MonteCarloSimulator().run(portfolio, params);
+
+    try (ShardedSimulator shardedSimulator = new ShardedSimulator(
+      ShardWorkerLauncher.localProcesses("-Xmx128m"), 2, 1500, 3, ColumnCodec.DEFLATE)) {
+      SimulationResult result = shardedSimulator.run(portfolio, params);
+
+      assertThat(result.getNumOfSimulations(), is(5001));
+      for (int year = 0; year < 12; year++) {
+        double[] expectedYear = new double[5001];
+        double[] actualYear = new double[5001];
+        expected.getProjectionMatrix().copyYear(year, expectedYear, 0);
+        result.getProjectionMatrix().copyYear(year, actualYear, 0);
+        assertThat(actualYear, is(expectedYear));
+      }
+      assertThat(shardedSimulator.getRetryCount(), is(0L));
+    }
+  }
+
+  @Test
+  public void shouldMergeShardSketchesIntoSingleRunSketches() throws Exception {
+    SimulationParams params = params(ResultStorage.SKETCH, SamplingStrategy.STRATIFIED);
+    SimulationResult expected = new MonteCarloSimulator().run(portfolio, params);
+
+    try (ShardedSimulator shardedSimulator = new ShardedSimulator(inProcessWorkers(new AtomicInteger()), 3)) {
+      SimulationResult result = shardedSimulator.run(portfolio, params);
+
+      List<Double> percents = Arrays.asList(0.1, 0.5, 0.9);
+      MonteCarloStatisticsGenerator statsGenerator = new MonteCarloStatisticsGenerator();
+      assertThat(statsGenerator.calcFanChart(percents, result), is(statsGenerator.calcFanChart(percents, expected)));
+      assertThat(result.getYearSketches()[11].getCount(), is(5001L));
+    }
+  }
+
+  @Test
+  public void shouldMatchSingleProcessRunOfMultiAssetPortfolio() throws Exception {
+    Portfolio multiAsset = new Portfolio(BigDecimal.valueOf(100000.00), AssetAllocation.builder()
+      .weights(new double[] {0.7, 0.3})
+      .expectedReturns(new double[] {0.09, 0.035})
+      .covariance(new double[][] {{0.04, 0.003}, {0.003, 0.0036}})
+      .build());
+    SimulationParams params = params(ResultStorage.MATRIX, SamplingStrategy.PSEUDO_RANDOM);
+    SimulationResult expected = new MonteCarloSimulator().run(multiAsset, params);
+
+    try (ShardedSimulator shardedSimulator = new ShardedSimulator(inProcessWorkers(new AtomicInteger()), 2, 2000, 3,
+      ColumnCodec.NONE)) {
+      SimulationResult result = shardedSimulator.run(multiAsset, params);
+
+      for (int year = 0; year < 12; year++) {
+        double[] expectedYear = new double[5001];
+        double[] actualYear = new double[5001];
+        expected.getProjectionMatrix().copyYear(year, expectedYear, 0);
+        result.getProjectionMatrix().copyYear(year, actualYear, 0);
+        assertThat(actualYear, is(expectedYear));
+      }
+    }
+  }
+
+  @Test
+  public void shouldRetryShardOfFailedWorkerAndReportInvalidParams() throws Exception {
+    SimulationParams params = params(ResultStorage.MATRIX, SamplingStrategy.PSEUDO_RANDOM);
+    SimulationResult expected = new MonteCarloSimulator().run(portfolio, params);
+    AtomicInteger crashes = new AtomicInteger(2);
+
+    try (ShardedSimulator shardedSimulator = new ShardedSimulator(inProcessWorkers(crashes), 2, 1000, 3,
+      ColumnCodec.NONE)) {
+      SimulationResult result = shardedSimulator.run(portfolio, params);
+
+      assertThat(result.getProjectionMatrix().get(5000, 11), is(expected.getProjectionMatrix().get(5000, 11)));
+      assertThat(result.getProjectionMatrix().get(2500, 6), is(expected.getProjectionMatrix().get(2500, 6)));
+      assertThat(shardedSimulator.getRetryCount(), is(2L));
+
+      Exception exception = assertThrows(InvalidSimulationParamsException.class, () ->
+        shardedSimulator.run(new Portfolio(PortfolioType.AGGRESSIVE, BigDecimal.ZERO), params));
+      assertThat(exception.getMessage(), is("Cannot run simulation with invalid parameters"));
+    }
+  }
+
+  @Test
+  public void shouldReportFailedShardWithoutRetrying() throws Exception {
+    SimulationParams params = params(ResultStorage.MATRIX, SamplingStrategy.PSEUDO_RANDOM);
+    AtomicInteger launches = new AtomicInteger();
+    ShardSimulator failing = (shardPortfolio, shardParams, seed, fromSim, toSim) -> {
+      throw new IllegalStateException("Simulation failed");
+    };
+    ShardWorkerLauncher workers = inProcessWorkers(new AtomicInteger(), new AtomicInteger(), failing);
+
+    try (ShardedSimulator shardedSimulator = new ShardedSimulator(() -> {
+      launches.incrementAndGet();
+      return workers.launch();
+    }, 2, 1000, 3, ColumnCodec.NONE)) {
+      ShardFailedException exception = assertThrows(ShardFailedException.class, () ->
+        shardedSimulator.run(portfolio, params));
+
+      assertTrue(exception.getMessage().endsWith("failed: java.lang.IllegalStateException: Simulation failed"));
+      assertThat(shardedSimulator.getRetryCount(), is(0L));
+      assertTrue(launches.get() <= 2);
+    }
+  }
+
+  @Test
+  public void shouldRetryShardOfWorkerThatStopsAnswering() throws Exception {
+    SimulationParams params = params(ResultStorage.MATRIX, SamplingStrategy.PSEUDO_RANDOM);
+    SimulationResult expected = new MonteCarloSimulator().run(portfolio, params);
+    AtomicInteger hangs = new AtomicInteger(1);
+
+    try (ShardedSimulator shardedSimulator = new ShardedSimulator(
+      inProcessWorkers(new AtomicInteger(), hangs, new MonteCarloSimulator()), 2, 1000, 3, ColumnCodec.NONE, 2000)) {
+      SimulationResult result = shardedSimulator.run(portfolio, params);
+
+      assertThat(result.getProjectionMatrix().get(4000, 11), is(expected.getProjectionMatrix().get(4000, 11)));
+      assertThat(result.getProjectionMatrix().get(0, 3), is(expected.getProjectionMatrix().get(0, 3)));
+      assertThat(shardedSimulator.getRetryCount(), is(1L));
+    }
+  }
+
+  private SimulationParams params(ResultStorage resultStorage, SamplingStrategy samplingStrategy) {
+    return SimulationParams.builder()
+      .numOfSimulations(5001)
+      .yearsToForecast(12)
+      .inflationRate(BigDecimal.valueOf(0.035))
+      .seed(21L)
+      .numericMode(NumericMode.DOUBLE)
+      .samplingStrategy(samplingStrategy)
+      .resultStorage(resultStorage)
+      .build();
+  }
+
+  private static ShardWorkerLauncher inProcessWorkers(AtomicInteger crashes) {
+    return inProcessWorkers(crashes, new AtomicInteger(), new MonteCarloSimulator());
+  }
+
+  /**
+   * Workers on threads of this JVM; the first {@code crashes} of them drop their connection on the first request, and
+   * the next {@code hangs} never answer until the connection is closed.
+   */
+  private static ShardWorkerLauncher inProcessWorkers(AtomicInteger crashes,
+                                                      AtomicInteger hangs,
+                                                      ShardSimulator simulator) {
+    return () -> {
+      PipedInputStream requestsIn = new PipedInputStream(1 << 16);
+      PipedOutputStream requestsOut = new PipedOutputStream(requestsIn);
+      PipedInputStream responsesIn = new PipedInputStream(1 << 16);
+      PipedOutputStream responsesOut = new PipedOutputStream(responsesIn);
+      boolean crash = crashes.getAndDecrement() > 0;
+      boolean hang = !crash && hangs.getAndDecrement() > 0;
+      Thread thread = new Thread(() -> {
+        try {
+          if (crash) {
+            requestsIn.read();
+            responsesOut.close();
+          } else if (hang) {
+            while (requestsIn.read() >= 0) {
+              // swallow requests without ever answering
+            }
+            responsesOut.close();
+          } else {
+            new ShardWorker(simulator).serve(requestsIn, responsesOut);
+            responsesOut.close();
+          }
+        } catch (IOException e) {
+          // connection closed by the coordinator
+        }
+      });
+      thread.setDaemon(true);
+      thread.start();
+      DataOutputStream requests = new DataOutputStream(requestsOut);
+      DataInputStream responses = new DataInputStream(responsesIn);
+      return new ShardWorkerConnection() {
+        @Override
+        public DataOutputStream getRequests() {
+          return requests;
+        }
+
+        @Override
+        public DataInputStream getResponses() {
+          return responses;
+        }
+
+        @Override
+        public void close() throws IOException {
+          requests.close();
+        }
+      };
+    };
+  }
+
+  @SpringBootApplication
+  static class TestConfiguration {
+  }
+}
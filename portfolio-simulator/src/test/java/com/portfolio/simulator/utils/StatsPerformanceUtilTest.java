@@ -0,0 +1,61 @@
+package com.portfolio.simulator.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+@SpringBootTest
+public class StatsPerformanceUtilTest {
+
+  private static final double[] PERCENTILES = {0.05, 0.1, 0.25, 0.5, 0.5, 0.75, 0.9, 0.95, 0.0, 1.0};
+
+  @Test
+  public void shouldMatchSortedPercentilesForRandomAndDuplicateHeavyInputs() {
+    Random random = new Random(11);
+    for (int size : new int[]{1, 2, 15, 16, 17, 1000, 10007}) {
+      double[] values = new double[size];
+      double[] duplicates = new double[size];
+      for (int i = 0; i < size; i++) {
+        values[i] = random.nextGaussian();
+        duplicates[i] = random.nextInt(5);
+      }
+
+      assertArrayEquals(sortedPercentiles(values), StatsPerformanceUtil.derivePercentiles(values, PERCENTILES));
+      assertArrayEquals(sortedPercentiles(duplicates), StatsPerformanceUtil.derivePercentiles(duplicates, PERCENTILES));
+    }
+  }
+
+  @Test
+  public void shouldLeaveCallerValuesUntouched() {
+    double[] values = {5, 3, 9, 1, 7};
+    BigDecimal[] boxedValues = {BigDecimal.valueOf(5), BigDecimal.ONE, BigDecimal.TEN};
+
+    assertThat(StatsPerformanceUtil.derivePercentile(values, 0.5), is(5.0));
+    assertThat(StatsPerformanceUtil.derivePercentile(boxedValues, 0.5), is(BigDecimal.valueOf(5)));
+
+    assertArrayEquals(new double[]{5, 3, 9, 1, 7}, values);
+    assertArrayEquals(new BigDecimal[]{BigDecimal.valueOf(5), BigDecimal.ONE, BigDecimal.TEN}, boxedValues);
+  }
+
+  private double[] sortedPercentiles(double[] values) {
+    double[] sortedValues = values.clone();
+    Arrays.sort(sortedValues);
+    double[] results = new double[PERCENTILES.length];
+    for (int i = 0; i < PERCENTILES.length; i++) {
+      results[i] = sortedValues[StatsPerformanceUtil.percentileIndex(sortedValues.length, PERCENTILES[i])];
+    }
+    return results;
+  }
+
+  @SpringBootApplication
+  static class TestConfiguration {
+  }
+}